@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.limit.ConcurrencyLimitExceededException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Simulates an upstream whose latency grows with the calls in flight, 20 ms more
+ * for every 10 of them, to watch the adaptive concurrency limiter outside JMH.
+ * Client threads call it in a loop, 5 of them, then 60, then 5 again; every second
+ * the throughput, the rejected calls, the mean latency and the limiter statistics
+ * are printed.
+ * <p>
+ * Run it with {@code java -cp benchmarks/target/benchmarks.jar
+ * org.devefx.httpmapper.benchmark.AdaptiveConcurrencySimulation}, adding
+ * {@code unlimited} to compare with the limiter disabled.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class AdaptiveConcurrencySimulation {
+
+	private static final int LOW_CLIENTS = 5;
+
+	private static final int HIGH_CLIENTS = 60;
+
+	private static final int SECONDS = 12;
+
+	private static final byte[] BODY = "{\"v\":1}".getBytes();
+
+	public static void main(String[] args) throws Exception {
+		boolean limited = args.length == 0 || !"unlimited".equals(args[0]);
+		final AtomicInteger serverInFlight = new AtomicInteger();
+		ExecutorService serverExecutor = Executors.newCachedThreadPool();
+		HttpServer server = startServer(serverExecutor, serverInFlight);
+		Configuration configuration = new Configuration();
+		configuration.setGlobalBaseUrl("http://localhost:" + server.getAddress().getPort() + "/");
+		configuration.setAdaptiveConcurrencyEnabled(limited);
+		configuration.setRetryMaxAttempts(1);
+		configuration.setMaxConnectionsPerRoute(HIGH_CLIENTS * 2);
+		configuration.setMaxConnectionsTotal(HIGH_CLIENTS * 2);
+		configuration.addMapper(BenchmarkMapper.class);
+		final BenchmarkMapper mapper = configuration.getMapper(BenchmarkMapper.class);
+
+		final AtomicInteger clients = new AtomicInteger(LOW_CLIENTS);
+		final AtomicBoolean stopped = new AtomicBoolean();
+		final AtomicLong completed = new AtomicLong();
+		final AtomicLong rejected = new AtomicLong();
+		final AtomicLong latency = new AtomicLong();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < HIGH_CLIENTS; i++) {
+			final int id = i;
+			Thread thread = new Thread("client-" + i) {
+				@Override
+				public void run() {
+					while (!stopped.get()) {
+						if (id >= clients.get()) {
+							pause(20);
+							continue;
+						}
+						long start = System.nanoTime();
+						try {
+							mapper.ping();
+							completed.incrementAndGet();
+							latency.addAndGet(System.nanoTime() - start);
+						} catch (ConcurrencyLimitExceededException ex) {
+							rejected.incrementAndGet();
+							pause(5);
+						}
+					}
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+
+		for (int second = 1; second <= SECONDS; second++) {
+			if (second == 4) {
+				clients.set(HIGH_CLIENTS);
+			} else if (second == SECONDS - 2) {
+				clients.set(LOW_CLIENTS);
+			}
+			completed.set(0);
+			rejected.set(0);
+			latency.set(0);
+			Thread.sleep(1000);
+			long calls = completed.get();
+			System.out.printf("t=%2ds clients=%2d ok/s=%5d rejected/s=%5d mean=%6.1fms upstream=%2d %s%n",
+					second, clients.get(), calls, rejected.get(),
+					(calls == 0) ? 0.0 : latency.get() / 1e6 / calls, serverInFlight.get(),
+					limited ? configuration.getConcurrencyLimiterStats().values() : "");
+		}
+		stopped.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		configuration.destroy();
+		server.stop(0);
+		serverExecutor.shutdown();
+	}
+
+	private static HttpServer startServer(ExecutorService executor, final AtomicInteger inFlight) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int current = inFlight.incrementAndGet();
+				try {
+					pause(20L * ((current + 9) / 10));
+					exchange.getResponseHeaders().set("Content-Type", "application/json");
+					exchange.sendResponseHeaders(200, BODY.length);
+					OutputStream body = exchange.getResponseBody();
+					body.write(BODY);
+					body.close();
+				} finally {
+					inFlight.decrementAndGet();
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	private static void pause(long millis) {
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Cached;
+import org.devefx.httpmapper.annotate.Method;
+import org.devefx.httpmapper.annotate.Param;
+import org.springframework.http.HttpMethod;
+
+/**
+ * The mapper exercised by the benchmarks.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Bean
+public interface BenchmarkMapper {
+	
+	@Method("ping")
+	Map<String, Object> ping();
+	
+	@Method("ping")
+	@Cached(ttl = 1, timeUnit = TimeUnit.DAYS)
+	Map<String, Object> cachedPing(@Param("id") int id);
+	
+	@Method("users/{id}")
+	Map<String, Object> getUser(@Param("id") long id, @Param("fields") String fields);
+	
+	@Method(value = "users", httpMethod = HttpMethod.POST)
+	Map<String, Object> createUser(@Param("name") String name, @Param("age") int age,
+			@Param("email") String email, @Param("active") boolean active);
+	
+	@Method(value = "users", httpMethod = HttpMethod.POST, contentType = "application/json;charset=UTF-8")
+	Map<String, Object> createUserJson(@Param("name") String name, @Param("age") int age,
+			@Param("email") String email, @Param("active") boolean active);
+	
+	@Method("items/{size}")
+	List<Item> listItems(@Param("size") String size);
+	
+	@Method("ping")
+	Future<Map<String, Object>> pingAsync();
+	
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.spring.handler.MappedListener;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Helpers shared by the benchmarks.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public abstract class Benchmarks {
+	
+	public static final String BASE_URL = "http://stub.local/";
+	
+	/**
+	 * Creates a configuration sending its requests to the given stub transport,
+	 * with {@link BenchmarkMapper} registered.
+	 */
+	public static Configuration createConfiguration(StubClientHttpRequestFactory requestFactory,
+			MappedListener... mappedListeners) {
+		return createConfiguration(requestFactory, false, mappedListeners);
+	}
+	
+	/**
+	 * Creates a configuration sending its requests to the given stub transport,
+	 * with {@link BenchmarkMapper} registered, optionally as a generated class.
+	 */
+	public static Configuration createConfiguration(StubClientHttpRequestFactory requestFactory,
+			boolean useGeneratedMappers, MappedListener... mappedListeners) {
+		Configuration configuration = new Configuration();
+		configuration.setUseGeneratedMappers(useGeneratedMappers);
+		configuration.setGlobalBaseUrl(BASE_URL);
+		configuration.setRestTemplate(new RestTemplate(requestFactory));
+		configuration.setMappedListeners(new ArrayList<MappedListener>(Arrays.asList(mappedListeners)));
+		configuration.addMapper(BenchmarkMapper.class);
+		return configuration;
+	}
+	
+	public static StubClientHttpRequestFactory createRequestFactory() throws JsonProcessingException {
+		StubClientHttpRequestFactory requestFactory = new StubClientHttpRequestFactory();
+		ObjectMapper mapper = new ObjectMapper();
+		requestFactory.setResponse("/ping", "{\"ok\":true}".getBytes());
+		requestFactory.setResponse("/users/42", "{\"id\":42,\"name\":\"devefx\",\"age\":30}".getBytes());
+		requestFactory.setResponse("/users", "{\"id\":43}".getBytes());
+		for (PayloadSize size : PayloadSize.values()) {
+			requestFactory.setResponse("/items/" + size.name(), mapper.writeValueAsBytes(createItems(size.getCount())));
+		}
+		return requestFactory;
+	}
+	
+	public static List<Item> createItems(int count) {
+		List<Item> items = new ArrayList<Item>(count);
+		for (int i = 0; i < count; i++) {
+			Item item = new Item();
+			item.setId(i);
+			item.setName("item-" + i);
+			item.setScore(i * 0.5);
+			item.setActive((i & 1) == 0);
+			item.setTags(Arrays.asList("alpha", "beta", "gamma"));
+			items.add(item);
+		}
+		return items;
+	}
+	
+	/**
+	 * The sizes of the JSON payloads decoded by {@link JsonDecodingBenchmark}.
+	 */
+	public enum PayloadSize {
+		
+		small(1), medium(100), large(10000);
+		
+		private final int count;
+		
+		PayloadSize(int count) {
+			this.count = count;
+		}
+		
+		public int getCount() {
+			return count;
+		}
+	}
+	
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.http.HandlerListener;
+import org.devefx.httpmapper.http.RequestEntity;
+import org.devefx.httpmapper.http.ResponseEntity;
+import org.devefx.httpmapper.spring.handler.HandlerExecutionChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Measures the listener callbacks run around every exchange.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerChainBenchmark {
+	
+	@Param({ "0", "1", "4" })
+	public int listenerCount;
+	
+	private HandlerExecutionChain chain;
+	
+	private RequestEntity requestEntity;
+	
+	private ResponseEntity responseEntity;
+	
+	@Setup
+	public void setup() throws Exception {
+		chain = new HandlerExecutionChain();
+		for (int i = 0; i < listenerCount; i++) {
+			chain.addListener(new CountingListener());
+		}
+		requestEntity = new RequestEntity(HttpMethod.GET, new URI(Benchmarks.BASE_URL + "ping"));
+		responseEntity = new ResponseEntity(HttpStatus.OK);
+	}
+	
+	@Benchmark
+	public void onRequestAndResponse(Blackhole blackhole) throws Exception {
+		chain.onRequest(requestEntity);
+		chain.onResponse(requestEntity, responseEntity);
+		blackhole.consume(requestEntity);
+	}
+	
+	private static class CountingListener implements HandlerListener {
+		
+		private int requests;
+		
+		private int responses;
+		
+		@Override
+		public void onRequest(RequestEntity requestEntity) throws Exception {
+			requests++;
+		}
+		
+		@Override
+		public void onResponse(RequestEntity requestEntity, ResponseEntity responseEntity) throws Exception {
+			responses++;
+		}
+	}
+	
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.benchmark.Benchmarks.PayloadSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a mapper call decoding a JSON array of {@link Item}s into a list,
+ * for payloads of one, a hundred and ten thousand elements.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecodingBenchmark {
+	
+	@Param({ "small", "medium", "large" })
+	public PayloadSize size;
+	
+	private Configuration configuration;
+	
+	private BenchmarkMapper mapper;
+	
+	private String path;
+	
+	@Setup
+	public void setup() throws Exception {
+		configuration = Benchmarks.createConfiguration(Benchmarks.createRequestFactory());
+		mapper = configuration.getMapper(BenchmarkMapper.class);
+		path = size.name();
+		if (mapper.listItems(path).size() != size.getCount()) {
+			throw new IllegalStateException("Unexpected payload for " + size);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		configuration.destroy();
+	}
+	
+	@Benchmark
+	public List<Item> decode() {
+		return mapper.listItems(path);
+	}
+	
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.spring.mapper.ClassPathMapperScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * Measures finding the mappers at startup, as the {@code MapperScannerConfigurer}
+ * does, in a class path as large as the Spring jars: from the index generated at
+ * compile time, by scanning on one thread, and by scanning on one thread per processor.
+ * Every invocation uses a new scanner, so no class metadata is cached between them.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperScanBenchmark {
+
+	private static final String[] BASE_PACKAGES = { "org.devefx.httpmapper.benchmark", "org.springframework" };
+
+	@Param({ "index", "scan", "parallelScan" })
+	public String mode;
+
+	@Benchmark
+	public int findMappers() {
+		DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+		ClassPathMapperScanner scanner = new ClassPathMapperScanner(registry);
+		scanner.setAnnotationClass(Bean.class);
+		scanner.setUseIndex("index".equals(mode));
+		if ("scan".equals(mode)) {
+			scanner.setScanThreads(1);
+		}
+		scanner.registerFilters();
+		return scanner.scan(BASE_PACKAGES);
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.utils.ParamNameResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the binding of call arguments to their parameter names.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamNameResolverBenchmark {
+	
+	private ParamNameResolver twoArgsResolver;
+	
+	private ParamNameResolver fourArgsResolver;
+	
+	private Object[] twoArgs;
+	
+	private Object[] fourArgs;
+	
+	@Setup
+	public void setup() throws Exception {
+		Configuration configuration = new Configuration();
+		twoArgsResolver = new ParamNameResolver(configuration,
+				BenchmarkMapper.class.getMethod("getUser", long.class, String.class));
+		fourArgsResolver = new ParamNameResolver(configuration,
+				BenchmarkMapper.class.getMethod("createUser", String.class, int.class, String.class, boolean.class));
+		twoArgs = new Object[] { 42L, "name,age" };
+		fourArgs = new Object[] { "devefx", 30, "devefx@163.com", Boolean.TRUE };
+	}
+	
+	@Benchmark
+	public Object twoArgs() {
+		return twoArgsResolver.getNamedParams(twoArgs);
+	}
+	
+	@Benchmark
+	public Object fourArgs() {
+		return fourArgsResolver.getNamedParams(fourArgs);
+	}
+	
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a whole mapper call through the proxy: method dispatch, argument
+ * binding, request building, the exchange over the in-process transport and
+ * decoding of a tiny response.
+ * <p>
+ * Runs against both a {@link java.lang.reflect.Proxy} and the generated
+ * implementation. The calls answered from the cache show the dispatch cost
+ * best, as they do little else.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyDispatchBenchmark {
+	
+	@Param({ "proxy", "generated" })
+	public String implementation;
+	
+	private Configuration configuration;
+	
+	private BenchmarkMapper mapper;
+	
+	@Setup
+	public void setup() throws Exception {
+		configuration = Benchmarks.createConfiguration(Benchmarks.createRequestFactory(),
+				"generated".equals(implementation));
+		mapper = configuration.getMapper(BenchmarkMapper.class);
+		if ("generated".equals(implementation) == Proxy.isProxyClass(mapper.getClass())) {
+			throw new IllegalStateException("Unexpected mapper implementation " + mapper.getClass());
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		configuration.destroy();
+	}
+	
+	@Benchmark
+	public int objectMethod() {
+		// dispatched by the proxy without reaching a MapperMethod
+		return mapper.hashCode();
+	}
+	
+	@Benchmark
+	public Map<String, Object> cached() {
+		return mapper.cachedPing(1);
+	}
+	
+	@Benchmark
+	public Map<String, Object> noArgs() {
+		return mapper.ping();
+	}
+	
+	@Benchmark
+	public Map<String, Object> pathAndQuery() {
+		return mapper.getUser(42L, "name,age");
+	}
+	
+	@Benchmark
+	public Map<String, Object> formPost() {
+		return mapper.createUser("devefx", 30, "devefx@163.com", true);
+	}
+	
+	@Benchmark
+	public Map<String, Object> jsonPost() {
+		return mapper.createUserJson("devefx", 30, "devefx@163.com", true);
+	}
+	
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * An in-process transport answering every request with a canned JSON body
+ * looked up by path, so that benchmarks measure the mapper and not the network.
+ * <p>
+ * An optional latency blocks the calling thread for every exchange, which
+ * stands in for a remote server in the thread model benchmarks.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class StubClientHttpRequestFactory implements ClientHttpRequestFactory {
+	
+	private static final byte[] EMPTY_OBJECT = "{}".getBytes();
+	
+	private final Map<String, byte[]> responses = new ConcurrentHashMap<String, byte[]>();
+	
+	private volatile long latencyNanos;
+	
+	/**
+	 * Answers requests to the given path (without query) with the given body.
+	 */
+	public void setResponse(String path, byte[] body) {
+		responses.put(path, body);
+	}
+	
+	public void setLatency(long latency, TimeUnit timeUnit) {
+		this.latencyNanos = timeUnit.toNanos(latency);
+	}
+	
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		return new StubRequest(uri, httpMethod);
+	}
+	
+	private class StubRequest extends AbstractClientHttpRequest {
+		
+		private final URI uri;
+		
+		private final HttpMethod method;
+		
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+		
+		StubRequest(URI uri, HttpMethod method) {
+			this.uri = uri;
+			this.method = method;
+		}
+		
+		@Override
+		public HttpMethod getMethod() {
+			return method;
+		}
+		
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+		
+		@Override
+		protected OutputStream getBodyInternal(HttpHeaders headers) throws IOException {
+			return body;
+		}
+		
+		@Override
+		protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+			if (latencyNanos > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(latencyNanos);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while simulating latency", e);
+				}
+			}
+			byte[] content = responses.get(uri.getPath());
+			return new StubResponse(content != null ? content : EMPTY_OBJECT);
+		}
+	}
+	
+	private static class StubResponse extends AbstractClientHttpResponse {
+		
+		private final byte[] content;
+		
+		private final HttpHeaders headers = new HttpHeaders();
+		
+		StubResponse(byte[] content) {
+			this.content = content;
+			this.headers.setContentType(MediaType.APPLICATION_JSON);
+			this.headers.setContentLength(content.length);
+		}
+		
+		@Override
+		public int getRawStatusCode() throws IOException {
+			return HttpStatus.OK.value();
+		}
+		
+		@Override
+		public String getStatusText() throws IOException {
+			return HttpStatus.OK.getReasonPhrase();
+		}
+		
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+		
+		@Override
+		public InputStream getBody() throws IOException {
+			return new ByteArrayInputStream(content);
+		}
+		
+		@Override
+		public void close() {
+		}
+	}
+	
+}
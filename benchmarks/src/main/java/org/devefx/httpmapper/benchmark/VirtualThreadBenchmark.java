@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.utils.ExecutorUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Compares the thread models available to mapper methods returning a future:
+ * a fixed pool of platform threads against one virtual thread per call,
+ * fanning out {@value #FAN_OUT} calls to a transport that blocks for a
+ * millisecond each.
+ * <p>
+ * Requires a runtime supporting virtual threads for the {@code virtual} mode.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+	
+	public static final int FAN_OUT = 1000;
+	
+	@Param({ "platform", "virtual" })
+	public String threads;
+	
+	@Param({ "200" })
+	public int poolSize;
+	
+	private Configuration configuration;
+	
+	private ExecutorService platformExecutor;
+	
+	private BenchmarkMapper mapper;
+	
+	@Setup
+	public void setup() throws Exception {
+		StubClientHttpRequestFactory requestFactory = Benchmarks.createRequestFactory();
+		requestFactory.setLatency(1, TimeUnit.MILLISECONDS);
+		configuration = Benchmarks.createConfiguration(requestFactory);
+		if ("virtual".equals(threads)) {
+			if (!ExecutorUtils.isVirtualThreadSupported()) {
+				throw new IllegalStateException("Virtual threads are not supported by this runtime");
+			}
+			configuration.setUseVirtualThreads(true);
+		} else {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("benchmark-");
+			threadFactory.setDaemon(true);
+			platformExecutor = Executors.newFixedThreadPool(poolSize, threadFactory);
+			configuration.setTaskExecutor(platformExecutor);
+		}
+		mapper = configuration.getMapper(BenchmarkMapper.class);
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		configuration.destroy();
+		if (platformExecutor != null) {
+			platformExecutor.shutdownNow();
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(FAN_OUT)
+	public int fanOut() throws Exception {
+		List<Future<Map<String, Object>>> futures = new ArrayList<Future<Map<String, Object>>>(FAN_OUT);
+		for (int i = 0; i < FAN_OUT; i++) {
+			futures.add(mapper.pingAsync());
+		}
+		int completed = 0;
+		for (Future<Map<String, Object>> future : futures) {
+			if (future.get() != null) {
+				completed++;
+			}
+		}
+		return completed;
+	}
+	
+}
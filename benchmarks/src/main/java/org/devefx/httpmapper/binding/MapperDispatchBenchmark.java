@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.benchmark.BenchmarkMapper;
+import org.devefx.httpmapper.benchmark.Benchmarks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the dispatch from a mapper interface call to its {@link MapperMethod}
+ * alone, by a {@link java.lang.reflect.Proxy} and by the generated
+ * implementation, with the execution of the method itself stubbed out.
+ * <p>
+ * Lives in the binding package to stub {@link MapperProxy#execute}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperDispatchBenchmark {
+	
+	@Param({ "proxy", "generated" })
+	public String implementation;
+	
+	private Configuration configuration;
+	
+	private BenchmarkMapper mapper;
+	
+	@Setup
+	public void setup() throws Exception {
+		configuration = Benchmarks.createConfiguration(Benchmarks.createRequestFactory());
+		MapperProxyFactory<BenchmarkMapper> factory = new MapperProxyFactory<BenchmarkMapper>(BenchmarkMapper.class);
+		MapperProxy<BenchmarkMapper> mapperProxy = new NoopMapperProxy(configuration, factory.getMethodCache());
+		if ("generated".equals(implementation)) {
+			if (!factory.generateImplementation()) {
+				throw new IllegalStateException("Could not generate " + BenchmarkMapper.class.getName());
+			}
+			mapper = factory.newGeneratedInstance(mapperProxy);
+		} else {
+			mapper = factory.newInstance(mapperProxy);
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		configuration.destroy();
+	}
+	
+	@Benchmark
+	public Object noArgs() {
+		return mapper.ping();
+	}
+	
+	@Benchmark
+	public Object twoArgs() {
+		return mapper.getUser(42L, "name,age");
+	}
+	
+	@Benchmark
+	public Object fourArgs() {
+		return mapper.createUser("devefx", 30, "devefx@163.com", true);
+	}
+	
+	private static class NoopMapperProxy extends MapperProxy<BenchmarkMapper> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		NoopMapperProxy(Configuration configuration, Map<Method, MapperMethod> methodCache) {
+			super(configuration, BenchmarkMapper.class, methodCache);
+		}
+		
+		@Override
+		Object execute(MapperMethod mapperMethod, Object[] args) {
+			return null;
+		}
+	}
+	
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.benchmark.BenchmarkMapper;
+import org.devefx.httpmapper.benchmark.Benchmarks;
+import org.devefx.httpmapper.binding.MapperMethod.ExecutionPlan;
+import org.devefx.httpmapper.binding.MapperMethod.HttpCommand;
+import org.devefx.httpmapper.binding.MapperMethod.MethodSignature;
+import org.devefx.httpmapper.http.RequestEntity;
+import org.devefx.httpmapper.metrics.MethodMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Measures how a request is built from the call arguments: URI template
+ * expansion, query string appending and form body conversion.
+ * <p>
+ * Lives in the binding package to reach {@link MapperMethod#createRequest},
+ * which is not part of the public API.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+	
+	private Configuration configuration;
+	
+	private ExecutionPlan getUserPlan;
+	
+	private MapperMethod getUser;
+	
+	private MapperMethod createUser;
+	
+	private MapperMethod createUserJson;
+	
+	private Object[] getUserArgs;
+	
+	private Object[] createUserArgs;
+	
+	private URI expandedUri;
+	
+	private MultiValueMap<String, Object> queryParams;
+	
+	@Setup
+	public void setup() throws Exception {
+		configuration = Benchmarks.createConfiguration(Benchmarks.createRequestFactory());
+		java.lang.reflect.Method getUserMethod = BenchmarkMapper.class.getMethod("getUser", long.class, String.class);
+		getUserPlan = new ExecutionPlan(configuration,
+				new HttpCommand(configuration, BenchmarkMapper.class, getUserMethod),
+				new MethodSignature(configuration, BenchmarkMapper.class, getUserMethod),
+				new MethodMetrics(BenchmarkMapper.class.getName(), getUserMethod.getName()));
+		getUser = new MapperMethod(BenchmarkMapper.class, getUserMethod, configuration);
+		createUser = new MapperMethod(BenchmarkMapper.class, BenchmarkMapper.class.getMethod("createUser",
+				String.class, int.class, String.class, boolean.class), configuration);
+		createUserJson = new MapperMethod(BenchmarkMapper.class, BenchmarkMapper.class.getMethod("createUserJson",
+				String.class, int.class, String.class, boolean.class), configuration);
+		getUserArgs = new Object[] { 42L, "name,age" };
+		createUserArgs = new Object[] { "devefx", 30, "devefx@163.com", Boolean.TRUE };
+		expandedUri = getUserPlan.expandUri(getUserArgs);
+		queryParams = new LinkedMultiValueMap<String, Object>();
+		queryParams.add("fields", "name,age");
+		queryParams.add("lang", "zh-CN");
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception {
+		configuration.destroy();
+	}
+	
+	@Benchmark
+	public URI expandUri() throws Exception {
+		return getUserPlan.expandUri(getUserArgs);
+	}
+	
+	@Benchmark
+	public URI appendQueryParams() throws Exception {
+		return getUserPlan.appendQueryParams(expandedUri, queryParams);
+	}
+	
+	@Benchmark
+	public RequestEntity getRequest() throws Exception {
+		return getUser.createRequest(getUserArgs);
+	}
+	
+	@Benchmark
+	public RequestEntity formRequest() throws Exception {
+		return createUser.createRequest(createUserArgs);
+	}
+	
+	@Benchmark
+	public RequestEntity jsonRequest() throws Exception {
+		return createUserJson.createRequest(createUserArgs);
+	}
+	
+}
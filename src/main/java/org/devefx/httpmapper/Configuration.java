@@ -16,13 +16,68 @@
 
 package org.devefx.httpmapper;
 
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import org.devefx.httpmapper.binding.MapperMethod;
 import org.devefx.httpmapper.binding.MapperRegistry;
+import org.devefx.httpmapper.bulkhead.Bulkhead;
+import org.devefx.httpmapper.bulkhead.BulkheadStats;
+import org.devefx.httpmapper.cache.CacheStats;
+import org.devefx.httpmapper.cache.HttpCacheStats;
+import org.devefx.httpmapper.cache.HttpResponseCache;
+import org.devefx.httpmapper.cache.ResponseCache;
+import org.devefx.httpmapper.circuit.CircuitBreaker;
+import org.devefx.httpmapper.circuit.CircuitBreakerStats;
+import org.devefx.httpmapper.codec.CodecRegistry;
+import org.devefx.httpmapper.http.AbortableClientHttpRequestFactory;
+import org.devefx.httpmapper.http.ConnectionPoolStats;
+import org.devefx.httpmapper.limit.ConcurrencyLimiter;
+import org.devefx.httpmapper.limit.ConcurrencyLimiterStats;
+import org.devefx.httpmapper.logging.AsyncWireLogSink;
+import org.devefx.httpmapper.logging.WireLogLevel;
+import org.devefx.httpmapper.logging.WireLogSink;
+import org.devefx.httpmapper.metrics.MetricsSnapshot;
 import org.devefx.httpmapper.spring.handler.HandlerExecutionChain;
+import org.devefx.httpmapper.spring.handler.ListenerRegistry;
 import org.devefx.httpmapper.spring.handler.MappedListener;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.PathMatcher;
+import org.devefx.httpmapper.utils.ExecutorUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -30,14 +85,83 @@ import org.springframework.web.client.RestTemplate;
  * @author Youqian Yue
  * @since 1.0
  */
-public class Configuration {
+public class Configuration implements DisposableBean, SmartInitializingSingleton {
+	
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
 	
 	protected boolean useActualParamName = true;
+	protected volatile boolean useVirtualThreads;
+	protected boolean useGeneratedMappers;
+	protected boolean eagerInitialization;
+	protected boolean warmUpMappers;
+	protected int initializationThreads = Runtime.getRuntime().availableProcessors();
+	protected Executor initializationExecutor;
+	private ExecutorService ownedInitializationExecutor;
 	protected String globalBaseUrl;
-	protected RestTemplate restTemplate;
+	protected volatile RestTemplate restTemplate;
+	private PoolingHttpClientConnectionManager connectionManager;
+	private HttpComponentsClientHttpRequestFactory requestFactory;
+	protected int maxConnectionsTotal = 200;
+	protected int maxConnectionsPerRoute = 50;
+	protected int connectTimeout;
+	protected int readTimeout;
+	protected int connectionRequestTimeout = 10000;
+	protected long keepAliveTimeout = 30000;
+	protected long maxIdleTime = 60000;
+	protected long connectionTimeToLive = -1;
+	protected volatile AsyncRestTemplate asyncRestTemplate;
+	private HttpComponentsAsyncClientHttpRequestFactory asyncRequestFactory;
+	protected volatile Executor taskExecutor;
+	private volatile ExecutorService virtualThreadExecutor;
+	protected volatile ScheduledExecutorService batchScheduler;
+	private boolean batchSchedulerOwned;
+	protected volatile Executor batchExecutor;
+	private ExecutorService ownedBatchExecutor;
+	protected long batchTimeout = 60000;
+	protected CodecRegistry codecRegistry = new CodecRegistry();
+	protected boolean registerMBeans;
+	protected WireLogLevel wireLogLevel = WireLogLevel.BASIC;
+	protected double wireLogSampleRate = 1.0;
+	protected int wireLogMaxBodyBytes = 4096;
+	protected Collection<String> wireLogRedactedHeaders = new LinkedHashSet<String>(
+			Arrays.asList("Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie"));
+	protected boolean wireLogAsync = true;
+	protected WireLogSink wireLogSink;
+	private AsyncWireLogSink ownedWireLogSink;
+	protected int retryMaxAttempts = 3;
+	protected long retryInitialBackoff = 100;
+	protected long retryMaxBackoff = 2000;
+	protected Collection<Integer> retryableStatusCodes = new LinkedHashSet<Integer>(Arrays.asList(429, 502, 503, 504));
+	protected Collection<Class<? extends Throwable>> retryableExceptions = new LinkedHashSet<Class<? extends Throwable>>(
+			Arrays.<Class<? extends Throwable>>asList(SocketException.class, SocketTimeoutException.class,
+					ConnectTimeoutException.class, NoHttpResponseException.class));
+	protected double retryBudgetRatio = 0.1;
+	protected int retryBudgetMinPerSecond = 10;
+	protected long hedgeDelay = -1;
+	protected double hedgePercentile = 0.95;
+	protected int hedgeMaxOutstanding = 10;
+	protected volatile Executor hedgeExecutor;
+	private ExecutorService ownedHedgeExecutor;
+	protected boolean circuitBreakerEnabled;
+	protected double circuitBreakerFailureRateThreshold = 0.5;
+	protected double circuitBreakerSlowCallRateThreshold = 1.0;
+	protected long circuitBreakerSlowCallDuration = 5000;
+	protected int circuitBreakerMinimumCalls = 20;
+	protected long circuitBreakerWindow = 10000;
+	protected long circuitBreakerOpenDuration = 5000;
+	protected int circuitBreakerHalfOpenCalls = 3;
+	private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+	protected Map<String, Integer> bulkheads = Collections.emptyMap();
+	protected long bulkheadMaxWait;
+	private final ConcurrentMap<String, Bulkhead> bulkheadRegistry = new ConcurrentHashMap<String, Bulkhead>();
+	protected boolean adaptiveConcurrencyEnabled;
+	protected int adaptiveConcurrencyInitialLimit = 20;
+	protected int adaptiveConcurrencyMinLimit = 2;
+	protected int adaptiveConcurrencyMaxLimit = 200;
+	protected double adaptiveConcurrencyRttTolerance = 1.5;
+	private final ConcurrentMap<String, ConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
 	
-	protected List<MappedListener> mappedListeners;
-	protected PathMatcher pathMatcher = new AntPathMatcher();
+	protected final ListenerRegistry listenerRegistry = new ListenerRegistry();
 	protected final MapperRegistry mapperRegistry = new MapperRegistry(this);
 	
 	public boolean isUseActualParamName() {
@@ -48,6 +172,111 @@ public class Configuration {
 		this.useActualParamName = useActualParamName;
 	}
 	
+	public boolean isUseVirtualThreads() {
+		return useVirtualThreads;
+	}
+	
+	/**
+	 * Runs mapper methods returning a future on a new virtual thread each, over the
+	 * blocking {@link #getRestTemplate() RestTemplate}, instead of on the
+	 * {@link #getAsyncRestTemplate() AsyncRestTemplate}. Ignored (with a warning)
+	 * if the runtime does not support virtual threads or a task executor is set.
+	 */
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		this.useVirtualThreads = useVirtualThreads;
+	}
+	
+	public boolean isUseGeneratedMappers() {
+		return useGeneratedMappers;
+	}
+	
+	/**
+	 * Implements mappers added afterwards with a class generated when they are
+	 * added, whose methods call their {@code MapperMethod} directly, instead of
+	 * with a {@link java.lang.reflect.Proxy}. The {@code MapperMethod}s of all
+	 * methods of such a mapper are then built when it is first requested.
+	 * Mappers that are not public, or return non-public types, still use a proxy.
+	 */
+	public void setUseGeneratedMappers(boolean useGeneratedMappers) {
+		this.useGeneratedMappers = useGeneratedMappers;
+	}
+	
+	public boolean isEagerInitialization() {
+		return eagerInitialization;
+	}
+	
+	/**
+	 * Builds the {@code MapperMethod}s of all methods of mappers added afterwards
+	 * right away, on the {@link #getInitializationExecutor() initialization executor},
+	 * instead of on their first call. Invalid mappings then fail when the Spring
+	 * context starts, or when {@link #awaitInitialization()} is called.
+	 */
+	public void setEagerInitialization(boolean eagerInitialization) {
+		this.eagerInitialization = eagerInitialization;
+	}
+	
+	public boolean isWarmUpMappers() {
+		return warmUpMappers;
+	}
+	
+	/**
+	 * Runs the codecs of every method once on synthetic input when it is built
+	 * eagerly, so that the first call does not create serializers and deserializers.
+	 */
+	public void setWarmUpMappers(boolean warmUpMappers) {
+		this.warmUpMappers = warmUpMappers;
+	}
+	
+	public int getInitializationThreads() {
+		return initializationThreads;
+	}
+	
+	/**
+	 * Sets the number of threads of the default initialization executor,
+	 * one per processor by default.
+	 */
+	public void setInitializationThreads(int initializationThreads) {
+		this.initializationThreads = initializationThreads;
+	}
+	
+	/**
+	 * Returns the executor building mappers eagerly. Unless one has been set, a pool
+	 * of {@link #getInitializationThreads()} daemon threads is created on first use,
+	 * whose threads end when idle, and shut down by {@link #destroy()}.
+	 */
+	public synchronized Executor getInitializationExecutor() {
+		if (initializationExecutor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("httpmapper-init-");
+			threadFactory.setDaemon(true);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(initializationThreads, initializationThreads,
+					1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+			executor.allowCoreThreadTimeOut(true);
+			initializationExecutor = executor;
+			ownedInitializationExecutor = executor;
+		}
+		return initializationExecutor;
+	}
+	
+	public synchronized void setInitializationExecutor(Executor initializationExecutor) {
+		this.initializationExecutor = initializationExecutor;
+	}
+	
+	/**
+	 * Waits until the mappers added so far have been built, see {@link #setEagerInitialization}.
+	 */
+	public void awaitInitialization() {
+		mapperRegistry.awaitInitialization();
+	}
+	
+	/**
+	 * Waits for the mappers added by the {@code MapperFactoryBean}s, so that
+	 * the context fails to start if one of them is invalid.
+	 */
+	@Override
+	public void afterSingletonsInstantiated() {
+		awaitInitialization();
+	}
+	
 	public String getGlobalBaseUrl() {
 		return globalBaseUrl;
 	}
@@ -56,7 +285,22 @@ public class Configuration {
 		this.globalBaseUrl = globalBaseUrl;
 	}
 	
+	/**
+	 * Returns the template used by mapper methods. Unless one has been set, a
+	 * template backed by a pooling HttpClient is created on first use, sized and
+	 * timed out by the connection settings of this configuration, and closed by
+	 * {@link #destroy()}.
+	 */
 	public RestTemplate getRestTemplate() {
+		RestTemplate restTemplate = this.restTemplate;
+		if (restTemplate == null) {
+			synchronized (this) {
+				if (this.restTemplate == null) {
+					this.restTemplate = new RestTemplate(createRequestFactory());
+				}
+				restTemplate = this.restTemplate;
+			}
+		}
 		return restTemplate;
 	}
 	
@@ -64,6 +308,281 @@ public class Configuration {
 		this.restTemplate = restTemplate;
 	}
 	
+	/**
+	 * Creates the request factory of the default template over a pool of
+	 * connections that are kept alive, evicted once idle or expired in the
+	 * background, and leased within the connection request timeout. Its requests
+	 * can be aborted by another thread, see {@link AbortableClientHttpRequestFactory}.
+	 */
+	protected synchronized HttpComponentsClientHttpRequestFactory createRequestFactory() {
+		PoolingHttpClientConnectionManager connectionManager =
+				new PoolingHttpClientConnectionManager(connectionTimeToLive, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maxConnectionsTotal);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		HttpClientBuilder builder = HttpClientBuilder.create()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(createKeepAliveStrategy())
+				.evictExpiredConnections();
+		if (maxIdleTime > 0) {
+			builder.evictIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+		}
+		HttpComponentsClientHttpRequestFactory requestFactory = new AbortableClientHttpRequestFactory(builder.build());
+		requestFactory.setConnectTimeout(connectTimeout);
+		requestFactory.setReadTimeout(readTimeout);
+		requestFactory.setConnectionRequestTimeout(connectionRequestTimeout);
+		this.connectionManager = connectionManager;
+		this.requestFactory = requestFactory;
+		return requestFactory;
+	}
+	
+	private ConnectionKeepAliveStrategy createKeepAliveStrategy() {
+		final long keepAliveTimeout = this.keepAliveTimeout;
+		return new ConnectionKeepAliveStrategy() {
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				// the server's Keep-Alive timeout if it sent one
+				long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+				return (duration > 0) ? duration : keepAliveTimeout;
+			}
+		};
+	}
+	
+	/**
+	 * Returns a snapshot of the connection pool of the default template, or
+	 * {@code null} if a template has been set or none was created yet.
+	 */
+	public synchronized ConnectionPoolStats getConnectionPoolStats() {
+		if (connectionManager == null) {
+			return null;
+		}
+		Map<String, PoolStats> routeStats = new TreeMap<String, PoolStats>();
+		for (HttpRoute route : connectionManager.getRoutes()) {
+			routeStats.put(route.toString(), connectionManager.getStats(route));
+		}
+		return new ConnectionPoolStats(connectionManager.getTotalStats(), routeStats);
+	}
+	
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+	
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+	
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+	
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+	
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+	
+	/**
+	 * Sets the connect timeout in milliseconds, {@code 0} for no timeout.
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+	
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+	
+	/**
+	 * Sets the socket read timeout in milliseconds, {@code 0} for no timeout.
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+	
+	public int getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+	
+	/**
+	 * Sets how long in milliseconds a call waits to lease a connection from a
+	 * saturated pool, {@code 0} to wait indefinitely.
+	 */
+	public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+	}
+	
+	public long getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+	
+	/**
+	 * Sets how long in milliseconds a connection is kept alive when the server
+	 * does not send a {@code Keep-Alive} timeout.
+	 */
+	public void setKeepAliveTimeout(long keepAliveTimeout) {
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+	
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+	
+	/**
+	 * Sets after how long in milliseconds an idle connection is closed in the
+	 * background, {@code 0} to keep idle connections.
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+	
+	public long getConnectionTimeToLive() {
+		return connectionTimeToLive;
+	}
+	
+	/**
+	 * Sets the maximum lifetime in milliseconds of pooled connections,
+	 * {@code -1} for no limit.
+	 */
+	public void setConnectionTimeToLive(long connectionTimeToLive) {
+		this.connectionTimeToLive = connectionTimeToLive;
+	}
+	
+	/**
+	 * Returns the template used by mapper methods returning a future. Unless one
+	 * has been set, a template backed by a non-blocking HttpAsyncClient with the
+	 * same connection settings as the default template is created on first use
+	 * and closed by {@link #destroy()}.
+	 */
+	public AsyncRestTemplate getAsyncRestTemplate() {
+		AsyncRestTemplate asyncRestTemplate = this.asyncRestTemplate;
+		if (asyncRestTemplate == null) {
+			synchronized (this) {
+				if (this.asyncRestTemplate == null) {
+					asyncRequestFactory = new HttpComponentsAsyncClientHttpRequestFactory(HttpAsyncClients.custom()
+							.setMaxConnTotal(maxConnectionsTotal)
+							.setMaxConnPerRoute(maxConnectionsPerRoute)
+							.setKeepAliveStrategy(createKeepAliveStrategy())
+							.build());
+					asyncRequestFactory.setConnectTimeout(connectTimeout);
+					asyncRequestFactory.setReadTimeout(readTimeout);
+					asyncRequestFactory.setConnectionRequestTimeout(connectionRequestTimeout);
+					this.asyncRestTemplate = new AsyncRestTemplate(asyncRequestFactory);
+				}
+				asyncRestTemplate = this.asyncRestTemplate;
+			}
+		}
+		return asyncRestTemplate;
+	}
+	
+	public synchronized void setAsyncRestTemplate(AsyncRestTemplate asyncRestTemplate) {
+		this.asyncRestTemplate = asyncRestTemplate;
+	}
+	
+	/**
+	 * Returns the executor running mapper methods that return a future over the
+	 * blocking {@code RestTemplate}, or {@code null} to use the {@code AsyncRestTemplate}.
+	 */
+	public Executor getTaskExecutor() {
+		Executor taskExecutor = this.taskExecutor;
+		if (taskExecutor != null || !useVirtualThreads) {
+			return taskExecutor;
+		}
+		ExecutorService virtualThreadExecutor = this.virtualThreadExecutor;
+		if (virtualThreadExecutor == null) {
+			synchronized (this) {
+				if (this.virtualThreadExecutor == null && useVirtualThreads) {
+					this.virtualThreadExecutor = ExecutorUtils.newVirtualThreadExecutor();
+					if (this.virtualThreadExecutor == null) {
+						logger.warn("Virtual threads are not supported by this runtime, using the AsyncRestTemplate.");
+						useVirtualThreads = false;
+					}
+				}
+				virtualThreadExecutor = this.virtualThreadExecutor;
+			}
+		}
+		return virtualThreadExecutor;
+	}
+	
+	public synchronized void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+	
+	/**
+	 * Returns the scheduler timing the windows of {@link org.devefx.httpmapper.annotate.Batch}
+	 * methods, the retries of methods returning a future, and the hedged requests.
+	 * Unless one has been set, a scheduler with one daemon thread per processor
+	 * is created on first use and shut down by {@link #destroy()}.
+	 */
+	public ScheduledExecutorService getBatchScheduler() {
+		ScheduledExecutorService batchScheduler = this.batchScheduler;
+		if (batchScheduler == null) {
+			synchronized (this) {
+				if (this.batchScheduler == null) {
+					CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("httpmapper-batch-");
+					threadFactory.setDaemon(true);
+					this.batchScheduler = Executors.newScheduledThreadPool(
+							Runtime.getRuntime().availableProcessors(), threadFactory);
+					batchSchedulerOwned = true;
+				}
+				batchScheduler = this.batchScheduler;
+			}
+		}
+		return batchScheduler;
+	}
+	
+	public synchronized void setBatchScheduler(ScheduledExecutorService batchScheduler) {
+		this.batchScheduler = batchScheduler;
+		this.batchSchedulerOwned = false;
+	}
+	
+	/**
+	 * Returns the executor sending the batches of {@link org.devefx.httpmapper.annotate.Batch}
+	 * methods, so that the blocking batch calls never hold the scheduler threads.
+	 * Unless one has been set, a pool of daemon threads, which end when idle, is
+	 * created on first use and shut down by {@link #destroy()}.
+	 */
+	public Executor getBatchExecutor() {
+		Executor batchExecutor = this.batchExecutor;
+		if (batchExecutor == null) {
+			synchronized (this) {
+				if (this.batchExecutor == null) {
+					CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("httpmapper-batch-send-");
+					threadFactory.setDaemon(true);
+					ownedBatchExecutor = Executors.newCachedThreadPool(threadFactory);
+					this.batchExecutor = ownedBatchExecutor;
+				}
+				batchExecutor = this.batchExecutor;
+			}
+		}
+		return batchExecutor;
+	}
+	
+	public synchronized void setBatchExecutor(Executor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+	
+	public long getBatchTimeout() {
+		return batchTimeout;
+	}
+	
+	/**
+	 * Sets the maximum time in milliseconds a blocking call of a
+	 * {@link org.devefx.httpmapper.annotate.Batch} method waits for its batch,
+	 * 60000 by default. A value of 0 or less waits indefinitely.
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+	
+	public CodecRegistry getCodecRegistry() {
+		return codecRegistry;
+	}
+	
+	public void setCodecRegistry(CodecRegistry codecRegistry) {
+		this.codecRegistry = codecRegistry;
+	}
+	
 	public MapperRegistry getMapperRegistry() {
 		return mapperRegistry;
 	}
@@ -80,22 +599,649 @@ public class Configuration {
 		return mapperRegistry.hasMapper(type);
 	}
 	
+	/**
+	 * Returns the counters of the caches of all mapper methods with a cache, keyed by method id.
+	 */
+	public Map<String, CacheStats> getCacheStats() {
+		Map<String, CacheStats> stats = new TreeMap<String, CacheStats>();
+		for (MapperMethod mapperMethod : mapperRegistry.getMapperMethods()) {
+			ResponseCache cache = mapperMethod.getResponseCache();
+			if (cache != null) {
+				stats.put(mapperMethod.getId(), cache.getStats());
+			}
+		}
+		return stats;
+	}
+	
+	/**
+	 * Returns the counters of the HTTP caches of all mapper methods with one, keyed by method id.
+	 */
+	public Map<String, HttpCacheStats> getHttpCacheStats() {
+		Map<String, HttpCacheStats> stats = new TreeMap<String, HttpCacheStats>();
+		for (MapperMethod mapperMethod : mapperRegistry.getMapperMethods()) {
+			HttpResponseCache httpCache = mapperMethod.getHttpCache();
+			if (httpCache != null) {
+				stats.put(mapperMethod.getId(), httpCache.getStats());
+			}
+		}
+		return stats;
+	}
+	
+	/**
+	 * Returns the metrics of all mapper methods called so far, keyed by method id.
+	 */
+	public Map<String, MetricsSnapshot> getMetrics() {
+		Map<String, MetricsSnapshot> metrics = new TreeMap<String, MetricsSnapshot>();
+		for (MapperMethod mapperMethod : mapperRegistry.getMapperMethods()) {
+			metrics.put(mapperMethod.getId(), mapperMethod.getMetrics().snapshot());
+		}
+		return metrics;
+	}
+	
+	public boolean isRegisterMBeans() {
+		return registerMBeans;
+	}
+	
+	/**
+	 * Registers the metrics of each mapper method with the platform MBean server
+	 * as soon as the method is built, that is on its first call or when its mapper
+	 * is {@link #setEagerInitialization initialized eagerly}, under
+	 * {@code org.devefx.httpmapper:type=MapperMethod,mapper=...,method=...}.
+	 * They are unregistered by {@link #destroy()}.
+	 */
+	public void setRegisterMBeans(boolean registerMBeans) {
+		this.registerMBeans = registerMBeans;
+	}
+	
+	public WireLogLevel getWireLogLevel() {
+		return wireLogLevel;
+	}
+	
+	/**
+	 * Sets what the wire log writes of each exchange, {@link WireLogLevel#BASIC}
+	 * by default. Exchanges are logged at INFO level to the logger
+	 * {@code org.devefx.httpmapper.wire.<mapper>.<method>}, and the level can be
+	 * overridden per mapper or method with {@link org.devefx.httpmapper.annotate.WireLog}.
+	 * The wire log settings apply to the mapper methods built afterwards.
+	 */
+	public void setWireLogLevel(WireLogLevel wireLogLevel) {
+		this.wireLogLevel = wireLogLevel;
+	}
+	
+	public double getWireLogSampleRate() {
+		return wireLogSampleRate;
+	}
+	
+	/**
+	 * Sets the fraction of the exchanges written to the wire log, between 0 and 1.
+	 */
+	public void setWireLogSampleRate(double wireLogSampleRate) {
+		this.wireLogSampleRate = wireLogSampleRate;
+	}
+	
+	public int getWireLogMaxBodyBytes() {
+		return wireLogMaxBodyBytes;
+	}
+	
+	/**
+	 * Sets the length above which logged bodies are cut, 4096 by default.
+	 */
+	public void setWireLogMaxBodyBytes(int wireLogMaxBodyBytes) {
+		this.wireLogMaxBodyBytes = wireLogMaxBodyBytes;
+	}
+	
+	public Collection<String> getWireLogRedactedHeaders() {
+		return wireLogRedactedHeaders;
+	}
+	
+	/**
+	 * Sets the headers whose values are never logged, by default
+	 * {@code Authorization}, {@code Proxy-Authorization}, {@code Cookie} and {@code Set-Cookie}.
+	 */
+	public void setWireLogRedactedHeaders(Collection<String> wireLogRedactedHeaders) {
+		this.wireLogRedactedHeaders = wireLogRedactedHeaders;
+	}
+	
+	public boolean isWireLogAsync() {
+		return wireLogAsync;
+	}
+	
+	/**
+	 * Sets whether wire log records are formatted and written on a background
+	 * thread, {@code true} by default. Ignored if a sink is set.
+	 */
+	public void setWireLogAsync(boolean wireLogAsync) {
+		this.wireLogAsync = wireLogAsync;
+	}
+	
+	/**
+	 * Returns the sink writing the wire log records, or {@code null} to write
+	 * them on the request thread. Unless one has been set, an
+	 * {@link AsyncWireLogSink} is created on first use if the wire log is
+	 * asynchronous, and destroyed by {@link #destroy()}.
+	 */
+	public synchronized WireLogSink getWireLogSink() {
+		if (wireLogSink == null && wireLogAsync) {
+			ownedWireLogSink = new AsyncWireLogSink();
+			wireLogSink = ownedWireLogSink;
+		}
+		return wireLogSink;
+	}
+	
+	public synchronized void setWireLogSink(WireLogSink wireLogSink) {
+		this.wireLogSink = wireLogSink;
+	}
+	
+	/**
+	 * Returns the number of wire log records dropped by the {@link AsyncWireLogSink}
+	 * in use, or 0 if the records are written by another sink.
+	 */
+	public synchronized long getWireLogDroppedCount() {
+		if (wireLogSink instanceof AsyncWireLogSink) {
+			return ((AsyncWireLogSink) wireLogSink).getDroppedCount();
+		}
+		return 0;
+	}
+	
+	public int getRetryMaxAttempts() {
+		return retryMaxAttempts;
+	}
+	
+	/**
+	 * Sets the maximum number of times the request of an {@link org.devefx.httpmapper.annotate.Idempotent}
+	 * method is sent when it fails with a retryable error, including the first one, 3 by default.
+	 * Set to 1 to disable retries unless a method asks for them with
+	 * {@link org.devefx.httpmapper.annotate.Retry}. The retry settings apply to the
+	 * mapper methods built afterwards.
+	 */
+	public void setRetryMaxAttempts(int retryMaxAttempts) {
+		this.retryMaxAttempts = retryMaxAttempts;
+	}
+	
+	public long getRetryInitialBackoff() {
+		return retryInitialBackoff;
+	}
+	
+	/**
+	 * Sets the upper bound in milliseconds of the random delay before the first
+	 * retry, 100 by default, doubled for every retry after it.
+	 */
+	public void setRetryInitialBackoff(long retryInitialBackoff) {
+		this.retryInitialBackoff = retryInitialBackoff;
+	}
+	
+	public long getRetryMaxBackoff() {
+		return retryMaxBackoff;
+	}
+	
+	/**
+	 * Sets the upper bound in milliseconds of the delay before any retry, 2000 by default.
+	 */
+	public void setRetryMaxBackoff(long retryMaxBackoff) {
+		this.retryMaxBackoff = retryMaxBackoff;
+	}
+	
+	public Collection<Integer> getRetryableStatusCodes() {
+		return retryableStatusCodes;
+	}
+	
+	/**
+	 * Sets the response status codes retried, by default 429, 502, 503 and 504.
+	 */
+	public void setRetryableStatusCodes(Collection<Integer> retryableStatusCodes) {
+		this.retryableStatusCodes = retryableStatusCodes;
+	}
+	
+	public Collection<Class<? extends Throwable>> getRetryableExceptions() {
+		return retryableExceptions;
+	}
+	
+	/**
+	 * Sets the exceptions retried when they cause a failure, by default those of
+	 * a connection refused, reset or timed out, and of a server closing the
+	 * connection without answering.
+	 */
+	public void setRetryableExceptions(Collection<Class<? extends Throwable>> retryableExceptions) {
+		this.retryableExceptions = retryableExceptions;
+	}
+	
+	public double getRetryBudgetRatio() {
+		return retryBudgetRatio;
+	}
+	
+	/**
+	 * Sets the retries a method may send per call, on average, 0.1 by default.
+	 * Calls failing once the budget is spent are not retried.
+	 */
+	public void setRetryBudgetRatio(double retryBudgetRatio) {
+		this.retryBudgetRatio = retryBudgetRatio;
+	}
+	
+	public int getRetryBudgetMinPerSecond() {
+		return retryBudgetMinPerSecond;
+	}
+	
+	/**
+	 * Sets the retries a method may send every second however few calls it
+	 * gets, 10 by default.
+	 */
+	public void setRetryBudgetMinPerSecond(int retryBudgetMinPerSecond) {
+		this.retryBudgetMinPerSecond = retryBudgetMinPerSecond;
+	}
+	
+	public long getHedgeDelay() {
+		return hedgeDelay;
+	}
+	
+	/**
+	 * Sets the delay in milliseconds after which a request of a {@link org.devefx.httpmapper.annotate.Hedge}
+	 * method not answered yet is sent again, or a negative value (the default) to use
+	 * the {@link #setHedgePercentile percentile} of the latencies of the method.
+	 * The hedge settings apply to the mapper methods built afterwards.
+	 */
+	public void setHedgeDelay(long hedgeDelay) {
+		this.hedgeDelay = hedgeDelay;
+	}
+	
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+	
+	/**
+	 * Sets the percentile of the observed latencies of a method used as the
+	 * hedge delay, 0.95 by default.
+	 */
+	public void setHedgePercentile(double hedgePercentile) {
+		this.hedgePercentile = hedgePercentile;
+	}
+	
+	public int getHedgeMaxOutstanding() {
+		return hedgeMaxOutstanding;
+	}
+	
+	/**
+	 * Sets the maximum number of hedged requests of a method in flight, 10 by default.
+	 */
+	public void setHedgeMaxOutstanding(int hedgeMaxOutstanding) {
+		this.hedgeMaxOutstanding = hedgeMaxOutstanding;
+	}
+	
+	/**
+	 * Returns the executor sending the hedged requests of blocking calls. Unless
+	 * one has been set, a pool of daemon threads, which end when idle, is created
+	 * on first use and shut down by {@link #destroy()}.
+	 */
+	public Executor getHedgeExecutor() {
+		Executor hedgeExecutor = this.hedgeExecutor;
+		if (hedgeExecutor == null) {
+			synchronized (this) {
+				if (this.hedgeExecutor == null) {
+					CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("httpmapper-hedge-");
+					threadFactory.setDaemon(true);
+					ownedHedgeExecutor = Executors.newCachedThreadPool(threadFactory);
+					this.hedgeExecutor = ownedHedgeExecutor;
+				}
+				hedgeExecutor = this.hedgeExecutor;
+			}
+		}
+		return hedgeExecutor;
+	}
+	
+	public synchronized void setHedgeExecutor(Executor hedgeExecutor) {
+		this.hedgeExecutor = hedgeExecutor;
+	}
+	
+	public boolean isCircuitBreakerEnabled() {
+		return circuitBreakerEnabled;
+	}
+	
+	/**
+	 * Guards the calls of all mapper methods built afterwards with a {@link CircuitBreaker}
+	 * per base URL, that of their {@link org.devefx.httpmapper.annotate.Bean} or the global one.
+	 * Methods can have a breaker of their own, or none, with
+	 * {@link org.devefx.httpmapper.annotate.CircuitBreaker}. An open breaker fails calls
+	 * with a {@link org.devefx.httpmapper.circuit.CircuitBreakerOpenException}.
+	 */
+	public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+		this.circuitBreakerEnabled = circuitBreakerEnabled;
+	}
+	
+	public double getCircuitBreakerFailureRateThreshold() {
+		return circuitBreakerFailureRateThreshold;
+	}
+	
+	/**
+	 * Sets the rate of failures in the window opening a breaker, 0.5 by default.
+	 */
+	public void setCircuitBreakerFailureRateThreshold(double circuitBreakerFailureRateThreshold) {
+		this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+	}
+	
+	public double getCircuitBreakerSlowCallRateThreshold() {
+		return circuitBreakerSlowCallRateThreshold;
+	}
+	
+	/**
+	 * Sets the rate of slow calls in the window opening a breaker, 1.0 by default.
+	 */
+	public void setCircuitBreakerSlowCallRateThreshold(double circuitBreakerSlowCallRateThreshold) {
+		this.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
+	}
+	
+	public long getCircuitBreakerSlowCallDuration() {
+		return circuitBreakerSlowCallDuration;
+	}
+	
+	/**
+	 * Sets the duration in milliseconds from which a call is slow, 5000 by default.
+	 */
+	public void setCircuitBreakerSlowCallDuration(long circuitBreakerSlowCallDuration) {
+		this.circuitBreakerSlowCallDuration = circuitBreakerSlowCallDuration;
+	}
+	
+	public int getCircuitBreakerMinimumCalls() {
+		return circuitBreakerMinimumCalls;
+	}
+	
+	/**
+	 * Sets the number of calls to complete in the window before a breaker
+	 * looks at the rates, 20 by default.
+	 */
+	public void setCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+		this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+	}
+	
+	public long getCircuitBreakerWindow() {
+		return circuitBreakerWindow;
+	}
+	
+	/**
+	 * Sets the duration in milliseconds of the sliding window of a breaker, 10000 by default.
+	 */
+	public void setCircuitBreakerWindow(long circuitBreakerWindow) {
+		this.circuitBreakerWindow = circuitBreakerWindow;
+	}
+	
+	public long getCircuitBreakerOpenDuration() {
+		return circuitBreakerOpenDuration;
+	}
+	
+	/**
+	 * Sets the time in milliseconds an open breaker rejects all calls, 5000 by default.
+	 */
+	public void setCircuitBreakerOpenDuration(long circuitBreakerOpenDuration) {
+		this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+	}
+	
+	public int getCircuitBreakerHalfOpenCalls() {
+		return circuitBreakerHalfOpenCalls;
+	}
+	
+	/**
+	 * Sets the number of probing calls a half-open breaker lets through, 3 by default.
+	 */
+	public void setCircuitBreakerHalfOpenCalls(int circuitBreakerHalfOpenCalls) {
+		this.circuitBreakerHalfOpenCalls = circuitBreakerHalfOpenCalls;
+	}
+	
+	/**
+	 * Returns the circuit breaker shared by the mapper methods calling the given
+	 * base URL, created with the settings of this configuration on first use.
+	 */
+	public CircuitBreaker getCircuitBreaker(String baseUrl) {
+		CircuitBreaker circuitBreaker = circuitBreakers.get(baseUrl);
+		if (circuitBreaker == null) {
+			circuitBreaker = new CircuitBreaker(baseUrl, circuitBreakerFailureRateThreshold,
+					circuitBreakerSlowCallRateThreshold, circuitBreakerSlowCallDuration, circuitBreakerMinimumCalls,
+					circuitBreakerWindow, circuitBreakerOpenDuration, circuitBreakerHalfOpenCalls);
+			CircuitBreaker existing = circuitBreakers.putIfAbsent(baseUrl, circuitBreaker);
+			if (existing != null) {
+				circuitBreaker = existing;
+			}
+		}
+		return circuitBreaker;
+	}
+	
+	/**
+	 * Returns the state and counters of the circuit breakers of all mapper methods
+	 * built so far, keyed by base URL, or by method id for those of their own.
+	 */
+	public Map<String, CircuitBreakerStats> getCircuitBreakerStats() {
+		Map<String, CircuitBreakerStats> stats = new TreeMap<String, CircuitBreakerStats>();
+		for (CircuitBreaker circuitBreaker : circuitBreakers.values()) {
+			stats.put(circuitBreaker.getName(), circuitBreaker.getStats());
+		}
+		for (MapperMethod mapperMethod : mapperRegistry.getMapperMethods()) {
+			CircuitBreaker circuitBreaker = mapperMethod.getCircuitBreaker();
+			if (circuitBreaker != null && !stats.containsKey(circuitBreaker.getName())) {
+				stats.put(circuitBreaker.getName(), circuitBreaker.getStats());
+			}
+		}
+		return stats;
+	}
+	
+	public Map<String, Integer> getBulkheads() {
+		return bulkheads;
+	}
+	
+	/**
+	 * Sets the maximum number of calls in flight of mappers, keyed by the name of
+	 * their interface, for all its methods together, or by method id, such as
+	 * {@code com.example.PartnerMapper.getOrder}, for a single method. They apply
+	 * to the mapper methods built afterwards, and take precedence over the caps of
+	 * {@link org.devefx.httpmapper.annotate.Bulkhead} annotations. None by default.
+	 */
+	public void setBulkheads(Map<String, Integer> bulkheads) {
+		this.bulkheads = (bulkheads != null) ? bulkheads : Collections.<String, Integer>emptyMap();
+	}
+	
+	public long getBulkheadMaxWait() {
+		return bulkheadMaxWait;
+	}
+	
+	/**
+	 * Sets the time in milliseconds a blocking call may wait for a permit of a full
+	 * bulkhead before it is rejected, 0 by default: calls over the cap are rejected
+	 * at once. Calls returning a future or a publisher are always rejected at once,
+	 * so that no scheduler or I/O thread is parked.
+	 */
+	public void setBulkheadMaxWait(long bulkheadMaxWait) {
+		this.bulkheadMaxWait = bulkheadMaxWait;
+	}
+	
+	/**
+	 * Returns the bulkhead of the given name, that of a mapper interface or method,
+	 * created with the given settings on first use.
+	 */
+	public Bulkhead getBulkhead(String name, int maxConcurrentCalls, long maxWait) {
+		Bulkhead bulkhead = bulkheadRegistry.get(name);
+		if (bulkhead == null) {
+			bulkhead = new Bulkhead(name, maxConcurrentCalls, maxWait);
+			Bulkhead existing = bulkheadRegistry.putIfAbsent(name, bulkhead);
+			if (existing != null) {
+				bulkhead = existing;
+			}
+		}
+		return bulkhead;
+	}
+	
+	/**
+	 * Returns the calls in flight and the rejected calls of all bulkheads, keyed
+	 * by the mapper interface or method they guard.
+	 */
+	public Map<String, BulkheadStats> getBulkheadStats() {
+		Map<String, BulkheadStats> stats = new TreeMap<String, BulkheadStats>();
+		for (Bulkhead bulkhead : bulkheadRegistry.values()) {
+			stats.put(bulkhead.getName(), bulkhead.getStats());
+		}
+		return stats;
+	}
+	
+	public boolean isAdaptiveConcurrencyEnabled() {
+		return adaptiveConcurrencyEnabled;
+	}
+	
+	/**
+	 * Limits the calls in flight of all mapper methods built afterwards per host
+	 * of their expanded URL, with a {@link ConcurrencyLimiter} learning the limit
+	 * from the round-trip times. Calls over the limit fail with a
+	 * {@link org.devefx.httpmapper.limit.ConcurrencyLimitExceededException} before
+	 * they take a connection.
+	 */
+	public void setAdaptiveConcurrencyEnabled(boolean adaptiveConcurrencyEnabled) {
+		this.adaptiveConcurrencyEnabled = adaptiveConcurrencyEnabled;
+	}
+	
+	public int getAdaptiveConcurrencyInitialLimit() {
+		return adaptiveConcurrencyInitialLimit;
+	}
+	
+	/**
+	 * Sets the limit of a host until its first round trips are seen, 20 by default.
+	 */
+	public void setAdaptiveConcurrencyInitialLimit(int adaptiveConcurrencyInitialLimit) {
+		this.adaptiveConcurrencyInitialLimit = adaptiveConcurrencyInitialLimit;
+	}
+	
+	public int getAdaptiveConcurrencyMinLimit() {
+		return adaptiveConcurrencyMinLimit;
+	}
+	
+	/**
+	 * Sets the lowest limit of a host, 2 by default.
+	 */
+	public void setAdaptiveConcurrencyMinLimit(int adaptiveConcurrencyMinLimit) {
+		this.adaptiveConcurrencyMinLimit = adaptiveConcurrencyMinLimit;
+	}
+	
+	public int getAdaptiveConcurrencyMaxLimit() {
+		return adaptiveConcurrencyMaxLimit;
+	}
+	
+	/**
+	 * Sets the highest limit of a host, 200 by default. There is no point in it
+	 * exceeding the connections per route of the connection pool.
+	 */
+	public void setAdaptiveConcurrencyMaxLimit(int adaptiveConcurrencyMaxLimit) {
+		this.adaptiveConcurrencyMaxLimit = adaptiveConcurrencyMaxLimit;
+	}
+	
+	public double getAdaptiveConcurrencyRttTolerance() {
+		return adaptiveConcurrencyRttTolerance;
+	}
+	
+	/**
+	 * Sets how many times the round-trip time of an unloaded host calls may take
+	 * before its limit shrinks, 1.5 by default.
+	 */
+	public void setAdaptiveConcurrencyRttTolerance(double adaptiveConcurrencyRttTolerance) {
+		this.adaptiveConcurrencyRttTolerance = adaptiveConcurrencyRttTolerance;
+	}
+	
+	/**
+	 * Returns the limiter shared by the calls to the given host, created with the
+	 * settings of this configuration on first use.
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter(String host) {
+		ConcurrencyLimiter limiter = concurrencyLimiters.get(host);
+		if (limiter == null) {
+			limiter = new ConcurrencyLimiter(host, adaptiveConcurrencyInitialLimit, adaptiveConcurrencyMinLimit,
+					adaptiveConcurrencyMaxLimit, adaptiveConcurrencyRttTolerance);
+			ConcurrencyLimiter existing = concurrencyLimiters.putIfAbsent(host, limiter);
+			if (existing != null) {
+				limiter = existing;
+			}
+		}
+		return limiter;
+	}
+	
+	/**
+	 * Returns the current limit, the round-trip time estimates and the counters
+	 * of the limiters of all hosts called so far, keyed by host.
+	 */
+	public Map<String, ConcurrencyLimiterStats> getConcurrencyLimiterStats() {
+		Map<String, ConcurrencyLimiterStats> stats = new TreeMap<String, ConcurrencyLimiterStats>();
+		for (ConcurrencyLimiter limiter : concurrencyLimiters.values()) {
+			stats.put(limiter.getName(), limiter.getStats());
+		}
+		return stats;
+	}
+	
+	/**
+	 * Returns the registry of the listeners, through which they can also be
+	 * added or removed while mappers are in use.
+	 */
+	public ListenerRegistry getListenerRegistry() {
+		return listenerRegistry;
+	}
+	
 	public void setMappedListeners(List<MappedListener> mappedListeners) {
-		this.mappedListeners = mappedListeners;
+		listenerRegistry.setMappedListeners(mappedListeners);
 	}
 	
 	protected final MappedListener[] getMappedListeners() {
-		int count = this.mappedListeners.size();
-		return (count > 0 ? this.mappedListeners.toArray(new MappedListener[count]) : null);
+		List<MappedListener> mappedListeners = listenerRegistry.getMappedListeners();
+		int count = mappedListeners.size();
+		return (count > 0 ? mappedListeners.toArray(new MappedListener[count]) : null);
 	}
 	
 	public HandlerExecutionChain getHandlerExecutionChain(String lookupPath) {
-		HandlerExecutionChain chain = new HandlerExecutionChain();
-		for (MappedListener mappedListener : this.mappedListeners) {
-			if (mappedListener.matches(lookupPath, this.pathMatcher)) {
-				chain.addListener(mappedListener.getListener());
+		return listenerRegistry.getHandlerExecutionChain(lookupPath);
+	}
+	
+	@Override
+	public synchronized void destroy() throws Exception {
+		for (MapperMethod mapperMethod : mapperRegistry.getMapperMethods()) {
+			mapperMethod.getMetrics().unregisterMBean();
+		}
+		if (requestFactory != null) {
+			requestFactory.destroy();
+			if (restTemplate != null && restTemplate.getRequestFactory() == requestFactory) {
+				restTemplate = null;
+			}
+			requestFactory = null;
+			connectionManager = null;
+		}
+		if (asyncRequestFactory != null) {
+			asyncRequestFactory.destroy();
+			asyncRequestFactory = null;
+			asyncRestTemplate = null;
+		}
+		if (virtualThreadExecutor != null) {
+			virtualThreadExecutor.shutdown();
+			virtualThreadExecutor = null;
+		}
+		if (batchScheduler != null && batchSchedulerOwned) {
+			batchScheduler.shutdown();
+			batchScheduler = null;
+		}
+		if (ownedBatchExecutor != null) {
+			ownedBatchExecutor.shutdown();
+			if (batchExecutor == ownedBatchExecutor) {
+				batchExecutor = null;
+			}
+			ownedBatchExecutor = null;
+		}
+		if (ownedInitializationExecutor != null) {
+			ownedInitializationExecutor.shutdown();
+			if (initializationExecutor == ownedInitializationExecutor) {
+				initializationExecutor = null;
+			}
+			ownedInitializationExecutor = null;
+		}
+		if (ownedHedgeExecutor != null) {
+			ownedHedgeExecutor.shutdown();
+			if (hedgeExecutor == ownedHedgeExecutor) {
+				hedgeExecutor = null;
+			}
+			ownedHedgeExecutor = null;
+		}
+		if (ownedWireLogSink != null) {
+			ownedWireLogSink.destroy();
+			if (wireLogSink == ownedWireLogSink) {
+				wireLogSink = null;
 			}
+			ownedWireLogSink = null;
 		}
-		return chain;
 	}
 }
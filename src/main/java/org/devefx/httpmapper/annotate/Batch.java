@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges calls of a single-item mapper method into calls of a batch method
+ * of the same interface. Calls arriving within {@link #window()} of the first
+ * one, up to {@link #maxSize()} distinct keys, are sent as one request and
+ * each caller gets its own item of the response.
+ * <p>
+ * The annotated method takes the key as its only parameter. The batch method
+ * takes all keys as its only parameter, declared as an array, a collection or
+ * a {@code String} (the keys joined with {@link #separator()}, as for
+ * {@code /users?ids=1,2,3}), and returns either a map by key or a list or
+ * array of items, matched to the keys by their {@link #resultKey()} property
+ * or, if none is set, by position.
+ * <pre>
+ * &#64;Method("/users/{id}")
+ * &#64;Batch("findByIds")
+ * User findById(&#64;Param("id") long id);
+ * 
+ * &#64;Method("/users")
+ * List&lt;User&gt; findByIds(&#64;Param("ids") String ids);
+ * </pre>
+ * The listeners only see the requests of the batch method.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Batch {
+	
+	/**
+	 * The name of the batch method.
+	 */
+	String value();
+	
+	/**
+	 * How long a batch waits for more calls after the first one.
+	 */
+	long window() default 10;
+	
+	TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+	
+	/**
+	 * The maximum number of distinct keys per batch, a full batch is sent at once.
+	 */
+	int maxSize() default 100;
+	
+	/**
+	 * The property of the returned items holding their key, empty to match
+	 * the items to the keys by position.
+	 */
+	String resultKey() default "";
+	
+	/**
+	 * The separator of the keys passed to a batch method taking a {@code String}.
+	 */
+	String separator() default ",";
+	
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caps the calls in flight of a mapper, so that a slow partner cannot take all
+ * the pooled connections: on a {@link Bean} interface the cap applies to the
+ * calls of all its methods together, on a method to the calls of that method.
+ * A method of an interface with a bulkhead may have one of its own, a call
+ * then needs a permit from both. Calls over the cap fail with a
+ * {@link org.devefx.httpmapper.bulkhead.BulkheadFullException}.
+ * <p>
+ * The caps can also be set, or overridden, by the
+ * {@link org.devefx.httpmapper.Configuration#setBulkheads configuration}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Bulkhead {
+	
+	/**
+	 * The maximum number of calls in flight.
+	 */
+	int value();
+	
+	/**
+	 * The time in milliseconds a blocking call may wait for a permit when the cap
+	 * is reached. Calls returning a future or a publisher never wait. A negative
+	 * value keeps the setting of the configuration.
+	 */
+	long maxWait() default -1;
+	
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.cache.EvictionPolicy;
+
+/**
+ * Caches the decoded results of a mapper method in memory, keyed by the
+ * method arguments. Cache hits skip the listeners and the HTTP exchange,
+ * and all callers hitting the same entry get the same instance.
+ * <p>
+ * May be declared on a {@link Bean} interface or on a method, the latter
+ * taking precedence. Methods returning nothing or a publisher are never cached.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Cached {
+	
+	/**
+	 * How long a result stays cached after it was fetched.
+	 */
+	long ttl() default 60;
+	
+	TimeUnit timeUnit() default TimeUnit.SECONDS;
+	
+	/**
+	 * The maximum number of cached results of the method.
+	 */
+	int maximumSize() default 1000;
+	
+	EvictionPolicy eviction() default EvictionPolicy.TINY_LFU;
+	
+	/**
+	 * Set to {@code false} on a method to opt out of an interface-level cache.
+	 */
+	boolean enabled() default true;
+	
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Gives a mapper method a circuit breaker of its own, instead of the one
+ * shared by all methods calling the same base URL, e.g. for an endpoint that
+ * is slower or fails more often than the others. On an interface, every
+ * method gets a breaker of its own.
+ * <p>
+ * May be declared on a {@link Bean} interface or on a method, the latter
+ * taking precedence. Negative values keep the setting of the
+ * {@link org.devefx.httpmapper.Configuration}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ * @see org.devefx.httpmapper.circuit.CircuitBreaker
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface CircuitBreaker {
+	
+	/**
+	 * The rate of failures opening the breaker, between 0 and 1.
+	 */
+	double failureRateThreshold() default -1;
+	
+	/**
+	 * The rate of slow calls opening the breaker, between 0 and 1.
+	 */
+	double slowCallRateThreshold() default -1;
+	
+	/**
+	 * The duration in milliseconds from which a call is slow.
+	 */
+	long slowCallDuration() default -1;
+	
+	/**
+	 * The number of calls to complete in the window before the rates are looked at.
+	 */
+	int minimumCalls() default -1;
+	
+	/**
+	 * The duration in milliseconds of the sliding window.
+	 */
+	long window() default -1;
+	
+	/**
+	 * The time in milliseconds the breaker stays open before letting probing calls through.
+	 */
+	long openDuration() default -1;
+	
+	/**
+	 * The number of probing calls to let through, all of which must succeed to close the breaker.
+	 */
+	int halfOpenCalls() default -1;
+	
+	/**
+	 * Set to {@code false} to send the calls without any circuit breaker.
+	 */
+	boolean enabled() default true;
+	
+}
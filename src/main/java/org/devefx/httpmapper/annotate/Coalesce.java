@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Coalesces identical GET calls: while a call with the same expanded URL and
+ * headers is in flight, later callers wait for its result instead of sending
+ * the same request again. They all get the same returned instance.
+ * <p>
+ * May be declared on a {@link Bean} interface or on a method, the latter
+ * taking precedence. Only applies to calls sent with the GET method. Only the
+ * call actually sent takes the permits of the bulkheads, the concurrency limiter
+ * and the circuit breaker. Methods returning a future share the call too, each
+ * caller getting its own future. Methods returning a publisher cannot be
+ * coalesced, and must be annotated with {@code @Coalesce(false)} in an
+ * interface that is.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Coalesce {
+	
+	boolean value() default true;
+	
+}
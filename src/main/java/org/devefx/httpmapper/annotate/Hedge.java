@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Hedges the requests of an {@link Idempotent} mapper method: when a request
+ * has not been answered after a delay, an identical one is sent, the first
+ * response is returned and the other request is aborted. The listeners see
+ * the request once, and the response returned.
+ * <p>
+ * May be declared on a {@link Bean} interface or on a method, the latter
+ * taking precedence. Methods that are not idempotent or return a publisher are
+ * never hedged. Negative values keep the setting of the configuration.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Hedge {
+	
+	/**
+	 * The delay in milliseconds before sending the second request.
+	 */
+	long delay() default -1;
+	
+	/**
+	 * The percentile of the observed latencies of the method used as the delay
+	 * when none is set, between 0 and 1.
+	 */
+	double percentile() default -1;
+	
+	/**
+	 * The maximum number of hedged requests of the method in flight.
+	 */
+	int maxOutstanding() default -1;
+	
+	/**
+	 * Set to {@code false} on a method to opt out of an interface-level hedge.
+	 */
+	boolean enabled() default true;
+	
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides the retry settings of the {@link org.devefx.httpmapper.Configuration}
+ * for an {@link Idempotent} mapper method. Every retry builds the request again
+ * and calls the listeners again.
+ * <p>
+ * May be declared on a {@link Bean} interface or on a method, the latter
+ * taking precedence. Negative values keep the setting of the configuration.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Retry {
+	
+	/**
+	 * The maximum number of times the request is sent, including the first one.
+	 */
+	int maxAttempts() default -1;
+	
+	/**
+	 * The upper bound in milliseconds of the delay before the first retry,
+	 * doubled for every retry after it.
+	 */
+	long initialBackoff() default -1;
+	
+	/**
+	 * The upper bound in milliseconds of the delay before any retry.
+	 */
+	long maxBackoff() default -1;
+	
+	/**
+	 * The response status codes to retry on, or none to use those of the configuration.
+	 */
+	int[] retryOn() default {};
+	
+	/**
+	 * Set to {@code false} on a method to opt out of retries.
+	 */
+	boolean enabled() default true;
+	
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.annotate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.devefx.httpmapper.logging.WireLogLevel;
+
+/**
+ * Overrides the wire log settings of the {@link org.devefx.httpmapper.Configuration}
+ * for the exchanges of a mapper method, e.g. to log the bodies of one method
+ * only, or to silence a chatty one.
+ * <p>
+ * May be declared on a {@link Bean} interface or on a method, the latter
+ * taking precedence.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface WireLog {
+	
+	/**
+	 * What to log of each exchange.
+	 */
+	WireLogLevel value();
+	
+	/**
+	 * The fraction of the exchanges to log, between 0 and 1. Negative values
+	 * keep the sample rate of the configuration.
+	 */
+	double sampleRate() default -1;
+	
+}
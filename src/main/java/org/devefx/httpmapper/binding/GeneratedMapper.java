@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * The superclass of the mapper implementations generated by
+ * {@link MapperClassGenerator}. Each generated method passes its index and
+ * arguments to {@link #invoke}, which runs the {@link MapperMethod} built for
+ * it without looking it up.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public abstract class GeneratedMapper {
+	
+	private final MapperProxy<?> mapperProxy;
+	
+	private final Method[] methods;
+	
+	private final MapperMethod[] mapperMethods;
+	
+	protected GeneratedMapper(MapperProxy<?> mapperProxy, Method[] methods, MapperMethod[] mapperMethods) {
+		this.mapperProxy = mapperProxy;
+		this.methods = methods;
+		this.mapperMethods = mapperMethods;
+	}
+	
+	/**
+	 * Runs a call of the method at the given index. Checked exceptions the method
+	 * does not declare are wrapped, as a {@link java.lang.reflect.Proxy} would.
+	 */
+	protected final Object invoke(int index, Object[] args) {
+		try {
+			return mapperProxy.execute(mapperMethods[index], args);
+		} catch (RuntimeException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			for (Class<?> exceptionType : methods[index].getExceptionTypes()) {
+				if (exceptionType.isInstance(ex)) {
+					throw GeneratedMapper.<RuntimeException>sneakyThrow(ex);
+				}
+			}
+			throw new UndeclaredThrowableException(ex);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <E extends Exception> E sneakyThrow(Exception ex) throws E {
+		throw (E) ex;
+	}
+	
+	@Override
+	public String toString() {
+		return "Generated mapper for " + mapperProxy.getMapperInterface().getName();
+	}
+	
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+/**
+ * Generates a class implementing a mapper interface, whose methods box their
+ * arguments and call {@link GeneratedMapper#invoke} with a constant index, in
+ * place of the {@link java.lang.reflect.Proxy} dispatch through
+ * {@link MapperProxy#invoke}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public abstract class MapperClassGenerator {
+	
+	private static final String SUPER_NAME = Type.getInternalName(GeneratedMapper.class);
+	
+	private static final String CONSTRUCTOR_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE,
+			Type.getType(MapperProxy.class), Type.getType(Method[].class), Type.getType(MapperMethod[].class));
+	
+	private static final String INVOKE_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(Object.class),
+			Type.INT_TYPE, Type.getType(Object[].class));
+	
+	/**
+	 * Returns the methods of the interface to implement, those a proxy would
+	 * dispatch to a {@link MapperMethod}, one per signature.
+	 */
+	public static Method[] getMapperMethods(Class<?> mapperInterface) {
+		List<Method> methods = new ArrayList<Method>();
+		Set<String> signatures = new HashSet<String>();
+		for (Method method : mapperInterface.getMethods()) {
+			if (!Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method)) {
+				continue;
+			}
+			if (signatures.add(method.getName() + Type.getMethodDescriptor(method))) {
+				methods.add(method);
+			}
+		}
+		return methods.toArray(new Method[methods.size()]);
+	}
+	
+	/**
+	 * Returns whether a class implementing the interface can be defined outside
+	 * of its package: the interface and the classes its methods return must be public.
+	 */
+	public static boolean isSupported(Class<?> mapperInterface, Method[] methods) {
+		if (!isPublic(mapperInterface)) {
+			return false;
+		}
+		for (Method method : methods) {
+			if (!isPublic(method.getReturnType())) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Generates and defines the implementation of the interface, whose constructor
+	 * takes the proxy running the calls, the methods and their {@code MapperMethod}s.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Class<? extends GeneratedMapper> generate(Class<?> mapperInterface, Method[] methods) {
+		String className = mapperInterface.getName() + "$$GeneratedMapper";
+		byte[] bytecode = generateBytecode(className.replace('.', '/'), mapperInterface, methods);
+		GeneratedClassLoader classLoader = new GeneratedClassLoader(mapperInterface.getClassLoader());
+		return (Class<? extends GeneratedMapper>) classLoader.define(className, bytecode,
+				mapperInterface.getProtectionDomain());
+	}
+	
+	private static byte[] generateBytecode(String internalName, Class<?> mapperInterface, Method[] methods) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC,
+				internalName, null, SUPER_NAME, new String[] { Type.getInternalName(mapperInterface) });
+		
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitVarInsn(Opcodes.ALOAD, 2);
+		mv.visitVarInsn(Opcodes.ALOAD, 3);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER_NAME, "<init>", CONSTRUCTOR_DESCRIPTOR, false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		
+		for (int i = 0; i < methods.length; i++) {
+			generateMethod(cw, internalName, methods[i], i);
+		}
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+	
+	private static void generateMethod(ClassWriter cw, String internalName, Method method, int index) {
+		Type[] argumentTypes = Type.getArgumentTypes(method);
+		Type returnType = Type.getReturnType(method);
+		String[] exceptions = new String[method.getExceptionTypes().length];
+		for (int i = 0; i < exceptions.length; i++) {
+			exceptions[i] = Type.getInternalName(method.getExceptionTypes()[i]);
+		}
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, method.getName(),
+				Type.getMethodDescriptor(method), null, exceptions);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		pushInt(mv, index);
+		if (argumentTypes.length == 0) {
+			// a proxy passes no array either
+			mv.visitInsn(Opcodes.ACONST_NULL);
+		} else {
+			pushInt(mv, argumentTypes.length);
+			mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+			int slot = 1;
+			for (int i = 0; i < argumentTypes.length; i++) {
+				Type argumentType = argumentTypes[i];
+				mv.visitInsn(Opcodes.DUP);
+				pushInt(mv, i);
+				mv.visitVarInsn(argumentType.getOpcode(Opcodes.ILOAD), slot);
+				box(mv, argumentType);
+				mv.visitInsn(Opcodes.AASTORE);
+				slot += argumentType.getSize();
+			}
+		}
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, internalName, "invoke", INVOKE_DESCRIPTOR, false);
+		if (returnType.getSort() == Type.VOID) {
+			mv.visitInsn(Opcodes.POP);
+			mv.visitInsn(Opcodes.RETURN);
+		} else {
+			unbox(mv, returnType);
+			mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+		}
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+	
+	private static void pushInt(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(Opcodes.ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(Opcodes.BIPUSH, value);
+		} else if (value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(Opcodes.SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+	
+	private static void box(MethodVisitor mv, Type type) {
+		Type wrapperType = getWrapperType(type);
+		if (wrapperType != null) {
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapperType.getInternalName(), "valueOf",
+					Type.getMethodDescriptor(wrapperType, type), false);
+		}
+	}
+	
+	private static void unbox(MethodVisitor mv, Type type) {
+		Type wrapperType = getWrapperType(type);
+		if (wrapperType != null) {
+			mv.visitTypeInsn(Opcodes.CHECKCAST, wrapperType.getInternalName());
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapperType.getInternalName(),
+					type.getClassName() + "Value", Type.getMethodDescriptor(type), false);
+		} else if (!"java/lang/Object".equals(type.getInternalName())) {
+			mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+		}
+	}
+	
+	private static Type getWrapperType(Type type) {
+		switch (type.getSort()) {
+			case Type.BOOLEAN:
+				return Type.getType(Boolean.class);
+			case Type.CHAR:
+				return Type.getType(Character.class);
+			case Type.BYTE:
+				return Type.getType(Byte.class);
+			case Type.SHORT:
+				return Type.getType(Short.class);
+			case Type.INT:
+				return Type.getType(Integer.class);
+			case Type.FLOAT:
+				return Type.getType(Float.class);
+			case Type.LONG:
+				return Type.getType(Long.class);
+			case Type.DOUBLE:
+				return Type.getType(Double.class);
+			default:
+				return null;
+		}
+	}
+	
+	private static boolean isObjectMethod(Method method) {
+		try {
+			Object.class.getMethod(method.getName(), method.getParameterTypes());
+			return true;
+		} catch (NoSuchMethodException ex) {
+			return false;
+		}
+	}
+	
+	private static boolean isPublic(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+	}
+	
+	/**
+	 * Defines each generated class in its own loader, a child of the loader of
+	 * the interface that can also see {@link GeneratedMapper}.
+	 */
+	private static final class GeneratedClassLoader extends ClassLoader {
+		
+		GeneratedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+		
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			return Class.forName(name, false, GeneratedMapper.class.getClassLoader());
+		}
+		
+		Class<?> define(String name, byte[] bytecode, ProtectionDomain protectionDomain) {
+			return defineClass(name, bytecode, 0, bytecode.length, protectionDomain);
+		}
+	}
+	
+}
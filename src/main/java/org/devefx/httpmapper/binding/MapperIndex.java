@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks up the mapper implementations generated at compile time by the
+ * {@link org.devefx.httpmapper.processor.MapperProcessor}, listed by every jar or
+ * output folder in {@value #INDEX_LOCATION} as {@code interface=implementation}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public abstract class MapperIndex {
+	
+	public static final String INDEX_LOCATION = "META-INF/httpmapper/mappers";
+	
+	private static final Logger logger = LoggerFactory.getLogger(MapperIndex.class);
+	
+	private static final Map<ClassLoader, Properties> indexCache = new WeakHashMap<ClassLoader, Properties>();
+	
+	/**
+	 * Returns the compiled implementation of the mapper interface, or {@code null} if there is none.
+	 */
+	public static Class<? extends GeneratedMapper> findImplementation(Class<?> mapperInterface) {
+		ClassLoader classLoader = mapperInterface.getClassLoader();
+		if (classLoader == null) {
+			return null;
+		}
+		String implementationName = getIndex(classLoader).getProperty(mapperInterface.getName());
+		if (implementationName == null) {
+			return null;
+		}
+		try {
+			Class<?> implementationClass = Class.forName(implementationName, false, classLoader);
+			if (GeneratedMapper.class.isAssignableFrom(implementationClass)
+					&& mapperInterface.isAssignableFrom(implementationClass)) {
+				return implementationClass.asSubclass(GeneratedMapper.class);
+			}
+			logger.warn("Ignoring {} listed in {}, it does not implement mapper {}.",
+					implementationName, INDEX_LOCATION, mapperInterface.getName());
+		} catch (ClassNotFoundException ex) {
+			logger.warn("Ignoring {} listed in {}, the class was not found.", implementationName, INDEX_LOCATION);
+		}
+		return null;
+	}
+	
+	private static Properties getIndex(ClassLoader classLoader) {
+		synchronized (indexCache) {
+			Properties index = indexCache.get(classLoader);
+			if (index == null) {
+				index = loadIndex(classLoader);
+				indexCache.put(classLoader, index);
+			}
+			return index;
+		}
+	}
+	
+	private static Properties loadIndex(ClassLoader classLoader) {
+		Properties index = new Properties();
+		try {
+			Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				InputStream in = url.openStream();
+				try {
+					index.load(in);
+				} finally {
+					in.close();
+				}
+			}
+		} catch (IOException ex) {
+			logger.warn("Could not read the mapper index " + INDEX_LOCATION + ", using proxies.", ex);
+		}
+		return index;
+	}
+	
+}
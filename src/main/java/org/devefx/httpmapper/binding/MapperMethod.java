@@ -16,41 +16,94 @@
 
 package org.devefx.httpmapper.binding;
 
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.devefx.httpmapper.Configuration;
 import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Cached;
+import org.devefx.httpmapper.annotate.Coalesce;
+import org.devefx.httpmapper.annotate.Hedge;
+import org.devefx.httpmapper.annotate.HttpCache;
+import org.devefx.httpmapper.annotate.Idempotent;
+import org.devefx.httpmapper.annotate.Retry;
+import org.devefx.httpmapper.annotate.WireLog;
+import org.devefx.httpmapper.bulkhead.Bulkhead;
+import org.devefx.httpmapper.bulkhead.BulkheadFullException;
+import org.devefx.httpmapper.cache.CacheKey;
+import org.devefx.httpmapper.cache.HttpCacheEntry;
+import org.devefx.httpmapper.cache.HttpResponseCache;
+import org.devefx.httpmapper.cache.ResponseCache;
+import org.devefx.httpmapper.circuit.CircuitBreaker;
+import org.devefx.httpmapper.circuit.CircuitBreakerOpenException;
+import org.devefx.httpmapper.codec.CodecRegistry;
+import org.devefx.httpmapper.http.BufferedBody;
+import org.devefx.httpmapper.http.RequestAborter;
 import org.devefx.httpmapper.http.RequestEntity;
+import org.devefx.httpmapper.http.ResponseEntity;
+import org.devefx.httpmapper.limit.ConcurrencyLimitExceededException;
+import org.devefx.httpmapper.limit.ConcurrencyLimiter;
+import org.devefx.httpmapper.logging.WireLogger;
+import org.devefx.httpmapper.metrics.MethodMetrics;
+import org.devefx.httpmapper.retry.RetryBudget;
+import org.devefx.httpmapper.retry.RetryPolicy;
 import org.devefx.httpmapper.spring.handler.HandlerExecutionChain;
+import org.devefx.httpmapper.utils.FutureUtils;
 import org.devefx.httpmapper.utils.ParamNameResolver;
 import org.devefx.httpmapper.utils.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
+import org.springframework.core.ResolvableType;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.ListenableFutureTask;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.web.util.UriTemplate;
+import org.springframework.web.util.UriUtils;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.MapType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * MapperMethod
@@ -62,103 +115,1001 @@ public class MapperMethod {
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
 	
 	private final ObjectMapper mapper;
-	private final MapType mapType;
 	private final HttpCommand command;
 	private final MethodSignature method;
-	private HandlerExecutionChain mappedHandler;
+	private final ExecutionPlan plan;
+	private final RequestCoalescer coalescer;
+	private final ResponseCache cache;
+	private final HttpResponseCache httpCache;
+	private final MethodMetrics metrics;
+	private final WireLogger wireLogger;
+	private final RetryPolicy retryPolicy;
+	private final RetryBudget retryBudget;
+	private final RequestHedger hedger;
+	private final CircuitBreaker circuitBreaker;
+	private final Bulkhead[] bulkheads;
+	private final boolean concurrencyLimited;
+	private final Configuration configuration;
+	private RequestBatcher batcher;
 	
 	public MapperMethod(Class<?> mapperInterface, Method method, Configuration config) {
+		this(mapperInterface, method, config, null);
+	}
+	
+	/**
+	 * Create a new {@code MapperMethod}.
+	 * @param parameterNames the names the parameters are declared with, known at
+	 * compile time, or {@code null} to look them up by reflection
+	 */
+	public MapperMethod(Class<?> mapperInterface, Method method, Configuration config, String[] parameterNames) {
 		this.command = new HttpCommand(config, mapperInterface, method);
-		this.method = new MethodSignature(config, mapperInterface, method);
-		this.mappedHandler = config.getHandlerExecutionChain(command.getUrl());
+		this.method = new MethodSignature(config, mapperInterface, method, parameterNames);
+		this.mapper = config.getCodecRegistry().getDefaultCodec();
+		this.metrics = new MethodMetrics(mapperInterface.getName(), method.getName());
+		this.plan = new ExecutionPlan(config, this.command, this.method, this.metrics);
+		if (config.isRegisterMBeans()) {
+			this.metrics.registerMBean();
+		}
+		this.wireLogger = createWireLogger(config, command);
+		if (command.isCoalescing() && this.method.returnsPublisher()) {
+			throw new BindingException("Mapper method '" + command.getId()
+					+ "' returns a publisher, whose calls cannot be coalesced; annotate it with @Coalesce(false).");
+		}
+		this.coalescer = command.isCoalescing() ? new RequestCoalescer() : null;
+		this.retryPolicy = this.method.returnsPublisher() ? null : createRetryPolicy(config, command);
+		this.retryBudget = (retryPolicy != null) ?
+				new RetryBudget(config.getRetryBudgetRatio(), config.getRetryBudgetMinPerSecond()) : null;
+		this.hedger = this.method.returnsPublisher() ? null : createHedger(config, command, metrics);
+		this.circuitBreaker = createCircuitBreaker(config, command);
+		this.bulkheads = createBulkheads(config, mapperInterface, method);
+		this.concurrencyLimited = config.isAdaptiveConcurrencyEnabled();
+		this.configuration = config;
+		
+		Cached cacheInfo = command.getCacheInfo();
+		if (cacheInfo != null && !this.method.returnsVoid() && !this.method.returnsPublisher()) {
+			this.cache = new ResponseCache(cacheInfo.timeUnit().toNanos(cacheInfo.ttl()),
+					cacheInfo.maximumSize(), cacheInfo.eviction());
+		} else {
+			this.cache = null;
+		}
 		
-		this.mapper = new ObjectMapper();
-		this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-		this.mapType = mapper.getTypeFactory().constructMapType(Map.class, String.class, String.class);
+		HttpCache httpCacheInfo = command.getHttpCacheInfo();
+		if (httpCacheInfo != null && !this.method.returnsVoid() && !this.method.returnsPublisher()) {
+			this.httpCache = new HttpResponseCache(httpCacheInfo.maximumSize());
+		} else {
+			this.httpCache = null;
+		}
+	}
+	
+	private static WireLogger createWireLogger(Configuration config, HttpCommand command) {
+		WireLog wireLogInfo = command.getWireLogInfo();
+		double sampleRate = (wireLogInfo != null && wireLogInfo.sampleRate() >= 0) ?
+				wireLogInfo.sampleRate() : config.getWireLogSampleRate();
+		return new WireLogger(command.getId(),
+				(wireLogInfo != null) ? wireLogInfo.value() : config.getWireLogLevel(),
+				sampleRate, config.getWireLogMaxBodyBytes(), config.getWireLogRedactedHeaders(),
+				config.getWireLogSink());
+	}
+	
+	/**
+	 * Returns the retry policy of an idempotent method, or {@code null} if its calls are never retried.
+	 */
+	private static RetryPolicy createRetryPolicy(Configuration config, HttpCommand command) {
+		Retry retryInfo = command.getRetryInfo();
+		if (!command.isIdempotent() || (retryInfo != null && !retryInfo.enabled())) {
+			return null;
+		}
+		int maxAttempts = config.getRetryMaxAttempts();
+		long initialBackoff = config.getRetryInitialBackoff();
+		long maxBackoff = config.getRetryMaxBackoff();
+		Collection<Integer> retryableStatusCodes = config.getRetryableStatusCodes();
+		if (retryInfo != null) {
+			maxAttempts = (retryInfo.maxAttempts() >= 0) ? retryInfo.maxAttempts() : maxAttempts;
+			initialBackoff = (retryInfo.initialBackoff() >= 0) ? retryInfo.initialBackoff() : initialBackoff;
+			maxBackoff = (retryInfo.maxBackoff() >= 0) ? retryInfo.maxBackoff() : maxBackoff;
+			if (retryInfo.retryOn().length > 0) {
+				retryableStatusCodes = new ArrayList<Integer>(retryInfo.retryOn().length);
+				for (int statusCode : retryInfo.retryOn()) {
+					retryableStatusCodes.add(statusCode);
+				}
+			}
+		}
+		if (maxAttempts <= 1) {
+			return null;
+		}
+		return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, retryableStatusCodes,
+				config.getRetryableExceptions());
+	}
+	
+	/**
+	 * Returns the hedger of an idempotent method, or {@code null} if its requests are never hedged.
+	 */
+	private static RequestHedger createHedger(Configuration config, HttpCommand command, MethodMetrics metrics) {
+		Hedge hedgeInfo = command.getHedgeInfo();
+		if (hedgeInfo == null || !hedgeInfo.enabled() || !command.isIdempotent()) {
+			return null;
+		}
+		return new RequestHedger(config, metrics,
+				(hedgeInfo.delay() >= 0) ? hedgeInfo.delay() : config.getHedgeDelay(),
+				(hedgeInfo.percentile() >= 0) ? hedgeInfo.percentile() : config.getHedgePercentile(),
+				(hedgeInfo.maxOutstanding() >= 0) ? hedgeInfo.maxOutstanding() : config.getHedgeMaxOutstanding());
+	}
+	
+	/**
+	 * Returns the breaker of the base URL of the method, one of its own, or {@code null}.
+	 */
+	private static CircuitBreaker createCircuitBreaker(Configuration config, HttpCommand command) {
+		org.devefx.httpmapper.annotate.CircuitBreaker info = command.getCircuitBreakerInfo();
+		if (info == null) {
+			return config.isCircuitBreakerEnabled() ? config.getCircuitBreaker(command.getBaseUrl()) : null;
+		}
+		if (!info.enabled()) {
+			return null;
+		}
+		return new CircuitBreaker(command.getId(),
+				(info.failureRateThreshold() >= 0) ? info.failureRateThreshold() : config.getCircuitBreakerFailureRateThreshold(),
+				(info.slowCallRateThreshold() >= 0) ? info.slowCallRateThreshold() : config.getCircuitBreakerSlowCallRateThreshold(),
+				(info.slowCallDuration() >= 0) ? info.slowCallDuration() : config.getCircuitBreakerSlowCallDuration(),
+				(info.minimumCalls() >= 0) ? info.minimumCalls() : config.getCircuitBreakerMinimumCalls(),
+				(info.window() >= 0) ? info.window() : config.getCircuitBreakerWindow(),
+				(info.openDuration() >= 0) ? info.openDuration() : config.getCircuitBreakerOpenDuration(),
+				(info.halfOpenCalls() >= 0) ? info.halfOpenCalls() : config.getCircuitBreakerHalfOpenCalls());
+	}
+	
+	/**
+	 * Returns the bulkheads of the method and of its interface, in the order calls
+	 * take their permits, or {@code null} if there is none.
+	 */
+	private static Bulkhead[] createBulkheads(Configuration config, Class<?> mapperInterface, Method method) {
+		List<Bulkhead> bulkheads = new ArrayList<Bulkhead>(2);
+		String methodId = mapperInterface.getName() + "." + method.getName();
+		Bulkhead bulkhead = createBulkhead(config, methodId,
+				method.getAnnotation(org.devefx.httpmapper.annotate.Bulkhead.class));
+		if (bulkhead != null) {
+			bulkheads.add(bulkhead);
+		}
+		bulkhead = createBulkhead(config, mapperInterface.getName(),
+				mapperInterface.getAnnotation(org.devefx.httpmapper.annotate.Bulkhead.class));
+		if (bulkhead != null) {
+			bulkheads.add(bulkhead);
+		}
+		return bulkheads.isEmpty() ? null : bulkheads.toArray(new Bulkhead[bulkheads.size()]);
+	}
+	
+	private static Bulkhead createBulkhead(Configuration config, String name,
+			org.devefx.httpmapper.annotate.Bulkhead info) {
+		Integer maxConcurrentCalls = config.getBulkheads().get(name);
+		if (maxConcurrentCalls == null) {
+			if (info == null) {
+				return null;
+			}
+			maxConcurrentCalls = info.value();
+		}
+		long maxWait = (info != null && info.maxWait() >= 0) ? info.maxWait() : config.getBulkheadMaxWait();
+		return config.getBulkhead(name, maxConcurrentCalls, maxWait);
+	}
+	
+	/**
+	 * Returns the id of this method, the name of the mapper interface and of the method.
+	 */
+	public String getId() {
+		return command.getId();
+	}
+	
+	/**
+	 * Returns the cache of this method, or {@code null} if its results are not cached.
+	 */
+	public ResponseCache getResponseCache() {
+		return cache;
+	}
+	
+	/**
+	 * Returns the HTTP cache of this method, or {@code null} if its responses are not cached.
+	 */
+	public HttpResponseCache getHttpCache() {
+		return httpCache;
+	}
+	
+	/**
+	 * Returns the retry policy of this method, or {@code null} if its calls are never retried.
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+	
+	/**
+	 * Returns the circuit breaker guarding the calls of this method, or {@code null} if there is none.
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+	
+	/**
+	 * Returns the metrics of the calls of this method.
+	 */
+	public MethodMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Runs the codecs of this method once on synthetic input, so that the first
+	 * call does not pay for creating them, see {@link ExecutionPlan#warmUp()}.
+	 */
+	public void warmUp() {
+		plan.warmUp();
+	}
+	
+	/**
+	 * Sends the calls of this method through the given batcher, set while the
+	 * method is being built.
+	 */
+	void setBatcher(RequestBatcher batcher) {
+		this.batcher = batcher;
+	}
+	
+	public boolean isAsync() {
+		return method.returnsFuture() || method.returnsPublisher();
+	}
+	
+	public boolean isReactive() {
+		return method.returnsPublisher();
 	}
 	
-	@SuppressWarnings("unchecked")
 	public Object execute(RestTemplate restTemplate, Object[] args) throws Exception {
-		Object result = null;
-		
-		do {
-			MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-			HttpHeaders headers = new HttpHeaders();
-			headers.setContentType(MediaType.valueOf(command.getContentType()));
-			
-			Map<String, Object> paramMap = null;
-			Object param = method.convertArgsToCommandParam(args);
-			if (param instanceof Map) {
-				paramMap = (Map<String, Object>) param;
-				body.setAll(paramMap);
+		long start = metrics.start();
+		boolean failed = true;
+		try {
+			Object result = executeCached(restTemplate, args);
+			failed = false;
+			return result;
+		} finally {
+			metrics.stop(start, failed);
+		}
+	}
+	
+	private Object executeCached(RestTemplate restTemplate, Object[] args) throws Exception {
+		if (cache != null) {
+			CacheKey key = new CacheKey(args);
+			Object result = cache.get(key);
+			if (result == null) {
+				result = doExecute(restTemplate, args);
+				if (result != null) {
+					cache.put(key, result);
+				}
 			}
-			
-			URI uri = expandURI(command.getUrl(), args);
-			
-			RequestEntity requestEntity = new RequestEntity(body, headers, command.getHttpMethod(),
-					uri, method.getReturnType());
-			
-			mappedHandler.onRequest(requestEntity);
-			
-			// FIXME: application/x-www-form-urlencoded
-			if (headers.getContentType().includes(MediaType.APPLICATION_FORM_URLENCODED)) {
-				if (paramMap != null) {
-					for (Map.Entry<String, Object> entry : paramMap.entrySet()) {
-						Object value = entry.getValue();
-						if (value != null && !ReflectUtils.isUserType(value)) {
-							entry.setValue(String.valueOf(value));
+			return result;
+		}
+		return doExecute(restTemplate, args);
+	}
+	
+	private Object doExecute(RestTemplate restTemplate, Object[] args) throws Exception {
+		if (batcher != null) {
+			return batcher.execute(args[0]);
+		}
+		if (retryPolicy == null) {
+			return send(restTemplate, args);
+		}
+		retryBudget.deposit();
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return send(restTemplate, args);
+			} catch (Exception ex) {
+				long backoff = getRetryBackoff(ex, attempt);
+				if (backoff < 0) {
+					throw ex;
+				}
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw ex;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the delay before retrying a call whose given attempt failed, the
+	 * first being 1, or -1 if it must not be retried.
+	 */
+	private long getRetryBackoff(Throwable ex, int attempt) {
+		if (attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(ex)) {
+			return -1;
+		}
+		if (!retryBudget.tryAcquire()) {
+			metrics.recordRetryDenied();
+			return -1;
+		}
+		metrics.recordRetry();
+		long backoff = retryPolicy.getBackoff(attempt);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Retrying " + command.getId() + " in " + backoff + " ms after attempt "
+					+ attempt + " failed: " + ex);
+		}
+		return backoff;
+	}
+	
+	/**
+	 * Builds the request, calling the listeners, and answers it from the HTTP cache
+	 * if the cached response is fresh. Otherwise sends it, unless a bulkhead is full
+	 * or the circuit breaker is open. Coalesced calls wait for the one in flight,
+	 * which alone takes the permits and records its outcome.
+	 */
+	private Object send(final RestTemplate restTemplate, Object[] args) throws Exception {
+		final PreparedRequest request = prepareRequest(args);
+		if (request.cacheEntry != null && request.cacheEntry.isFresh()) {
+			return request.cacheEntry.getValue();
+		}
+		if (coalescer != null) {
+			return coalescer.execute(request.getCoalescingKey(), new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					return send(restTemplate, request);
+				}
+			});
+		}
+		return send(restTemplate, request);
+	}
+	
+	private Object send(RestTemplate restTemplate, PreparedRequest request) throws Exception {
+		if (bulkheads == null) {
+			return sendThroughCircuitBreaker(restTemplate, request);
+		}
+		acquireBulkheads(true);
+		try {
+			return sendThroughCircuitBreaker(restTemplate, request);
+		} finally {
+			releaseBulkheads();
+		}
+	}
+	
+	/**
+	 * Builds the request and looks it up in the HTTP cache.
+	 */
+	private PreparedRequest prepareRequest(Object[] args) throws Exception {
+		RequestEntity requestEntity = createRequest(args);
+		if (httpCache == null || requestEntity.getMethod() != HttpMethod.GET) {
+			return new PreparedRequest(requestEntity, null, null);
+		}
+		Object cacheKey = HttpResponseCache.createKey(requestEntity.getUrl(), requestEntity.getHeaders());
+		return new PreparedRequest(requestEntity, cacheKey, httpCache.get(cacheKey));
+	}
+	
+	/**
+	 * Takes a permit of every bulkhead, or none if one of them is full.
+	 * @param wait whether the calling thread may wait for a permit; only blocking
+	 * calls do, the asynchronous ones run on scheduler and I/O threads
+	 */
+	private void acquireBulkheads(boolean wait) {
+		for (int i = 0; i < bulkheads.length; i++) {
+			if (!bulkheads[i].tryAcquire(wait)) {
+				for (int j = 0; j < i; j++) {
+					bulkheads[j].release();
+				}
+				throw new BulkheadFullException("Bulkhead " + bulkheads[i].getName() + " is full, not calling "
+						+ command.getId() + " (" + bulkheads[i].getMaxConcurrentCalls() + " calls in flight)",
+						bulkheads[i].getName());
+			}
+		}
+	}
+	
+	private void releaseBulkheads() {
+		for (Bulkhead bulkhead : bulkheads) {
+			bulkhead.release();
+		}
+	}
+	
+	private Object sendThroughCircuitBreaker(RestTemplate restTemplate, PreparedRequest request) throws Exception {
+		if (circuitBreaker == null) {
+			return exchange(restTemplate, request);
+		}
+		acquireCircuitBreaker();
+		long start = System.nanoTime();
+		try {
+			Object result = exchange(restTemplate, request);
+			circuitBreaker.record(System.nanoTime() - start, false);
+			return result;
+		} catch (Throwable ex) {
+			recordCircuitBreaker(start, ex);
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Records a failed call with the circuit breaker, or hands its permit back if
+	 * it was rejected before being sent, which tells nothing about the upstream.
+	 */
+	private void recordCircuitBreaker(long start, Throwable ex) {
+		if (ex instanceof ConcurrencyLimitExceededException || ex instanceof BulkheadFullException) {
+			circuitBreaker.release();
+		} else {
+			circuitBreaker.record(System.nanoTime() - start, CircuitBreaker.isFailure(ex));
+		}
+	}
+	
+	private void acquireCircuitBreaker() {
+		if (!circuitBreaker.tryAcquire()) {
+			throw new CircuitBreakerOpenException("Circuit breaker " + circuitBreaker.getName() + " is "
+					+ circuitBreaker.getState() + ", not calling " + command.getId() + " (probing again in "
+					+ circuitBreaker.getRemainingOpenTime() + " ms)", circuitBreaker.getName());
+		}
+	}
+	
+	/**
+	 * Takes a permit of the limiter of the host of the given URL, before the request
+	 * takes a connection.
+	 * @return the limiter, or {@code null} if the calls of this method are not limited
+	 */
+	private ConcurrencyLimiter acquireConcurrencyLimiter(URI url) {
+		if (!concurrencyLimited || url.getHost() == null) {
+			return null;
+		}
+		String host = (url.getPort() != -1) ? url.getHost() + ":" + url.getPort() : url.getHost();
+		ConcurrencyLimiter limiter = configuration.getConcurrencyLimiter(host);
+		if (!limiter.tryAcquire()) {
+			throw new ConcurrencyLimitExceededException("Concurrency limit of " + host + " reached, not calling "
+					+ command.getId() + " (" + limiter.getLimit() + " calls in flight)", host);
+		}
+		return limiter;
+	}
+	
+	private Object exchange(final RestTemplate restTemplate, PreparedRequest request) throws Exception {
+		RequestEntity requestEntity = (request.cacheEntry != null) ?
+				createConditionalRequest(request.requestEntity, request.cacheEntry) : request.requestEntity;
+		boolean streaming = isStreaming();
+		final URI url = requestEntity.getUrl();
+		final HttpMethod httpMethod = requestEntity.getMethod();
+		final RequestCallback requestCallback = plan.createRequestCallback(requestEntity, restTemplate.getMessageConverters());
+		final ResponseEntityExtractor responseExtractor = plan.getResponseExtractor(streaming);
+		ResponseEntity responseEntity;
+		try {
+			if (hedger != null) {
+				responseEntity = hedger.execute(new Callable<ResponseEntity>() {
+					@Override
+					public ResponseEntity call() throws Exception {
+						return exchangeOnce(restTemplate, url, httpMethod, requestCallback, responseExtractor);
+					}
+				}, new Callable<ResponseEntity>() {
+					@Override
+					public ResponseEntity call() throws Exception {
+						if (bulkheads == null) {
+							return exchangeOnce(restTemplate, url, httpMethod, requestCallback, responseExtractor);
+						}
+						acquireBulkheads(false);
+						try {
+							return exchangeOnce(restTemplate, url, httpMethod, requestCallback, responseExtractor);
+						} finally {
+							releaseBulkheads();
 						}
 					}
-					body.setAll(paramMap);
-				} else if (param != null && ReflectUtils.isUserType(param)) {
-					body.setAll(mapper.<Map<String, Object>>convertValue(param, mapType));
+				});
+			} else {
+				responseEntity = exchangeOnce(restTemplate, url, httpMethod, requestCallback, responseExtractor);
+			}
+		} catch (Throwable ex) {
+			if (!(ex instanceof ConcurrencyLimitExceededException)) {
+				wireLogger.log(requestEntity, ex);
+			}
+			throw ex;
+		}
+		return handleResponse(requestEntity, responseEntity, streaming, request.cacheKey, request.cacheEntry);
+	}
+	
+	/**
+	 * Sends a request, or one of its hedged copies, under its own permit of the
+	 * concurrency limiter.
+	 */
+	private ResponseEntity exchangeOnce(RestTemplate restTemplate, URI url, HttpMethod httpMethod,
+			RequestCallback requestCallback, ResponseEntityExtractor responseExtractor) throws Exception {
+		ConcurrencyLimiter limiter = acquireConcurrencyLimiter(url);
+		long start = System.nanoTime();
+		ResponseEntity responseEntity;
+		try {
+			responseEntity = restTemplate.execute(url, httpMethod, requestCallback, responseExtractor);
+		} catch (Throwable ex) {
+			if (limiter != null) {
+				RequestAborter aborter = RequestAborter.current();
+				if (aborter != null && aborter.isAborted()) {
+					// lost the race, its round trip was cut short
+					limiter.release();
+				} else {
+					limiter.release(System.nanoTime() - start, ConcurrencyLimiter.isDropped(ex));
 				}
 			}
-			
-			if (requestEntity.getMethod() == HttpMethod.GET) {
-				uri = appendUrlParams(requestEntity.getUrl(), body);
-				requestEntity.setUrl(uri);
+			throw ex;
+		}
+		if (limiter != null) {
+			limiter.release(System.nanoTime() - start, false);
+		}
+		return responseEntity;
+	}
+	
+	/**
+	 * Executes a mapper method returning a future or a publisher. For futures the
+	 * request is prepared on the calling thread, the response is handled by the
+	 * listeners and decoded when the exchange completes. Publishers only do so
+	 * once subscribed to.
+	 */
+	public Object executeAsync(AsyncRestTemplate asyncRestTemplate, Object[] args) throws Exception {
+		if (method.returnsPublisher()) {
+			return new MapperPublisher(this, asyncRestTemplate, args);
+		}
+		long start = metrics.start();
+		ListenableFuture<Object> future;
+		try {
+			future = (batcher != null) ? executeBatchedAsync(args) : executeCachedAsync(asyncRestTemplate, args);
+		} catch (Exception ex) {
+			metrics.stop(start, true);
+			throw ex;
+		}
+		return adapt(future, start);
+	}
+	
+	private ListenableFuture<Object> executeCachedAsync(AsyncRestTemplate asyncRestTemplate, Object[] args) throws Exception {
+		final CacheKey key = (cache != null) ? new CacheKey(args) : null;
+		if (key != null) {
+			Object cached = cache.get(key);
+			if (cached != null) {
+				return completedFuture(cached);
 			}
-			
-			if (logger.isInfoEnabled()) {
-				String preStr = command.getName() + " ====> ";
-				logger.info(preStr + "Request: " + requestEntity.getUrl());
-				logger.info(preStr + "Parameters: " + requestEntity.getBody());
-				logger.info(preStr + "Headers: " + requestEntity.getHeaders());
+		}
+		if (retryPolicy == null) {
+			return sendAsync(asyncRestTemplate, args, key);
+		}
+		retryBudget.deposit();
+		final AtomicReference<Future<?>> attempt = new AtomicReference<Future<?>>();
+		SettableListenableFuture<Object> future = new SettableListenableFuture<Object>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				Future<?> current = attempt.get();
+				if (current != null) {
+					current.cancel(mayInterruptIfRunning);
+				}
+				return super.cancel(mayInterruptIfRunning);
 			}
-			
-			ResponseEntity<JsonNode> responseEntity = restTemplate.exchange(requestEntity.getUrl(), requestEntity.getMethod(),
-					new HttpEntity<>(requestEntity.getBody(), requestEntity.getHeaders()), JsonNode.class);
-			
-			if (logger.isInfoEnabled()) {
-				StringBuffer buf = new StringBuffer();
-				buf.append(command.getName() + " ====> ");
-				buf.append("Response: [status=").append(responseEntity.getStatusCode()).append("] ");
-				if (responseEntity.hasBody()) {
-					buf.append(responseEntity.getBody());
+		};
+		// the first attempt throws to the caller, like a call without retries
+		retryAsync(asyncRestTemplate, args, key, future, attempt, 1,
+				sendAsync(asyncRestTemplate, args, key));
+		return future;
+	}
+	
+	/**
+	 * Completes the given future with the result of an attempt once it is done,
+	 * or schedules the next attempt on the batch scheduler if it failed and may be retried.
+	 */
+	private void retryAsync(final AsyncRestTemplate asyncRestTemplate, final Object[] args, final CacheKey key,
+			final SettableListenableFuture<Object> future, final AtomicReference<Future<?>> attempt,
+			final int attemptNumber, ListenableFuture<Object> exchange) {
+		attempt.set(exchange);
+		if (future.isCancelled()) {
+			exchange.cancel(true);
+			return;
+		}
+		exchange.addCallback(new ListenableFutureCallback<Object>() {
+			@Override
+			public void onSuccess(Object result) {
+				future.set(result);
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				long backoff = future.isDone() ? -1 : getRetryBackoff(ex, attemptNumber);
+				if (backoff < 0) {
+					future.setException(ex);
+					return;
+				}
+				try {
+					attempt.set(configuration.getBatchScheduler().schedule(new Runnable() {
+						@Override
+						public void run() {
+							if (future.isDone()) {
+								return;
+							}
+							ListenableFuture<Object> next;
+							try {
+								next = sendAsync(asyncRestTemplate, args, key);
+							} catch (Throwable failure) {
+								future.setException(failure);
+								return;
+							}
+							retryAsync(asyncRestTemplate, args, key, future, attempt, attemptNumber + 1, next);
+						}
+					}, backoff, TimeUnit.MILLISECONDS));
+				} catch (RejectedExecutionException rejected) {
+					future.setException(ex);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Builds the request, calling the listeners, and answers it from the HTTP cache
+	 * if the cached response is fresh. Otherwise sends it without waiting for the
+	 * response, unless a bulkhead is full or the circuit breaker is open. Coalesced
+	 * calls join the one in flight, which alone takes the permits and records its outcome.
+	 */
+	private ListenableFuture<Object> sendAsync(final AsyncRestTemplate asyncRestTemplate, Object[] args,
+			final CacheKey key) throws Exception {
+		final PreparedRequest request = prepareRequest(args);
+		if (request.cacheEntry != null && request.cacheEntry.isFresh()) {
+			return completedFuture(request.cacheEntry.getValue());
+		}
+		if (coalescer != null) {
+			return coalescer.executeAsync(request.getCoalescingKey(), new Callable<ListenableFuture<Object>>() {
+				@Override
+				public ListenableFuture<Object> call() throws Exception {
+					return sendAsync(asyncRestTemplate, request, key, false);
+				}
+			});
+		}
+		return sendAsync(asyncRestTemplate, request, key, false);
+	}
+	
+	/**
+	 * Builds the request of a publisher, calling the listeners, and sends it like
+	 * the calls of methods returning a future, unless a bulkhead is full or the
+	 * circuit breaker is open.
+	 * @return a future completed with the elements to emit
+	 */
+	ListenableFuture<Object> sendElementsAsync(AsyncRestTemplate asyncRestTemplate, Object[] args) throws Exception {
+		return sendAsync(asyncRestTemplate, prepareRequest(args), null, true);
+	}
+	
+	/**
+	 * Sends the request unless a bulkhead is full or the circuit breaker is open.
+	 * The permits of the bulkheads are held until the response is read.
+	 * @param elements whether to complete the future with the elements of a publisher
+	 * rather than with the return value
+	 */
+	private ListenableFuture<Object> sendAsync(AsyncRestTemplate asyncRestTemplate, PreparedRequest request,
+			CacheKey key, boolean elements) throws Exception {
+		if (bulkheads == null) {
+			return sendAsyncThroughCircuitBreaker(asyncRestTemplate, request, key, elements);
+		}
+		acquireBulkheads(false);
+		ListenableFuture<Object> future;
+		try {
+			future = sendAsyncThroughCircuitBreaker(asyncRestTemplate, request, key, elements);
+		} catch (Throwable ex) {
+			releaseBulkheads();
+			throw ex;
+		}
+		future.addCallback(new ListenableFutureCallback<Object>() {
+			@Override
+			public void onSuccess(Object result) {
+				releaseBulkheads();
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				releaseBulkheads();
+			}
+		});
+		return future;
+	}
+	
+	private ListenableFuture<Object> sendAsyncThroughCircuitBreaker(AsyncRestTemplate asyncRestTemplate,
+			PreparedRequest request, CacheKey key, boolean elements) throws Exception {
+		if (circuitBreaker == null) {
+			return doSendAsync(asyncRestTemplate, request, key, elements);
+		}
+		acquireCircuitBreaker();
+		final long start = System.nanoTime();
+		ListenableFuture<Object> future;
+		try {
+			future = doSendAsync(asyncRestTemplate, request, key, elements);
+		} catch (Throwable ex) {
+			recordCircuitBreaker(start, ex);
+			throw ex;
+		}
+		future.addCallback(new ListenableFutureCallback<Object>() {
+			@Override
+			public void onSuccess(Object result) {
+				circuitBreaker.record(System.nanoTime() - start, false);
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				recordCircuitBreaker(start, ex);
+			}
+		});
+		return future;
+	}
+	
+	private ListenableFuture<Object> doSendAsync(AsyncRestTemplate asyncRestTemplate, PreparedRequest request,
+			final CacheKey key, final boolean elements) throws Exception {
+		final RequestEntity requestEntity = (request.cacheEntry != null) ?
+				createConditionalRequest(request.requestEntity, request.cacheEntry) : request.requestEntity;
+		final Object httpCacheKey = request.cacheKey;
+		final HttpCacheEntry httpCacheEntry = request.cacheEntry;
+		final boolean streaming = !elements && isStreaming();
+		final ListenableFuture<ResponseEntity> exchange = (hedger != null) ?
+				hedgeAsync(asyncRestTemplate, requestEntity, streaming) :
+				exchangeOnceAsync(asyncRestTemplate, requestEntity, streaming);
+		final SettableListenableFuture<Object> future = new SettableListenableFuture<Object>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				exchange.cancel(mayInterruptIfRunning);
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		exchange.addCallback(new ListenableFutureCallback<ResponseEntity>() {
+			@Override
+			public void onSuccess(ResponseEntity responseEntity) {
+				try {
+					Object result = elements ? handleResponseElements(requestEntity, responseEntity) :
+							handleResponse(requestEntity, responseEntity, streaming, httpCacheKey, httpCacheEntry);
+					if (key != null && result != null) {
+						cache.put(key, result);
+					}
+					future.set(result);
+				} catch (Throwable ex) {
+					future.setException(ex);
+				}
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				if (!(ex instanceof CancellationException)) {
+					wireLogger.log(requestEntity, ex);
+				}
+				future.setException(ex);
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Executes a mapper method returning a future over the blocking template,
+	 * on a thread of the given executor.
+	 */
+	public Object executeAsync(Executor executor, final RestTemplate restTemplate, final Object[] args) {
+		long start = metrics.start();
+		if (batcher != null) {
+			// the batcher never blocks the caller, there is nothing to hand off
+			return adapt(executeBatchedAsync(args), start);
+		}
+		ListenableFutureTask<Object> task = new ListenableFutureTask<Object>(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return executeCached(restTemplate, args);
+			}
+		});
+		try {
+			executor.execute(task);
+		} catch (RuntimeException ex) {
+			metrics.stop(start, true);
+			throw ex;
+		}
+		return adapt(task, start);
+	}
+	
+	private ListenableFuture<Object> executeBatchedAsync(Object[] args) {
+		final CacheKey key = (cache != null) ? new CacheKey(args) : null;
+		if (key != null) {
+			Object cached = cache.get(key);
+			if (cached != null) {
+				return completedFuture(cached);
+			}
+		}
+		ListenableFuture<Object> future = batcher.submit(args[0]);
+		if (key != null) {
+			future.addCallback(new ListenableFutureCallback<Object>() {
+				@Override
+				public void onSuccess(Object result) {
+					if (result != null) {
+						cache.put(key, result);
+					}
+				}
+				@Override
+				public void onFailure(Throwable ex) {
+				}
+			});
+		}
+		return future;
+	}
+	
+	private ListenableFuture<Object> completedFuture(Object value) {
+		SettableListenableFuture<Object> future = new SettableListenableFuture<Object>();
+		future.set(value);
+		return future;
+	}
+	
+	/**
+	 * Records the call once the future completes and adapts it to the return type.
+	 */
+	private Object adapt(ListenableFuture<Object> future, final long start) {
+		future.addCallback(new ListenableFutureCallback<Object>() {
+			@Override
+			public void onSuccess(Object result) {
+				metrics.stop(start, false);
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				metrics.stop(start, true);
+			}
+		});
+		return FutureUtils.adapt(future, method.getFutureType());
+	}
+	
+	private ListenableFuture<ResponseEntity> hedgeAsync(final AsyncRestTemplate asyncRestTemplate,
+			final RequestEntity requestEntity, final boolean streaming) throws Exception {
+		return hedger.executeAsync(new Callable<ListenableFuture<ResponseEntity>>() {
+			@Override
+			public ListenableFuture<ResponseEntity> call() throws Exception {
+				return exchangeOnceAsync(asyncRestTemplate, requestEntity, streaming);
+			}
+		}, new Callable<ListenableFuture<ResponseEntity>>() {
+			@Override
+			public ListenableFuture<ResponseEntity> call() throws Exception {
+				if (bulkheads == null) {
+					return exchangeOnceAsync(asyncRestTemplate, requestEntity, streaming);
+				}
+				acquireBulkheads(false);
+				ListenableFuture<ResponseEntity> exchange;
+				try {
+					exchange = exchangeOnceAsync(asyncRestTemplate, requestEntity, streaming);
+				} catch (Throwable ex) {
+					releaseBulkheads();
+					throw ex;
+				}
+				exchange.addCallback(new ListenableFutureCallback<ResponseEntity>() {
+					@Override
+					public void onSuccess(ResponseEntity responseEntity) {
+						releaseBulkheads();
+					}
+					@Override
+					public void onFailure(Throwable ex) {
+						releaseBulkheads();
+					}
+				});
+				return exchange;
+			}
+		});
+	}
+	
+	/**
+	 * Sends a request, or one of its hedged copies, under its own permit of the
+	 * concurrency limiter.
+	 */
+	private ListenableFuture<ResponseEntity> exchangeOnceAsync(AsyncRestTemplate asyncRestTemplate,
+			RequestEntity requestEntity, boolean streaming) throws Exception {
+		final ConcurrencyLimiter limiter = acquireConcurrencyLimiter(requestEntity.getUrl());
+		if (limiter == null) {
+			return exchangeAsync(asyncRestTemplate, requestEntity, streaming);
+		}
+		final long start = System.nanoTime();
+		ListenableFuture<ResponseEntity> exchange;
+		try {
+			exchange = exchangeAsync(asyncRestTemplate, requestEntity, streaming);
+		} catch (Throwable ex) {
+			limiter.release();
+			throw ex;
+		}
+		exchange.addCallback(new ListenableFutureCallback<ResponseEntity>() {
+			@Override
+			public void onSuccess(ResponseEntity responseEntity) {
+				limiter.release(System.nanoTime() - start, false);
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				if (ex instanceof CancellationException) {
+					limiter.release();
+				} else {
+					limiter.release(System.nanoTime() - start, ConcurrencyLimiter.isDropped(ex));
+				}
+			}
+		});
+		return exchange;
+	}
+	
+	private ListenableFuture<ResponseEntity> exchangeAsync(AsyncRestTemplate asyncRestTemplate, RequestEntity requestEntity,
+			boolean streaming) throws Exception {
+		return asyncRestTemplate.execute(requestEntity.getUrl(), requestEntity.getMethod(),
+				plan.createRequestCallback(requestEntity, asyncRestTemplate.getMessageConverters()),
+				plan.getResponseExtractor(streaming));
+	}
+	
+	private boolean isStreaming() {
+		return plan.isStreaming() && !wireLogger.isBodyEnabled();
+	}
+	
+	@SuppressWarnings("unchecked")
+	RequestEntity createRequest(Object[] args) throws Exception {
+		MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+		HttpHeaders headers = plan.createHeaders();
+		
+		Map<String, Object> paramMap = null;
+		Object param = method.convertArgsToCommandParam(args);
+		if (param instanceof Map) {
+			paramMap = (Map<String, Object>) param;
+			body.setAll(paramMap);
+		}
+		
+		URI uri = plan.expandUri(args);
+		
+		RequestEntity requestEntity = new RequestEntity(body, headers, command.getHttpMethod(),
+				uri, method.getReturnType());
+		
+		plan.getHandlerChain().onRequest(requestEntity);
+		
+		// FIXME: application/x-www-form-urlencoded
+		if (plan.isFormEncoded(headers)) {
+			if (paramMap != null) {
+				for (Map.Entry<String, Object> entry : paramMap.entrySet()) {
+					Object value = entry.getValue();
+					if (value != null && !ReflectUtils.isUserType(value)) {
+						entry.setValue(String.valueOf(value));
+					}
 				}
-				logger.info(buf.toString());
+				body.setAll(paramMap);
+			} else if (param != null && ReflectUtils.isUserType(param)) {
+				body.setAll(mapper.<Map<String, Object>>convertValue(param, plan.getFormType()));
 			}
+		}
+		
+		if (requestEntity.getMethod() == HttpMethod.GET) {
+			uri = plan.appendQueryParams(requestEntity.getUrl(), body);
+			requestEntity.setUrl(uri);
+		}
+		return requestEntity;
+	}
+	
+	/**
+	 * Returns a copy of the request asking the server to answer {@code 304 Not Modified}
+	 * if the cached response is still valid.
+	 */
+	private RequestEntity createConditionalRequest(RequestEntity requestEntity, HttpCacheEntry cacheEntry) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.putAll(requestEntity.getHeaders());
+		if (!cacheEntry.addConditions(headers)) {
+			return requestEntity;
+		}
+		return new RequestEntity(requestEntity.getBody(), headers, requestEntity.getMethod(),
+				requestEntity.getUrl(), requestEntity.getType());
+	}
+	
+	private Object handleResponse(RequestEntity requestEntity, ResponseEntity responseEntity, boolean streaming,
+			Object cacheKey, HttpCacheEntry cacheEntry) throws Exception {
+		if (cacheKey == null || responseEntity == null) {
+			return handleResponse(requestEntity, responseEntity, streaming);
+		}
+		if (cacheEntry != null && responseEntity.getStatusCodeValue() == HttpStatus.NOT_MODIFIED.value()) {
+			// the listeners saw the full response when it was cached, not this empty one
+			wireLogger.log(requestEntity, responseEntity);
+			return httpCache.revalidate(cacheKey, cacheEntry, responseEntity.getHeaders());
+		}
+		Object result = handleResponse(requestEntity, responseEntity, streaming);
+		if (result != null && responseEntity.getStatusCodeValue() == HttpStatus.OK.value()) {
+			httpCache.put(cacheKey, responseEntity.getHeaders(), result);
+		}
+		return result;
+	}
+	
+	private Object handleResponse(RequestEntity requestEntity, ResponseEntity responseEntity, boolean streaming) throws Exception {
+		Object result = null;
+		
+		do {
+			wireLogger.log(requestEntity, responseEntity);
 			
 			if (responseEntity != null) {
-				org.devefx.httpmapper.http.ResponseEntity entity = new org.devefx.httpmapper.http.ResponseEntity(responseEntity.getBody(),
-						responseEntity.getHeaders(), responseEntity.getStatusCode());
+				if (streaming) {
+					result = responseEntity.getBody();
+					break;
+				}
 				
-				mappedHandler.onResponse(requestEntity, entity);
+				plan.getHandlerChain().onResponse(requestEntity, responseEntity);
 				
-				if (entity.hasBody()) {
-					Object responseBody = entity.getBody();
+				BufferedBody bufferedBody = responseEntity.getBufferedBody();
+				if (bufferedBody != null) {
+					// nobody looked at the body, decode it straight into the return type
+					if (!method.returnsVoid()) {
+						result = bufferedBody.read(plan.getReader(bufferedBody.getCodec()));
+					}
+				} else if (responseEntity.hasBody()) {
+					Object responseBody = responseEntity.getBody();
 					if (method.getRawType().isInstance(responseBody)) {
 						result = responseBody;
 						break;
 					}
-					
-					JavaType valueType = mapper.getTypeFactory().constructType(method.getReturnType());
-					if (responseBody instanceof String) {
-						result = mapper.readValue((String) responseBody, valueType);
-					} else {
-						result = mapper.convertValue(responseBody, valueType);
-					}
+					result = plan.readValue(responseBody);
 				}
 			}
 			
@@ -171,34 +1122,55 @@ public class MapperMethod {
 		return result;
 	}
 	
-	private URI expandURI(String url, Object[] args) 
-			throws URISyntaxException {
-		if (args != null) {
-			return new UriTemplate(command.getUrl()).expand(args);
+	/**
+	 * Converts the item of a batch response to the return type of this method.
+	 */
+	Object convertBatchItem(Object item) throws IOException {
+		Object result = (item == null || method.getRawType().isInstance(item)) ? item : plan.readValue(item);
+		if (result == null && method.returnsPrimitive() && !method.returnsVoid()) {
+			throw new BindingException("Mapper method '" + command.getUrl()
+			          + " attempted to return null from a method with a primitive return type (" + method.getReturnType() + ").");
 		}
-		return new URI(url);
+		return result;
 	}
 	
-	private URI appendUrlParams(URI uri, MultiValueMap<String, Object> body) throws URISyntaxException {
-		UriComponentsBuilder builder = UriComponentsBuilder.fromUri(uri);
-		for (Map.Entry<String, List<Object>> entry : body.entrySet()) {
-			String key = entry.getKey();
-			for (Object value : entry.getValue()) {
-				if (value instanceof String) {
-					builder.queryParam(key, (String) value);
-				}
-			}
+	/**
+	 * Handles a response for a publisher, returning the elements to emit.
+	 */
+	private Iterator<?> handleResponseElements(RequestEntity requestEntity, ResponseEntity responseEntity) throws Exception {
+		wireLogger.log(requestEntity, responseEntity);
+		
+		plan.getHandlerChain().onResponse(requestEntity, responseEntity);
+		
+		if (method.returnsVoid()) {
+			return Collections.emptyIterator();
+		}
+		BufferedBody bufferedBody = responseEntity.getBufferedBody();
+		if (bufferedBody != null) {
+			return plan.readElements(bufferedBody);
+		} else if (responseEntity.hasBody()) {
+			return plan.readElements(responseEntity.getBody(), method.getRawType());
 		}
-		UriComponents uriComponents = builder.build();
-		return uriComponents.toUri();
+		return Collections.emptyIterator();
 	}
+
 	
 	public static class HttpCommand {
 		
+		private final String id;
 		private final String name;
 		private final String url;
+		private final String baseUrl;
 		private final HttpMethod httpMethod;
 		private final String contentType;
+		private final boolean coalescing;
+		private final Cached cacheInfo;
+		private final HttpCache httpCacheInfo;
+		private final WireLog wireLogInfo;
+		private final boolean idempotent;
+		private final Retry retryInfo;
+		private final Hedge hedgeInfo;
+		private final org.devefx.httpmapper.annotate.CircuitBreaker circuitBreakerInfo;
 		
 		public HttpCommand(Configuration configuration, Class<?> mapperInterface, Method method) {
 			Bean beanInfo = mapperInterface.getAnnotation(Bean.class);
@@ -213,13 +1185,35 @@ public class MapperMethod {
 				if (StringUtils.hasText(baseUrl) ||
 						StringUtils.hasText((baseUrl = configuration.getGlobalBaseUrl()))) {
 					this.url = baseUrl.concat(methodInfo.value());
+					this.baseUrl = baseUrl;
 				} else {
 					this.url = methodInfo.value();
+					this.baseUrl = getOrigin(url);
 				}
 				this.httpMethod = methodInfo.httpMethod();
 				this.contentType = methodInfo.contentType();
 			}
+			Coalesce coalesceInfo = ReflectUtils.findAnnotation(mapperInterface, method, Coalesce.class);
+			this.coalescing = (coalesceInfo != null && coalesceInfo.value() && httpMethod == HttpMethod.GET);
+			Cached cacheInfo = ReflectUtils.findAnnotation(mapperInterface, method, Cached.class);
+			this.cacheInfo = (cacheInfo != null && cacheInfo.enabled()) ? cacheInfo : null;
+			HttpCache httpCacheInfo = ReflectUtils.findAnnotation(mapperInterface, method, HttpCache.class);
+			this.httpCacheInfo = (httpCacheInfo != null && httpCacheInfo.enabled() && httpMethod == HttpMethod.GET)
+					? httpCacheInfo : null;
+			this.wireLogInfo = ReflectUtils.findAnnotation(mapperInterface, method, WireLog.class);
+			Idempotent idempotentInfo = ReflectUtils.findAnnotation(mapperInterface, method, Idempotent.class);
+			this.idempotent = (idempotentInfo != null) ? idempotentInfo.value() :
+				(httpMethod == HttpMethod.GET || httpMethod == HttpMethod.HEAD || httpMethod == HttpMethod.OPTIONS);
+			this.retryInfo = ReflectUtils.findAnnotation(mapperInterface, method, Retry.class);
+			this.hedgeInfo = ReflectUtils.findAnnotation(mapperInterface, method, Hedge.class);
+			this.circuitBreakerInfo = ReflectUtils.findAnnotation(mapperInterface, method,
+					org.devefx.httpmapper.annotate.CircuitBreaker.class);
 			this.name = method.getName();
+			this.id = mapperInterface.getName() + "." + name;
+		}
+		
+		public String getId() {
+			return id;
 		}
 
 		public String getName() {
@@ -230,6 +1224,20 @@ public class MapperMethod {
 			return url;
 		}
 		
+		/**
+		 * Returns the base URL of the mapper or the global one, or else the scheme
+		 * and authority of the URL of the method.
+		 */
+		public String getBaseUrl() {
+			return baseUrl;
+		}
+		
+		private static String getOrigin(String url) {
+			int authority = url.indexOf("://");
+			int path = (authority != -1) ? url.indexOf('/', authority + 3) : -1;
+			return (path != -1) ? url.substring(0, path) : url;
+		}
+		
 		public HttpMethod getHttpMethod() {
 			return httpMethod;
 		}
@@ -237,32 +1245,111 @@ public class MapperMethod {
 		public String getContentType() {
 			return contentType;
 		}
+		
+		public boolean isCoalescing() {
+			return coalescing;
+		}
+		
+		/**
+		 * Returns the cache settings of the method, or {@code null} if it is not cached.
+		 */
+		public Cached getCacheInfo() {
+			return cacheInfo;
+		}
+		
+		/**
+		 * Returns the HTTP cache settings of the method, or {@code null} if its
+		 * responses are not cached.
+		 */
+		public HttpCache getHttpCacheInfo() {
+			return httpCacheInfo;
+		}
+		
+		/**
+		 * Returns the wire log settings of the method, or {@code null} to use the configuration.
+		 */
+		public WireLog getWireLogInfo() {
+			return wireLogInfo;
+		}
+		
+		/**
+		 * Returns {@code true} if the request may be sent several times, see {@link Idempotent}.
+		 */
+		public boolean isIdempotent() {
+			return idempotent;
+		}
+		
+		/**
+		 * Returns the retry settings of the method, or {@code null} to use the configuration.
+		 */
+		public Retry getRetryInfo() {
+			return retryInfo;
+		}
+		
+		/**
+		 * Returns the hedge settings of the method, or {@code null} if it is not hedged.
+		 */
+		public Hedge getHedgeInfo() {
+			return hedgeInfo;
+		}
+		
+		/**
+		 * Returns the circuit breaker settings of the method, or {@code null} to
+		 * use the breaker of its base URL.
+		 */
+		public org.devefx.httpmapper.annotate.CircuitBreaker getCircuitBreakerInfo() {
+			return circuitBreakerInfo;
+		}
 	}
 
 	public static class MethodSignature {
 		
+		private static final String PUBLISHER_CLASS = "org.reactivestreams.Publisher";
+		
 		private final boolean returnsVoid;
 		private final boolean returnsPrimitive;
+		private final boolean returnsPublisher;
+		private final Class<?> futureType;
 		private final Type returnType;
 		private final Class<?> rawType;
 		private final ParamNameResolver paramNameResolver;
 		
 		public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
-			this.returnType = method.getGenericReturnType();
-			if (returnType instanceof ParameterizedType) {
-				this.rawType = (Class<?>) ((ParameterizedType) returnType).getRawType();
+			this(configuration, mapperInterface, method, null);
+		}
+		
+		public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method,
+				String[] parameterNames) {
+			this.returnsPublisher = PUBLISHER_CLASS.equals(method.getReturnType().getName());
+			if (returnsPublisher || FutureUtils.isFutureType(method.getReturnType())) {
+				// the value the future completes with (or the publisher emits) is what gets decoded
+				ResolvableType valueType = ResolvableType.forMethodReturnType(method).as(method.getReturnType()).getGeneric(0);
+				this.futureType = returnsPublisher ? null : method.getReturnType();
+				this.returnType = (valueType == ResolvableType.NONE) ? Object.class : valueType.getType();
+				this.rawType = valueType.resolve(Object.class);
+				this.returnsPrimitive = false;
 			} else {
-				this.rawType = method.getReturnType();
+				this.futureType = null;
+				this.returnType = method.getGenericReturnType();
+				if (returnType instanceof ParameterizedType) {
+					this.rawType = (Class<?>) ((ParameterizedType) returnType).getRawType();
+				} else {
+					this.rawType = method.getReturnType();
+				}
+				this.returnsPrimitive = method.getReturnType().isPrimitive();
 			}
-			this.returnsVoid = void.class.equals(this.returnType);
-			this.returnsPrimitive = method.getReturnType().isPrimitive();
-			this.paramNameResolver = new ParamNameResolver(configuration, method);
+			this.returnsVoid = void.class.equals(this.returnType) || Void.class.equals(this.returnType);
+			this.paramNameResolver = new ParamNameResolver(configuration, method, parameterNames);
 		}
 		
 		public Object convertArgsToCommandParam(Object[] args) {
 			return paramNameResolver.getNamedParams(args);
 		}
 		
+		public Collection<String> getParamNames() {
+			return paramNameResolver.getNames();
+		}
+		
 		public Type getReturnType() {
 			return returnType;
 		}
@@ -279,6 +1366,354 @@ public class MapperMethod {
 			return returnsPrimitive;
 		}
 		
+		public boolean returnsFuture() {
+			return futureType != null;
+		}
+		
+		public boolean returnsPublisher() {
+			return returnsPublisher;
+		}
+		
+		/**
+		 * Returns the future type declared by the method, or {@code null} for synchronous methods.
+		 */
+		public Class<?> getFutureType() {
+			return futureType;
+		}
+		
+	}
+	
+	/**
+	 * Everything about a mapper method call that does not depend on the
+	 * actual arguments, resolved once when the {@code MapperMethod} is built
+	 * so that {@link MapperMethod#execute} only has to fill in the values.
+	 */
+	public static class ExecutionPlan {
+		
+		private final UriTemplate uriTemplate;
+		private final URI staticUri;
+		private final MediaType contentType;
+		private final String contentTypeValue;
+		private final boolean formEncoded;
+		private final JavaType valueType;
+		private final JavaType formType;
+		private final ObjectReader reader;
+		private final ObjectWriter writer;
+		private final ObjectMapper mapper;
+		private final CodecRegistry codecRegistry;
+		private final ConcurrentMap<ObjectMapper, ObjectReader> readers = new ConcurrentHashMap<ObjectMapper, ObjectReader>(4);
+		private final List<MediaType> acceptableMediaTypes;
+		private final boolean returnsVoid;
+		private final boolean unwrapArrays;
+		private final HandlerExecutionChain handlerChain;
+		private final ResponseEntityExtractor streamingExtractor;
+		private final ResponseEntityExtractor bufferingExtractor;
+		private final Map<String, String> encodedParamNames;
+		private final MethodMetrics metrics;
+		
+		public ExecutionPlan(Configuration configuration, HttpCommand command, MethodSignature method,
+				MethodMetrics metrics) {
+			this.metrics = metrics;
+			this.uriTemplate = new UriTemplate(command.getUrl());
+			this.staticUri = uriTemplate.getVariableNames().isEmpty() ? uriTemplate.expand() : null;
+			this.contentType = MediaType.valueOf(command.getContentType());
+			this.contentTypeValue = contentType.toString();
+			this.formEncoded = contentType.includes(MediaType.APPLICATION_FORM_URLENCODED);
+			this.codecRegistry = configuration.getCodecRegistry();
+			this.mapper = codecRegistry.getDefaultCodec();
+			// untyped methods get the tree, as they always did
+			this.valueType = method.getRawType().isAssignableFrom(JsonNode.class) ?
+					codecRegistry.constructType(JsonNode.class) : codecRegistry.constructType(method.getReturnType());
+			this.formType = mapper.getTypeFactory().constructMapType(Map.class, String.class, String.class);
+			this.reader = mapper.readerFor(valueType);
+			this.writer = formEncoded ? null : codecRegistry.getWriter(contentType);
+			this.acceptableMediaTypes = Collections.unmodifiableList(codecRegistry.getMediaTypes());
+			this.returnsVoid = method.returnsVoid();
+			this.unwrapArrays = method.returnsPublisher() && !valueType.isContainerType();
+			this.handlerChain = configuration.getHandlerExecutionChain(command.getUrl());
+			this.streamingExtractor = new ResponseEntityExtractor(this, true);
+			this.bufferingExtractor = new ResponseEntityExtractor(this, false);
+			
+			Map<String, String> names = new HashMap<String, String>();
+			for (String name : method.getParamNames()) {
+				names.put(name, encodeQueryParam(name));
+			}
+			this.encodedParamNames = Collections.unmodifiableMap(names);
+		}
+		
+		public HttpHeaders createHeaders() {
+			HttpHeaders headers = new HttpHeaders();
+			headers.set(HttpHeaders.CONTENT_TYPE, contentTypeValue);
+			return headers;
+		}
+		
+		/**
+		 * Returns {@code true} if the request body has to be sent as a form,
+		 * only parsing the header again when a listener changed it.
+		 */
+		public boolean isFormEncoded(HttpHeaders headers) {
+			String value = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+			if (contentTypeValue.equals(value)) {
+				return formEncoded;
+			}
+			MediaType mediaType = headers.getContentType();
+			return mediaType != null && mediaType.includes(MediaType.APPLICATION_FORM_URLENCODED);
+		}
+		
+		public URI expandUri(Object[] args) throws URISyntaxException {
+			if (staticUri != null) {
+				return staticUri;
+			}
+			if (args != null) {
+				return uriTemplate.expand(args);
+			}
+			return new URI(uriTemplate.toString());
+		}
+		
+		/**
+		 * Appends every {@code String} value of the body to the query string of the given URI.
+		 */
+		public URI appendQueryParams(URI uri, MultiValueMap<String, Object> body) throws URISyntaxException {
+			if (body.isEmpty()) {
+				return uri;
+			}
+			if (uri.getRawFragment() != null) {
+				UriComponentsBuilder builder = UriComponentsBuilder.fromUri(uri);
+				for (Map.Entry<String, List<Object>> entry : body.entrySet()) {
+					for (Object value : entry.getValue()) {
+						if (value instanceof String) {
+							builder.queryParam(encodeParamName(entry.getKey()), encodeQueryParam((String) value));
+						}
+					}
+				}
+				return builder.build(true).toUri();
+			}
+			String url = uri.toString();
+			StringBuilder buf = new StringBuilder(url.length() + 16 * body.size()).append(url);
+			boolean hasQuery = uri.getRawQuery() != null;
+			for (Map.Entry<String, List<Object>> entry : body.entrySet()) {
+				String name = null;
+				for (Object value : entry.getValue()) {
+					if (value instanceof String) {
+						if (name == null) {
+							name = encodeParamName(entry.getKey());
+						}
+						buf.append(hasQuery ? '&' : '?').append(name).append('=')
+							.append(encodeQueryParam((String) value));
+						hasQuery = true;
+					}
+				}
+			}
+			return (buf.length() == url.length()) ? uri : new URI(buf.toString());
+		}
+		
+		/**
+		 * Serializes the request body with the codec registered for its content type,
+		 * leaving form bodies and unknown content types to the RestTemplate converters.
+		 */
+		public Object encodeBody(HttpHeaders headers, MultiValueMap<String, Object> body) throws IOException {
+			if (body == null) {
+				return null;
+			}
+			ObjectWriter writerToUse = writer;
+			if (!contentTypeValue.equals(headers.getFirst(HttpHeaders.CONTENT_TYPE))) {
+				MediaType mediaType = headers.getContentType();
+				writerToUse = (mediaType == null || mediaType.includes(MediaType.APPLICATION_FORM_URLENCODED)) ?
+						null : codecRegistry.getWriter(mediaType);
+			}
+			return (writerToUse != null) ? writerToUse.writeValueAsBytes(body) : body;
+		}
+		
+		public RequestEntityCallback createRequestCallback(RequestEntity requestEntity,
+				List<HttpMessageConverter<?>> messageConverters) throws IOException {
+			HttpHeaders headers = requestEntity.getHeaders();
+			MultiValueMap<String, Object> body = requestEntity.getBody();
+			// GET parameters have been moved to the query string
+			Object content = (requestEntity.getMethod() == HttpMethod.GET) ? null : encodeBody(headers, body);
+			return new RequestEntityCallback(headers, content, acceptableMediaTypes, messageConverters, metrics);
+		}
+		
+		public MethodMetrics getMetrics() {
+			return metrics;
+		}
+		
+		/**
+		 * Returns the extractor decoding responses straight into the return type
+		 * ({@code streaming}), or the one buffering them for the listeners.
+		 */
+		public ResponseEntityExtractor getResponseExtractor(boolean streaming) {
+			return streaming ? streamingExtractor : bufferingExtractor;
+		}
+		
+		/**
+		 * Returns {@code true} if no listener can look at the response, so that
+		 * it can be decoded while it is read.
+		 */
+		public boolean isStreaming() {
+			return ObjectUtils.isEmpty(handlerChain.getListeners());
+		}
+		
+		public ObjectMapper getCodec(MediaType mediaType) {
+			return codecRegistry.getCodec(mediaType);
+		}
+		
+		/**
+		 * Returns the reader for the return type using the given codec.
+		 */
+		public ObjectReader getReader(ObjectMapper codec) {
+			if (codec == mapper) {
+				return reader;
+			}
+			ObjectReader codecReader = readers.get(codec);
+			if (codecReader == null) {
+				codecReader = codec.readerFor(valueType);
+				readers.putIfAbsent(codec, codecReader);
+			}
+			return codecReader;
+		}
+		
+		public boolean returnsVoid() {
+			return returnsVoid;
+		}
+		
+		/**
+		 * Returns an iterator decoding the elements of a raw body one at a time. A root
+		 * array is unwrapped unless the return type is a collection or array itself.
+		 */
+		public Iterator<?> readElements(BufferedBody bufferedBody) throws IOException {
+			ObjectReader codecReader = getReader(bufferedBody.getCodec());
+			if (unwrapArrays) {
+				return codecReader.readValues(bufferedBody.getContent());
+			}
+			return Collections.singleton(bufferedBody.read(codecReader)).iterator();
+		}
+		
+		/**
+		 * Returns an iterator converting the elements of a (possibly listener-modified)
+		 * body one at a time, see {@link #readElements(BufferedBody)}.
+		 */
+		public Iterator<?> readElements(Object responseBody, final Class<?> rawType) throws IOException {
+			boolean isArray = (responseBody instanceof JsonNode) ? ((JsonNode) responseBody).isArray() :
+				(responseBody instanceof Collection);
+			if (!unwrapArrays || !isArray) {
+				Object value = rawType.isInstance(responseBody) ? responseBody : readValue(responseBody);
+				return Collections.singleton(value).iterator();
+			}
+			final Iterator<?> source = ((Iterable<?>) responseBody).iterator();
+			return new Iterator<Object>() {
+				@Override
+				public boolean hasNext() {
+					return source.hasNext();
+				}
+				@Override
+				public Object next() {
+					Object element = source.next();
+					if (rawType.isInstance(element)) {
+						return element;
+					}
+					try {
+						return readValue(element);
+					} catch (IOException ex) {
+						throw new HttpMessageNotReadableException("Could not read document: " + ex.getMessage(), ex);
+					}
+				}
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		/**
+		 * Converts the (possibly listener-modified) response body to the return type.
+		 */
+		public Object readValue(Object responseBody) throws IOException {
+			if (responseBody instanceof JsonNode) {
+				return reader.readValue((JsonNode) responseBody);
+			} else if (responseBody instanceof String) {
+				return reader.readValue((String) responseBody);
+			}
+			return mapper.convertValue(responseBody, valueType);
+		}
+		
+		/**
+		 * Creates the reader of the return type for every registered codec, then
+		 * writes an empty body and reads an empty document, so that serializers,
+		 * deserializers and parsers are created and their classes loaded.
+		 */
+		public void warmUp() {
+			Set<ObjectMapper> codecs = Collections.newSetFromMap(new IdentityHashMap<ObjectMapper, Boolean>());
+			for (MediaType mediaType : acceptableMediaTypes) {
+				codecs.add(codecRegistry.getCodec(mediaType));
+			}
+			for (ObjectMapper codec : codecs) {
+				getReader(codec);
+			}
+			try {
+				if (writer != null) {
+					writer.writeValueAsBytes(new LinkedMultiValueMap<String, Object>());
+				}
+				reader.readValue("null");
+			} catch (Exception ex) {
+				// only the side effects matter, a type may well reject the input
+			}
+		}
+		
+		private String encodeParamName(String name) {
+			String encoded = encodedParamNames.get(name);
+			return (encoded != null) ? encoded : encodeQueryParam(name);
+		}
+		
+		private static String encodeQueryParam(String value) {
+			try {
+				return UriUtils.encodeQueryParam(value, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		public MediaType getContentType() {
+			return contentType;
+		}
+		
+		public JavaType getValueType() {
+			return valueType;
+		}
+		
+		public JavaType getFormType() {
+			return formType;
+		}
+		
+		public ObjectReader getReader() {
+			return reader;
+		}
+		
+		public HandlerExecutionChain getHandlerChain() {
+			return handlerChain;
+		}
+	}
+	
+	/**
+	 * A request built for a call, with its entry in the HTTP cache, if any.
+	 */
+	private static class PreparedRequest {
+		
+		final RequestEntity requestEntity;
+		final Object cacheKey;
+		final HttpCacheEntry cacheEntry;
+		
+		PreparedRequest(RequestEntity requestEntity, Object cacheKey, HttpCacheEntry cacheEntry) {
+			this.requestEntity = requestEntity;
+			this.cacheKey = cacheKey;
+			this.cacheEntry = cacheEntry;
+		}
+		
+		/**
+		 * Returns the key identifying the calls that send the same request.
+		 */
+		Object getCoalescingKey() {
+			return Arrays.asList(requestEntity.getUrl(), requestEntity.getHeaders());
+		}
 	}
 	
 	public static class ParamMap<V> extends HashMap<String, V> {
@@ -21,9 +21,12 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.annotate.Batch;
 
 /**
  * MapperProxy
@@ -36,11 +39,22 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
 	private final Configuration configuration;
 	private final Class<T> mapperInterface;
 	private final Map<Method, MapperMethod> methodCache;
+	private final Map<Method, String[]> parameterNames;
 
 	public MapperProxy(Configuration configuration, Class<T> mapperInterface, Map<Method, MapperMethod> methodCache) {
+		this(configuration, mapperInterface, methodCache, null);
+	}
+
+	/**
+	 * Create a new {@code MapperProxy}.
+	 * @param parameterNames the parameter names of the methods known at compile time, may be {@code null}
+	 */
+	public MapperProxy(Configuration configuration, Class<T> mapperInterface, Map<Method, MapperMethod> methodCache,
+			Map<Method, String[]> parameterNames) {
 		this.configuration = configuration;
 		this.mapperInterface = mapperInterface;
 		this.methodCache = methodCache;
+		this.parameterNames = parameterNames;
 	}
 
 	@Override
@@ -53,19 +67,77 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
 				throw unwrapThrowable(wrapped);
 			}
 		}
-		final MapperMethod mapperMethod = cachedMapperMethod(method);
+		return execute(cachedMapperMethod(method), args);
+	}
+	
+	/**
+	 * Runs a call of the given mapper method on the template matching its return type.
+	 */
+	Object execute(MapperMethod mapperMethod, Object[] args) throws Exception {
+		if (mapperMethod.isAsync()) {
+			Executor taskExecutor = configuration.getTaskExecutor();
+			if (taskExecutor != null && !mapperMethod.isReactive()) {
+				return mapperMethod.executeAsync(taskExecutor, configuration.getRestTemplate(), args);
+			}
+			return mapperMethod.executeAsync(configuration.getAsyncRestTemplate(), args);
+		}
 		return mapperMethod.execute(configuration.getRestTemplate(), args);
 	}
 
-	private MapperMethod cachedMapperMethod(Method method) {
+	Class<T> getMapperInterface() {
+		return mapperInterface;
+	}
+	
+	MapperMethod cachedMapperMethod(Method method) {
 		MapperMethod mapperMethod = methodCache.get(method);
 		if (mapperMethod == null) {
-			mapperMethod = new MapperMethod(mapperInterface, method, configuration);
-			methodCache.put(method, mapperMethod);
+			// build it once, state such as in-flight calls lives in the MapperMethod
+			synchronized (methodCache) {
+				mapperMethod = methodCache.get(method);
+				if (mapperMethod == null) {
+					mapperMethod = new MapperMethod(mapperInterface, method, configuration,
+							(parameterNames != null) ? parameterNames.get(method) : null);
+					Batch batchInfo = method.getAnnotation(Batch.class);
+					if (batchInfo != null) {
+						mapperMethod.setBatcher(createBatcher(method, mapperMethod, batchInfo));
+					}
+					methodCache.put(method, mapperMethod);
+				}
+			}
 		}
 		return mapperMethod;
 	}
 	
+	private RequestBatcher createBatcher(Method method, MapperMethod mapperMethod, Batch batchInfo) {
+		if (method.getParameterTypes().length != 1 || mapperMethod.isReactive()) {
+			throw new BindingException("Batched method " + mapperMethod.getId()
+					+ " must take the key as its only parameter and must not return a publisher.");
+		}
+		Method batchMethod = null;
+		for (Method candidate : mapperInterface.getMethods()) {
+			if (candidate.getName().equals(batchInfo.value())) {
+				if (batchMethod != null) {
+					throw new BindingException("Ambiguous batch method " + batchInfo.value() + " for " + mapperMethod.getId() + ".");
+				}
+				batchMethod = candidate;
+			}
+		}
+		if (batchMethod == null || batchMethod.isAnnotationPresent(Batch.class)) {
+			throw new BindingException("Invalid batch method " + batchInfo.value() + " for " + mapperMethod.getId() + ".");
+		}
+		Class<?>[] parameterTypes = batchMethod.getParameterTypes();
+		if (parameterTypes.length != 1 || !(parameterTypes[0].isArray() || parameterTypes[0] == String.class
+				|| Collection.class.isAssignableFrom(parameterTypes[0]))) {
+			throw new BindingException("Batch method " + batchInfo.value()
+					+ " must take the keys as its only parameter, as an array, a collection or a String.");
+		}
+		MapperMethod batchMapperMethod = cachedMapperMethod(batchMethod);
+		if (batchMapperMethod.isAsync()) {
+			throw new BindingException("Batch method " + batchMapperMethod.getId() + " must not return a future or a publisher.");
+		}
+		return new RequestBatcher(configuration, mapperMethod, batchMapperMethod, parameterTypes[0], batchInfo);
+	}
+	
 	private Throwable unwrapThrowable(Throwable wrapped) {
 		Throwable unwrapped = wrapped;
 		while (true) {
@@ -13,15 +13,18 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.devefx.httpmapper.binding;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.devefx.httpmapper.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * MapperProxyFactory
@@ -30,8 +33,13 @@ import org.devefx.httpmapper.Configuration;
  */
 public class MapperProxyFactory<T> {
 	
+	private static final Logger logger = LoggerFactory.getLogger(MapperProxyFactory.class);
+	
 	private final Class<T> mapperInterface;
 	private final Map<Method, MapperMethod> methodCache = new ConcurrentHashMap<Method, MapperMethod>();
+	private Method[] generatedMethods;
+	private Map<Method, String[]> parameterNames;
+	private volatile Constructor<? extends GeneratedMapper> generatedConstructor;
 	
 	public MapperProxyFactory(Class<T> mapperInterface) {
 		this.mapperInterface = mapperInterface;
@@ -45,12 +53,102 @@ public class MapperProxyFactory<T> {
 		return methodCache;
 	}
 	
+	/**
+	 * Generates a class implementing the mapper interface, which later instances
+	 * are created from instead of a {@link Proxy}. Its methods call their
+	 * {@link MapperMethod} directly, without looking it up by {@link Method}.
+	 * @return {@code false} if the interface cannot be implemented outside of its
+	 * package, or the class could not be generated; proxies are used then
+	 */
+	public synchronized boolean generateImplementation() {
+		if (generatedConstructor != null) {
+			return true;
+		}
+		Method[] methods = MapperClassGenerator.getMapperMethods(mapperInterface);
+		if (!MapperClassGenerator.isSupported(mapperInterface, methods)) {
+			logger.debug("Using a proxy for mapper {}, it or a type it returns is not public.", mapperInterface.getName());
+			return false;
+		}
+		try {
+			Class<? extends GeneratedMapper> generatedClass = MapperClassGenerator.generate(mapperInterface, methods);
+			this.generatedMethods = methods;
+			this.generatedConstructor = generatedClass.getConstructor(MapperProxy.class, Method[].class, MapperMethod[].class);
+			return true;
+		} catch (Throwable ex) {
+			logger.warn("Could not generate an implementation of mapper " + mapperInterface.getName()
+					+ ", using a proxy.", ex);
+			return false;
+		}
+	}
+	
+	/**
+	 * Creates later instances from a class generated at compile time by the
+	 * {@link org.devefx.httpmapper.processor.MapperProcessor}, which also provides
+	 * the methods to implement and their parameter names.
+	 * @return {@code false} if the class does not match the interface; proxies are used then
+	 */
+	public synchronized boolean useImplementation(Class<? extends GeneratedMapper> implementationClass) {
+		try {
+			Method[] methods = (Method[]) implementationClass.getMethod("getMapperMethods").invoke(null);
+			String[][] names = (String[][]) implementationClass.getField("PARAMETER_NAMES").get(null);
+			Map<Method, String[]> parameterNames = new HashMap<Method, String[]>();
+			for (int i = 0; i < methods.length; i++) {
+				parameterNames.put(methods[i], names[i]);
+			}
+			this.generatedMethods = methods;
+			this.parameterNames = parameterNames;
+			this.generatedConstructor = implementationClass.getConstructor(MapperProxy.class, Method[].class, MapperMethod[].class);
+			return true;
+		} catch (Throwable ex) {
+			logger.warn("Could not use the compiled implementation " + implementationClass.getName()
+					+ " of mapper " + mapperInterface.getName() + ", using a proxy.", ex);
+			return false;
+		}
+	}
+	
+	/**
+	 * Builds the {@code MapperMethod}s of all the methods of the interface up front,
+	 * so that invalid mappings fail now and the first calls do not pay for them.
+	 * @param warmUp whether to also run the codecs of every method once
+	 */
+	public void initialize(Configuration config, boolean warmUp) {
+		Method[] methods = (generatedMethods != null) ? generatedMethods : MapperClassGenerator.getMapperMethods(mapperInterface);
+		MapperProxy<T> mapperProxy = new MapperProxy<T>(config, mapperInterface, methodCache, parameterNames);
+		for (Method method : methods) {
+			MapperMethod mapperMethod = mapperProxy.cachedMapperMethod(method);
+			if (warmUp) {
+				mapperMethod.warmUp();
+			}
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
 	protected T newInstance(MapperProxy<T> mapperProxy) {
 		return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class[] { mapperInterface }, mapperProxy);
 	}
 	
+	/**
+	 * Creates an instance of the generated class, building the {@code MapperMethod}s
+	 * of all the methods of the interface up front.
+	 */
+	@SuppressWarnings("unchecked")
+	protected T newGeneratedInstance(MapperProxy<T> mapperProxy) {
+		Method[] methods = generatedMethods;
+		MapperMethod[] mapperMethods = new MapperMethod[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			mapperMethods[i] = mapperProxy.cachedMapperMethod(methods[i]);
+		}
+		try {
+			return (T) generatedConstructor.newInstance(mapperProxy, methods, mapperMethods);
+		} catch (Exception ex) {
+			throw new BindingException("Could not instantiate the generated mapper " + mapperInterface.getName(), ex);
+		}
+	}
+	
 	public T newInstance(Configuration config) {
+		if (generatedConstructor != null) {
+			return newGeneratedInstance(new MapperProxy<T>(config, mapperInterface, methodCache, parameterNames));
+		}
 		final MapperProxy<T> mapperProxy = new MapperProxy<T>(config, mapperInterface, methodCache);
 		return newInstance(mapperProxy);
 	}
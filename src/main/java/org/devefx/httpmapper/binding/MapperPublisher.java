@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.web.client.AsyncRestTemplate;
+
+/**
+ * A Reactive Streams {@link Publisher} returned by mapper methods declaring one.
+ * <p>
+ * Every subscription issues its own request, lazily on the first demand, and
+ * cancelling the subscription cancels the exchange. The request goes through the
+ * bulkheads, the circuit breaker and the concurrency limiter of the method, but
+ * is neither cached, retried nor hedged. A JSON array response is
+ * emitted element by element as they are requested, any other response as a
+ * single element.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class MapperPublisher implements Publisher<Object> {
+	
+	private final MapperMethod mapperMethod;
+	
+	private final AsyncRestTemplate asyncRestTemplate;
+	
+	private final Object[] args;
+	
+	public MapperPublisher(MapperMethod mapperMethod, AsyncRestTemplate asyncRestTemplate, Object[] args) {
+		this.mapperMethod = mapperMethod;
+		this.asyncRestTemplate = asyncRestTemplate;
+		this.args = args;
+	}
+	
+	@Override
+	public void subscribe(Subscriber<? super Object> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber must not be null");
+		}
+		subscriber.onSubscribe(new MapperSubscription(subscriber));
+	}
+	
+	private class MapperSubscription implements Subscription, ListenableFutureCallback<Object> {
+		
+		private final Subscriber<? super Object> subscriber;
+		
+		private final AtomicBoolean started = new AtomicBoolean();
+		
+		private final AtomicLong requested = new AtomicLong();
+		
+		private final AtomicInteger wip = new AtomicInteger();
+		
+		private volatile boolean cancelled;
+		
+		private volatile ListenableFuture<Object> exchange;
+		
+		private volatile Iterator<?> elements;
+		
+		private volatile Throwable error;
+		
+		private boolean done;
+		
+		MapperSubscription(Subscriber<? super Object> subscriber) {
+			this.subscriber = subscriber;
+		}
+		
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException("Request must be positive, was " + n);
+				drain();
+				return;
+			}
+			long current;
+			do {
+				current = requested.get();
+				if (current == Long.MAX_VALUE) {
+					break;
+				}
+			} while (!requested.compareAndSet(current, (current + n < 0) ? Long.MAX_VALUE : current + n));
+			
+			if (started.compareAndSet(false, true)) {
+				try {
+					exchange = mapperMethod.sendElementsAsync(asyncRestTemplate, args);
+					exchange.addCallback(this);
+					if (cancelled) {
+						exchange.cancel(true);
+					}
+				} catch (Throwable ex) {
+					error = ex;
+				}
+			}
+			drain();
+		}
+		
+		@Override
+		public void cancel() {
+			cancelled = true;
+			ListenableFuture<Object> current = exchange;
+			if (current != null) {
+				current.cancel(true);
+			}
+		}
+		
+		@Override
+		public void onSuccess(Object result) {
+			elements = (Iterator<?>) result;
+			drain();
+		}
+		
+		@Override
+		public void onFailure(Throwable ex) {
+			error = ex;
+			drain();
+		}
+		
+		/**
+		 * Emits as many elements as requested, from whichever thread gets here
+		 * first; signals are never delivered concurrently.
+		 */
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				if (done || cancelled) {
+					return;
+				}
+				if (error != null) {
+					done = true;
+					subscriber.onError(error);
+					return;
+				}
+				Iterator<?> source = elements;
+				if (source != null) {
+					try {
+						long emitted = 0;
+						long demand = requested.get();
+						while (emitted != demand && !cancelled && source.hasNext()) {
+							subscriber.onNext(source.next());
+							emitted++;
+						}
+						if (!cancelled && !source.hasNext()) {
+							done = true;
+							subscriber.onComplete();
+							return;
+						}
+						if (emitted != 0 && demand != Long.MAX_VALUE) {
+							requested.addAndGet(-emitted);
+						}
+					} catch (Throwable ex) {
+						done = true;
+						subscriber.onError(ex);
+						return;
+					}
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+	}
+	
+}
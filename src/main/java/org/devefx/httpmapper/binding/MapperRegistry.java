@@ -16,10 +16,15 @@
 
 package org.devefx.httpmapper.binding;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.devefx.httpmapper.Configuration;
 
@@ -31,7 +36,8 @@ import org.devefx.httpmapper.Configuration;
 public class MapperRegistry {
 	
 	private final Configuration config;
-	private final Map<Class<?>, MapperProxyFactory<?>> knownMappers = new HashMap<Class<?>, MapperProxyFactory<?>>();
+	private final Map<Class<?>, MapperProxyFactory<?>> knownMappers = new ConcurrentHashMap<Class<?>, MapperProxyFactory<?>>();
+	private final Map<Class<?>, Future<?>> initializations = new ConcurrentHashMap<Class<?>, Future<?>>();
 	
 	public MapperRegistry(Configuration config) {
 		this.config = config;
@@ -43,6 +49,10 @@ public class MapperRegistry {
 		if (mapperProxyFactory == null) {
 			throw new BindingException("Type " + type + " is not known to the MapperRegistry.");
 		}
+		Future<?> initialization = initializations.get(type);
+		if (initialization != null) {
+			awaitInitialization(type, initialization);
+		}
 		try {
 			return mapperProxyFactory.newInstance(config);
 		} catch (Exception e) {
@@ -61,7 +71,17 @@ public class MapperRegistry {
 			}
 			boolean loadCompleted = false;
 			try {
-				knownMappers.put(type, new MapperProxyFactory<T>(type));
+				MapperProxyFactory<T> mapperProxyFactory = new MapperProxyFactory<T>(type);
+				Class<? extends GeneratedMapper> implementationClass = MapperIndex.findImplementation(type);
+				if (implementationClass == null || !mapperProxyFactory.useImplementation(implementationClass)) {
+					if (config.isUseGeneratedMappers()) {
+						mapperProxyFactory.generateImplementation();
+					}
+				}
+				knownMappers.put(type, mapperProxyFactory);
+				if (config.isEagerInitialization()) {
+					initializations.put(type, initialize(mapperProxyFactory));
+				}
 				loadCompleted = true;
 			} finally {
 				if (!loadCompleted) {
@@ -71,8 +91,71 @@ public class MapperRegistry {
 		}
 	}
 	
+	/**
+	 * Builds the mapper methods of the given mapper on the initialization executor
+	 * of the configuration, so that mappers added one after the other are built
+	 * in parallel.
+	 */
+	private Future<?> initialize(final MapperProxyFactory<?> mapperProxyFactory) {
+		final boolean warmUp = config.isWarmUpMappers();
+		FutureTask<Object> task = new FutureTask<Object>(new Runnable() {
+			@Override
+			public void run() {
+				mapperProxyFactory.initialize(config, warmUp);
+			}
+		}, null);
+		config.getInitializationExecutor().execute(task);
+		return task;
+	}
+	
+	/**
+	 * Waits until the mapper methods of all mappers added so far have been built.
+	 * @throws BindingException if a mapper could not be built, any further
+	 * failures being added to it as suppressed exceptions
+	 */
+	public void awaitInitialization() {
+		BindingException failure = null;
+		for (Map.Entry<Class<?>, Future<?>> entry : initializations.entrySet()) {
+			try {
+				awaitInitialization(entry.getKey(), entry.getValue());
+			} catch (BindingException ex) {
+				if (failure == null) {
+					failure = ex;
+				} else {
+					failure.addSuppressed(ex);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+	
+	private void awaitInitialization(Class<?> type, Future<?> initialization) {
+		try {
+			initialization.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BindingException("Interrupted while building mapper " + type.getName() + ".", e);
+		} catch (ExecutionException e) {
+			throw new BindingException("Error building mapper " + type.getName() + ". Cause: " + e.getCause(), e.getCause());
+		}
+		initializations.remove(type, initialization);
+	}
+	
 	public Collection<Class<?>> getMappers() {
 		return Collections.unmodifiableCollection(knownMappers.keySet());
 	}
 	
+	/**
+	 * Returns the mapper methods built so far, of all known mappers.
+	 */
+	public Collection<MapperMethod> getMapperMethods() {
+		List<MapperMethod> mapperMethods = new ArrayList<MapperMethod>();
+		for (MapperProxyFactory<?> mapperProxyFactory : knownMappers.values()) {
+			mapperMethods.addAll(mapperProxyFactory.getMethodCache().values());
+		}
+		return mapperMethods;
+	}
+	
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.annotate.Batch;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.util.StringUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Collects the keys of calls to a single-item mapper method and sends them
+ * as one call of its batch method, see {@link Batch}.
+ * <p>
+ * The first call of a batch schedules it to be sent once the window elapsed,
+ * a batch reaching the maximum size is sent at once. The windows are timed on
+ * the {@link Configuration#getBatchScheduler() batch scheduler}, the batches are
+ * sent on the {@link Configuration#getBatchExecutor() batch executor}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RequestBatcher {
+	
+	private final Configuration configuration;
+	private final MapperMethod itemMethod;
+	private final MapperMethod batchMethod;
+	private final Class<?> keysType;
+	private final long windowNanos;
+	private final int maxSize;
+	private final String resultKey;
+	private final String separator;
+	
+	private PendingBatch pending;
+	
+	/**
+	 * Create a new {@code RequestBatcher}.
+	 * @param configuration the configuration providing the template and the executors
+	 * @param itemMethod the single-item method
+	 * @param batchMethod the batch method
+	 * @param keysType the parameter type of the batch method
+	 * @param batchInfo the batching settings
+	 */
+	public RequestBatcher(Configuration configuration, MapperMethod itemMethod, MapperMethod batchMethod,
+			Class<?> keysType, Batch batchInfo) {
+		if (batchInfo.maxSize() <= 0) {
+			throw new BindingException("Batch size of " + itemMethod.getId() + " must be positive.");
+		}
+		this.configuration = configuration;
+		this.itemMethod = itemMethod;
+		this.batchMethod = batchMethod;
+		this.keysType = keysType;
+		this.windowNanos = batchInfo.timeUnit().toNanos(batchInfo.window());
+		this.maxSize = batchInfo.maxSize();
+		this.resultKey = batchInfo.resultKey();
+		this.separator = batchInfo.separator();
+	}
+	
+	/**
+	 * Adds a key to the pending batch.
+	 * @return a future completed with the converted item of the key
+	 */
+	public ListenableFuture<Object> submit(Object key) {
+		SettableListenableFuture<Object> future = new SettableListenableFuture<Object>();
+		PendingBatch full = null;
+		synchronized (this) {
+			if (pending == null) {
+				final PendingBatch batch = new PendingBatch();
+				batch.timeout = configuration.getBatchScheduler().schedule(new Runnable() {
+					@Override
+					public void run() {
+						flush(batch);
+					}
+				}, windowNanos, TimeUnit.NANOSECONDS);
+				pending = batch;
+			}
+			pending.add(key, future);
+			if (pending.size() >= maxSize) {
+				full = pending;
+				pending = null;
+			}
+		}
+		if (full != null) {
+			full.timeout.cancel(false);
+			dispatch(full);
+		}
+		return future;
+	}
+	
+	/**
+	 * Adds a key to the pending batch and waits for its item, at most
+	 * {@link Configuration#getBatchTimeout() the batch timeout}.
+	 */
+	public Object execute(Object key) throws Exception {
+		ListenableFuture<Object> future = submit(key);
+		long timeout = configuration.getBatchTimeout();
+		try {
+			return (timeout > 0) ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+		} catch (TimeoutException e) {
+			future.cancel(false);
+			throw new BindingException("Timed out after " + timeout + " ms waiting for the batch of "
+					+ itemMethod.getId(), e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+	
+	private void flush(PendingBatch batch) {
+		synchronized (this) {
+			if (pending != batch) {
+				// already sent because it was full
+				return;
+			}
+			pending = null;
+		}
+		dispatch(batch);
+	}
+	
+	private void dispatch(final PendingBatch batch) {
+		try {
+			configuration.getBatchExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					send(batch);
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			fail(batch, ex);
+		}
+	}
+	
+	private void send(PendingBatch batch) {
+		List<Object> keys = new ArrayList<Object>(batch.callers.keySet());
+		Map<Object, Object> items;
+		try {
+			Object response = batchMethod.execute(configuration.getRestTemplate(), new Object[] { toArgument(keys) });
+			items = split(keys, response);
+		} catch (Throwable ex) {
+			fail(batch, ex);
+			return;
+		}
+		for (Map.Entry<Object, List<SettableListenableFuture<Object>>> entry : batch.callers.entrySet()) {
+			for (SettableListenableFuture<Object> future : entry.getValue()) {
+				try {
+					future.set(itemMethod.convertBatchItem(items.get(entry.getKey())));
+				} catch (Throwable ex) {
+					future.setException(ex);
+				}
+			}
+		}
+	}
+	
+	private void fail(PendingBatch batch, Throwable ex) {
+		for (List<SettableListenableFuture<Object>> futures : batch.callers.values()) {
+			for (SettableListenableFuture<Object> future : futures) {
+				future.setException(ex);
+			}
+		}
+	}
+	
+	private Object toArgument(List<Object> keys) {
+		if (keysType.isArray()) {
+			Object array = Array.newInstance(keysType.getComponentType(), keys.size());
+			for (int i = 0; i < keys.size(); i++) {
+				Array.set(array, i, keys.get(i));
+			}
+			return array;
+		} else if (keysType == String.class) {
+			return StringUtils.collectionToDelimitedString(keys, separator);
+		} else if (keysType.isAssignableFrom(LinkedHashSet.class)) {
+			return new LinkedHashSet<Object>(keys);
+		}
+		return keys;
+	}
+	
+	/**
+	 * Splits the response of the batch method into the items of the keys.
+	 */
+	private Map<Object, Object> split(List<Object> keys, Object response) {
+		Map<Object, Object> items = new HashMap<Object, Object>();
+		if (response == null) {
+			return items;
+		}
+		if (response instanceof Map || (response instanceof JsonNode && ((JsonNode) response).isObject())) {
+			Map<String, Object> byKey = new HashMap<String, Object>();
+			if (response instanceof Map) {
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) response).entrySet()) {
+					byKey.put(String.valueOf(entry.getKey()), entry.getValue());
+				}
+			} else {
+				Iterator<Map.Entry<String, JsonNode>> it = ((JsonNode) response).fields();
+				while (it.hasNext()) {
+					Map.Entry<String, JsonNode> entry = it.next();
+					byKey.put(entry.getKey(), entry.getValue());
+				}
+			}
+			for (Object key : keys) {
+				items.put(key, byKey.get(String.valueOf(key)));
+			}
+			return items;
+		}
+		List<Object> elements = toList(response);
+		if (!StringUtils.hasLength(resultKey)) {
+			if (elements.size() != keys.size()) {
+				throw new BindingException("Batch method " + batchMethod.getId() + " returned " + elements.size()
+						+ " items for " + keys.size() + " keys, set a resultKey to match them by property.");
+			}
+			for (int i = 0; i < keys.size(); i++) {
+				items.put(keys.get(i), elements.get(i));
+			}
+			return items;
+		}
+		Map<String, Object> byKey = new HashMap<String, Object>();
+		for (Object element : elements) {
+			if (element != null) {
+				byKey.put(getResultKey(element), element);
+			}
+		}
+		for (Object key : keys) {
+			items.put(key, byKey.get(String.valueOf(key)));
+		}
+		return items;
+	}
+	
+	private List<Object> toList(Object response) {
+		List<Object> elements = new ArrayList<Object>();
+		if (response instanceof Collection) {
+			elements.addAll((Collection<?>) response);
+		} else if (response.getClass().isArray()) {
+			int length = Array.getLength(response);
+			for (int i = 0; i < length; i++) {
+				elements.add(Array.get(response, i));
+			}
+		} else if (response instanceof JsonNode && ((JsonNode) response).isArray()) {
+			for (JsonNode element : (JsonNode) response) {
+				elements.add(element);
+			}
+		} else {
+			throw new BindingException("Batch method " + batchMethod.getId() + " must return a map, a collection or an array, not "
+					+ response.getClass().getName() + ".");
+		}
+		return elements;
+	}
+	
+	private String getResultKey(Object element) {
+		Object value;
+		if (element instanceof Map) {
+			value = ((Map<?, ?>) element).get(resultKey);
+		} else if (element instanceof JsonNode) {
+			JsonNode node = ((JsonNode) element).get(resultKey);
+			value = (node == null || node.isNull()) ? null : (node.isValueNode() ? node.asText() : node.toString());
+		} else {
+			BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(element);
+			if (beanWrapper.isReadableProperty(resultKey)) {
+				value = beanWrapper.getPropertyValue(resultKey);
+			} else {
+				value = PropertyAccessorFactory.forDirectFieldAccess(element).getPropertyValue(resultKey);
+			}
+		}
+		return String.valueOf(value);
+	}
+	
+	/**
+	 * The keys of a batch not sent yet, and the callers waiting for each key.
+	 */
+	private static class PendingBatch {
+		
+		final Map<Object, List<SettableListenableFuture<Object>>> callers =
+				new LinkedHashMap<Object, List<SettableListenableFuture<Object>>>();
+		
+		ScheduledFuture<?> timeout;
+		
+		void add(Object key, SettableListenableFuture<Object> future) {
+			List<SettableListenableFuture<Object>> futures = callers.get(key);
+			if (futures == null) {
+				futures = new ArrayList<SettableListenableFuture<Object>>(1);
+				callers.put(key, futures);
+			}
+			futures.add(future);
+		}
+		
+		int size() {
+			return callers.size();
+		}
+	}
+	
+}
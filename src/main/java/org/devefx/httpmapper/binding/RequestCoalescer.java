@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Runs at most one call per key at a time, callers arriving while a call is
+ * in flight wait for its outcome instead of starting their own.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RequestCoalescer {
+	
+	private final ConcurrentMap<Object, FutureTask<Object>> inFlight = new ConcurrentHashMap<Object, FutureTask<Object>>();
+	
+	private final ConcurrentMap<Object, ListenableFuture<Object>> inFlightAsync =
+			new ConcurrentHashMap<Object, ListenableFuture<Object>>();
+	
+	/**
+	 * Runs the given call, or waits for the one already running for the same key.
+	 * @param key the key identifying identical calls
+	 * @param callable the call
+	 * @return the result of the call
+	 * @throws Exception the exception thrown by the call
+	 */
+	public Object execute(Object key, Callable<Object> callable) throws Exception {
+		FutureTask<Object> task = new FutureTask<Object>(callable);
+		FutureTask<Object> existing = inFlight.putIfAbsent(key, task);
+		if (existing == null) {
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(key, task);
+			}
+		} else {
+			task = existing;
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Starts the given asynchronous call, or joins the one already running for
+	 * the same key. Each caller gets its own future: cancelling it only detaches
+	 * that caller, the shared call runs to completion for the others.
+	 * @param key the key identifying identical calls
+	 * @param callable starts the call
+	 * @return the future of the result of the call
+	 * @throws Exception the exception thrown when starting the call
+	 */
+	public ListenableFuture<Object> executeAsync(final Object key, Callable<ListenableFuture<Object>> callable)
+			throws Exception {
+		final SettableListenableFuture<Object> shared = new SettableListenableFuture<Object>();
+		ListenableFuture<Object> existing = inFlightAsync.putIfAbsent(key, shared);
+		if (existing == null) {
+			ListenableFuture<Object> call;
+			try {
+				call = callable.call();
+			} catch (Exception ex) {
+				inFlightAsync.remove(key, shared);
+				shared.setException(ex);
+				throw ex;
+			}
+			call.addCallback(new ListenableFutureCallback<Object>() {
+				@Override
+				public void onSuccess(Object result) {
+					inFlightAsync.remove(key, shared);
+					shared.set(result);
+				}
+				@Override
+				public void onFailure(Throwable ex) {
+					inFlightAsync.remove(key, shared);
+					shared.setException(ex);
+				}
+			});
+			existing = shared;
+		}
+		final SettableListenableFuture<Object> future = new SettableListenableFuture<Object>();
+		existing.addCallback(new ListenableFutureCallback<Object>() {
+			@Override
+			public void onSuccess(Object result) {
+				future.set(result);
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				future.setException(ex);
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Returns the number of calls currently in flight.
+	 */
+	public int getInFlightCount() {
+		return inFlight.size() + inFlightAsync.size();
+	}
+	
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.devefx.httpmapper.metrics.MethodMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.AsyncRequestCallback;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Writes the headers and the body of a mapper request.
+ * <p>
+ * Bodies already encoded by a codec are written as is, anything else is
+ * written by the first message converter that supports it, just like
+ * {@code RestTemplate} does for an {@code HttpEntity}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RequestEntityCallback implements RequestCallback, AsyncRequestCallback {
+	
+	private final HttpHeaders headers;
+	
+	private final Object body;
+	
+	private final List<MediaType> acceptableMediaTypes;
+	
+	private final List<HttpMessageConverter<?>> messageConverters;
+	
+	private final MethodMetrics metrics;
+	
+	/**
+	 * Create a new {@code RequestEntityCallback}.
+	 * @param headers the request headers
+	 * @param body the request body, either encoded ({@code byte[]}) or to be
+	 * written by a message converter, may be {@code null}
+	 * @param acceptableMediaTypes the media types to accept if no {@code Accept} header is set
+	 * @param messageConverters the converters used for bodies that are not encoded yet
+	 * @param metrics the metrics recording the size of the body, may be {@code null}
+	 */
+	public RequestEntityCallback(HttpHeaders headers, Object body, List<MediaType> acceptableMediaTypes,
+			List<HttpMessageConverter<?>> messageConverters, MethodMetrics metrics) {
+		this.headers = headers;
+		this.body = body;
+		this.acceptableMediaTypes = acceptableMediaTypes;
+		this.messageConverters = messageConverters;
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public void doWithRequest(ClientHttpRequest request) throws IOException {
+		writeRequest(request);
+	}
+	
+	@Override
+	public void doWithRequest(AsyncClientHttpRequest request) throws IOException {
+		writeRequest(request);
+	}
+	
+	protected void writeRequest(HttpOutputMessage request) throws IOException {
+		HttpHeaders requestHeaders = request.getHeaders();
+		requestHeaders.putAll(this.headers);
+		if (requestHeaders.getAccept().isEmpty() && !this.acceptableMediaTypes.isEmpty()) {
+			requestHeaders.setAccept(this.acceptableMediaTypes);
+		}
+		if (this.body == null) {
+			return;
+		}
+		if (this.body instanceof byte[]) {
+			byte[] content = (byte[]) this.body;
+			requestHeaders.setContentLength(content.length);
+			StreamUtils.copy(content, request.getBody());
+			if (this.metrics != null) {
+				this.metrics.recordRequestBytes(content.length);
+			}
+			return;
+		}
+		Class<?> bodyClass = this.body.getClass();
+		MediaType contentType = requestHeaders.getContentType();
+		for (HttpMessageConverter<?> messageConverter : this.messageConverters) {
+			if (messageConverter.canWrite(bodyClass, contentType)) {
+				@SuppressWarnings("unchecked")
+				HttpMessageConverter<Object> converter = (HttpMessageConverter<Object>) messageConverter;
+				if (this.metrics != null) {
+					CountingOutputMessage countingRequest = new CountingOutputMessage(request);
+					converter.write(this.body, contentType, countingRequest);
+					this.metrics.recordRequestBytes(countingRequest.count);
+				} else {
+					converter.write(this.body, contentType, request);
+				}
+				return;
+			}
+		}
+		throw new RestClientException("Could not write request: no suitable HttpMessageConverter found for request type ["
+				+ bodyClass.getName() + "] and content type [" + contentType + "]");
+	}
+	
+	/**
+	 * Counts the bytes of the body written by a message converter.
+	 */
+	private static class CountingOutputMessage implements HttpOutputMessage {
+		
+		private final HttpOutputMessage delegate;
+		
+		private OutputStream body;
+		
+		long count;
+		
+		CountingOutputMessage(HttpOutputMessage delegate) {
+			this.delegate = delegate;
+		}
+		
+		@Override
+		public HttpHeaders getHeaders() {
+			return delegate.getHeaders();
+		}
+		
+		@Override
+		public OutputStream getBody() throws IOException {
+			if (body == null) {
+				body = new FilterOutputStream(delegate.getBody()) {
+					@Override
+					public void write(int b) throws IOException {
+						out.write(b);
+						count++;
+					}
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						out.write(b, off, len);
+						count += len;
+					}
+				};
+			}
+			return body;
+		}
+	}
+	
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.bulkhead.BulkheadFullException;
+import org.devefx.httpmapper.http.RequestAborter;
+import org.devefx.httpmapper.limit.ConcurrencyLimitExceededException;
+import org.devefx.httpmapper.metrics.LatencyHistogram;
+import org.devefx.httpmapper.metrics.MethodMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Sends a second, identical request when the first one has not been answered
+ * after a delay, and takes the response arriving first, so that a slow server
+ * replica does not make the call slow. The other request is aborted, which
+ * releases its connection.
+ * <p>
+ * The delay is either fixed or the given percentile of the latencies of the
+ * method observed so far, refreshed every second, in which case no request is
+ * hedged before {@value #MIN_SAMPLES} calls completed. The number of hedged
+ * requests in flight is capped, requests due for a hedge above the cap are not hedged.
+ * <p>
+ * Blocking requests are hedged on the {@link Configuration#getHedgeExecutor()
+ * hedge executor} and aborted through a {@link RequestAborter}; asynchronous
+ * requests are sent from the batch scheduler and aborted by cancelling them.
+ * If both requests fail, the call fails with the exception of the first one.
+ * A hedged request is one more request in flight: it takes its own permits of
+ * the bulkheads and of the concurrency limiter, and is not sent, nor counted
+ * as a hedge, if one of them rejects it.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RequestHedger {
+
+	private static final Logger logger = LoggerFactory.getLogger(RequestHedger.class);
+
+	private static final long UPDATE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private static final int MIN_SAMPLES = 100;
+
+	private static final int RUNNING = 0;
+
+	private static final int HEDGING = 1;
+
+	private static final int DONE = 2;
+
+	private static final int HEDGE_WON = 3;
+
+	private final Configuration configuration;
+
+	private final MethodMetrics metrics;
+
+	private final long fixedDelay;
+
+	private final double percentile;
+
+	private final int maxOutstanding;
+
+	private final AtomicInteger outstanding = new AtomicInteger();
+
+	private final AtomicLong lastUpdate = new AtomicLong(System.nanoTime() - UPDATE_INTERVAL);
+
+	private volatile long observedDelay = -1;
+
+	/**
+	 * Create a new {@code RequestHedger}.
+	 * @param configuration the configuration providing the scheduler and the hedge executor
+	 * @param metrics the metrics of the method, recording the hedges and giving the latencies
+	 * @param delay the delay in milliseconds before hedging, or a negative value to
+	 * use the given percentile of the observed latencies
+	 * @param percentile the percentile of the observed latencies, such as {@code 0.95}
+	 * @param maxOutstanding the maximum number of hedged requests in flight
+	 */
+	public RequestHedger(Configuration configuration, MethodMetrics metrics, long delay, double percentile,
+			int maxOutstanding) {
+		this.configuration = configuration;
+		this.metrics = metrics;
+		this.fixedDelay = (delay >= 0) ? TimeUnit.MILLISECONDS.toNanos(delay) : -1;
+		this.percentile = percentile;
+		this.maxOutstanding = maxOutstanding;
+	}
+
+	/**
+	 * Returns the current delay before hedging in nanoseconds, or -1 if requests
+	 * are not hedged yet.
+	 */
+	public long getDelay() {
+		if (fixedDelay >= 0) {
+			return fixedDelay;
+		}
+		long now = System.nanoTime();
+		long last = lastUpdate.get();
+		if (now - last >= UPDATE_INTERVAL && lastUpdate.compareAndSet(last, now)) {
+			LatencyHistogram latencies = metrics.getLatencies();
+			observedDelay = (latencies.getCount() < MIN_SAMPLES) ? -1 :
+				TimeUnit.MICROSECONDS.toNanos(latencies.getPercentiles(percentile)[0]);
+		}
+		return observedDelay;
+	}
+
+	/**
+	 * Returns the number of hedged requests in flight.
+	 */
+	public int getOutstandingCount() {
+		return outstanding.get();
+	}
+
+	/**
+	 * Sends a blocking request, hedging it if it takes longer than the delay.
+	 * @param request sends the request and returns the response
+	 * @param hedgedRequest sends the hedged request and returns the response, on
+	 * another thread than the request
+	 * @return the first response
+	 * @throws Exception the exception of the request sent first, if both failed
+	 */
+	public <T> T execute(Callable<T> request, Callable<T> hedgedRequest) throws Exception {
+		long delay = getDelay();
+		if (delay < 0) {
+			return request.call();
+		}
+		Race<T> race = new Race<T>(hedgedRequest);
+		RequestAborter aborter = RequestAborter.bind();
+		race.primary = aborter;
+		ScheduledFuture<?> timer = null;
+		try {
+			timer = configuration.getBatchScheduler().schedule(race, delay, TimeUnit.NANOSECONDS);
+			T result = request.call();
+			while (true) {
+				int state = race.state.get();
+				if (state == HEDGE_WON) {
+					return race.hedgeResult;
+				}
+				if (race.state.compareAndSet(state, DONE)) {
+					if (state == HEDGING) {
+						race.abortHedge();
+					}
+					return result;
+				}
+			}
+		} catch (Exception ex) {
+			if (race.state.compareAndSet(RUNNING, DONE)) {
+				throw ex;
+			}
+			// the hedge may still succeed, or already did
+			try {
+				race.hedgeDone.await();
+			} catch (InterruptedException interrupted) {
+				Thread.currentThread().interrupt();
+				race.abortHedge();
+				throw ex;
+			}
+			if (race.state.get() == HEDGE_WON) {
+				return race.hedgeResult;
+			}
+			throw ex;
+		} finally {
+			aborter.unbind();
+			if (timer != null) {
+				timer.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Sends an asynchronous request, hedging it if it takes longer than the delay.
+	 * @param request sends the request without waiting for the response
+	 * @param hedgedRequest sends the hedged request without waiting for the
+	 * response, called by a scheduler thread
+	 * @return the future of the first response
+	 */
+	public <T> ListenableFuture<T> executeAsync(Callable<ListenableFuture<T>> request,
+			Callable<ListenableFuture<T>> hedgedRequest) throws Exception {
+		long delay = getDelay();
+		ListenableFuture<T> primary = request.call();
+		if (delay < 0) {
+			return primary;
+		}
+		HedgedFuture<T> future = new HedgedFuture<T>(hedgedRequest, primary);
+		future.listen(primary, false);
+		try {
+			future.timer = configuration.getBatchScheduler().schedule(future, delay, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException ex) {
+			// not hedged then
+		}
+		return future;
+	}
+
+	/**
+	 * Returns {@code true} if the hedged request was not sent because a bulkhead
+	 * or the concurrency limiter had no permit left for it.
+	 */
+	private static boolean isRejected(Throwable ex) {
+		return ex instanceof BulkheadFullException || ex instanceof ConcurrencyLimitExceededException;
+	}
+
+	/**
+	 * Takes a slot for a hedged request.
+	 * @return {@code false} if as many hedged requests as allowed are in flight
+	 */
+	private boolean acquire() {
+		if (outstanding.incrementAndGet() > maxOutstanding) {
+			outstanding.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The state of a blocking request and of its hedge, which runs when the delay elapsed.
+	 */
+	private final class Race<T> implements Runnable {
+
+		final AtomicInteger state = new AtomicInteger(RUNNING);
+
+		final CountDownLatch hedgeDone = new CountDownLatch(1);
+
+		final Callable<T> request;
+
+		volatile RequestAborter primary;
+
+		volatile RequestAborter hedge;
+
+		volatile T hedgeResult;
+
+		Race(Callable<T> request) {
+			this.request = request;
+		}
+
+		/**
+		 * Hands the hedged request over to the hedge executor.
+		 */
+		@Override
+		public void run() {
+			if (state.get() != RUNNING || !acquire()) {
+				return;
+			}
+			if (!state.compareAndSet(RUNNING, HEDGING)) {
+				outstanding.decrementAndGet();
+				return;
+			}
+			try {
+				configuration.getHedgeExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						sendHedge();
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				outstanding.decrementAndGet();
+				hedgeDone.countDown();
+			}
+		}
+
+		void sendHedge() {
+			RequestAborter aborter = RequestAborter.bind();
+			hedge = aborter;
+			if (state.get() != HEDGING) {
+				aborter.abort();
+			}
+			try {
+				T result = request.call();
+				metrics.recordHedge();
+				hedgeResult = result;
+				if (state.compareAndSet(HEDGING, HEDGE_WON)) {
+					metrics.recordHedgeWin();
+					primary.abort();
+				}
+			} catch (Exception ex) {
+				if (!isRejected(ex)) {
+					metrics.recordHedge();
+					if (logger.isDebugEnabled() && !aborter.isAborted()) {
+						logger.debug("Hedged request failed: " + ex);
+					}
+				}
+			} finally {
+				aborter.unbind();
+				outstanding.decrementAndGet();
+				hedgeDone.countDown();
+			}
+		}
+
+		void abortHedge() {
+			RequestAborter aborter = hedge;
+			if (aborter != null) {
+				aborter.abort();
+			}
+		}
+	}
+
+	/**
+	 * The future of an asynchronous request and of its hedge, sent when the delay elapsed.
+	 */
+	private final class HedgedFuture<T> extends SettableListenableFuture<T> implements Runnable {
+
+		final AtomicInteger state = new AtomicInteger(RUNNING);
+
+		final AtomicInteger failures = new AtomicInteger();
+
+		final Callable<ListenableFuture<T>> request;
+
+		final ListenableFuture<T> primary;
+
+		volatile ListenableFuture<T> hedge;
+
+		volatile Throwable primaryFailure;
+
+		volatile ScheduledFuture<?> timer;
+
+		HedgedFuture(Callable<ListenableFuture<T>> request, ListenableFuture<T> primary) {
+			this.request = request;
+			this.primary = primary;
+		}
+
+		/**
+		 * Sends the hedged request.
+		 */
+		@Override
+		public void run() {
+			if (isDone() || state.get() != RUNNING || !acquire()) {
+				return;
+			}
+			if (!state.compareAndSet(RUNNING, HEDGING)) {
+				outstanding.decrementAndGet();
+				return;
+			}
+			ListenableFuture<T> exchange;
+			try {
+				exchange = request.call();
+			} catch (Throwable ex) {
+				outstanding.decrementAndGet();
+				if (!isRejected(ex)) {
+					metrics.recordHedge();
+				}
+				// the call completes with the first request alone
+				onFailure(ex, true);
+				return;
+			}
+			metrics.recordHedge();
+			hedge = exchange;
+			listen(exchange, true);
+			if (isDone()) {
+				exchange.cancel(true);
+			}
+		}
+
+		void listen(ListenableFuture<T> exchange, final boolean hedged) {
+			exchange.addCallback(new ListenableFutureCallback<T>() {
+				@Override
+				public void onSuccess(T result) {
+					if (hedged) {
+						outstanding.decrementAndGet();
+					}
+					if (set(result)) {
+						if (hedged) {
+							metrics.recordHedgeWin();
+						}
+						cancelOthers(hedged ? primary : hedge);
+					}
+				}
+				@Override
+				public void onFailure(Throwable ex) {
+					if (hedged) {
+						outstanding.decrementAndGet();
+					}
+					HedgedFuture.this.onFailure(ex, hedged);
+				}
+			});
+		}
+
+		void onFailure(Throwable ex, boolean hedged) {
+			if (!hedged) {
+				primaryFailure = ex;
+				if (state.compareAndSet(RUNNING, DONE)) {
+					cancelOthers(null);
+					setException(ex);
+					return;
+				}
+			}
+			// hedging, the call fails once both requests did
+			if (failures.incrementAndGet() == 2) {
+				setException((primaryFailure != null) ? primaryFailure : ex);
+			}
+		}
+
+		void cancelOthers(ListenableFuture<T> exchange) {
+			ScheduledFuture<?> timer = this.timer;
+			if (timer != null) {
+				timer.cancel(false);
+			}
+			if (exchange != null) {
+				exchange.cancel(true);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			cancelOthers(primary);
+			cancelOthers(hedge);
+			return cancelled;
+		}
+	}
+
+}
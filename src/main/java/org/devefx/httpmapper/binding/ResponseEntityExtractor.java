@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+import org.devefx.httpmapper.binding.MapperMethod.ExecutionPlan;
+import org.devefx.httpmapper.http.BufferedBody;
+import org.devefx.httpmapper.http.ResponseEntity;
+import org.devefx.httpmapper.metrics.MethodMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResponseExtractor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads a mapper response into a {@link ResponseEntity}.
+ * <p>
+ * In streaming mode the body is decoded straight from the response stream
+ * into the return type of the mapper method and becomes the body of the
+ * entity. Otherwise the raw body is buffered into a {@link BufferedBody} so
+ * that listeners may look at it before it is decoded.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ResponseEntityExtractor implements ResponseExtractor<ResponseEntity> {
+	
+	private final ExecutionPlan plan;
+	
+	private final boolean streaming;
+	
+	public ResponseEntityExtractor(ExecutionPlan plan, boolean streaming) {
+		this.plan = plan;
+		this.streaming = streaming;
+	}
+	
+	@Override
+	public ResponseEntity extractData(ClientHttpResponse response) throws IOException {
+		HttpStatus status = response.getStatusCode();
+		HttpHeaders headers = response.getHeaders();
+		InputStream body = getBody(response, status, headers);
+		if (body == null) {
+			return new ResponseEntity(headers, status);
+		}
+		MediaType contentType = headers.getContentType();
+		ObjectMapper codec = plan.getCodec(contentType);
+		MethodMetrics metrics = plan.getMetrics();
+		if (streaming) {
+			CountingInputStream countingBody = new CountingInputStream(body);
+			Object value = null;
+			if (plan.returnsVoid()) {
+				StreamUtils.drain(countingBody);
+			} else {
+				value = plan.getReader(codec).readValue(countingBody);
+			}
+			if (metrics != null) {
+				metrics.recordResponseBytes(countingBody.count);
+			}
+			return new ResponseEntity(value, headers, status);
+		}
+		byte[] content = StreamUtils.copyToByteArray(body);
+		if (metrics != null) {
+			metrics.recordResponseBytes(content.length);
+		}
+		return new ResponseEntity(new BufferedBody(content, contentType, codec), headers, status);
+	}
+	
+	/**
+	 * Returns the response body, or {@code null} if the response has none.
+	 */
+	private InputStream getBody(ClientHttpResponse response, HttpStatus status, HttpHeaders headers) throws IOException {
+		if (status.is1xxInformational() || status == HttpStatus.NO_CONTENT || status == HttpStatus.NOT_MODIFIED
+				|| headers.getContentLength() == 0) {
+			return null;
+		}
+		InputStream body = response.getBody();
+		if (body == null) {
+			return null;
+		}
+		PushbackInputStream pushbackInputStream = new PushbackInputStream(body);
+		int b = pushbackInputStream.read();
+		if (b == -1) {
+			return null;
+		}
+		pushbackInputStream.unread(b);
+		return pushbackInputStream;
+	}
+	
+	/**
+	 * Counts the bytes of a body decoded straight from the response stream.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		
+		long count;
+		
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			count += skipped;
+			return skipped;
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+	
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * Caps the calls in flight of a mapper interface or method, so that a slow
+ * upstream cannot take all the connections and threads shared with the others.
+ * <p>
+ * A call takes a permit without blocking if one is free. Otherwise a blocking
+ * call waits at most {@code maxWait} milliseconds for one, or is rejected right
+ * away if that is zero. Calls that must not block, such as those returning a
+ * future, are always rejected right away. Permits are taken with a single compare-and-set as long as some are free.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class Bulkhead {
+
+	private final String name;
+
+	private final int maxConcurrentCalls;
+
+	private final long maxWait;
+
+	private final Semaphore permits;
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * Create a new {@code Bulkhead}.
+	 * @param name the name of the bulkhead, such as the mapper interface or method it guards
+	 * @param maxConcurrentCalls the maximum number of calls in flight
+	 * @param maxWait the time in milliseconds a call may wait for a permit
+	 */
+	public Bulkhead(String name, int maxConcurrentCalls, long maxWait) {
+		Assert.isTrue(maxConcurrentCalls > 0, "Max concurrent calls must be positive");
+		this.name = name;
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.maxWait = Math.max(0, maxWait);
+		this.permits = new Semaphore(maxConcurrentCalls);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Takes a permit for a call, which must be {@link #release() released} once it completed.
+	 * @return {@code false} if the call is rejected
+	 */
+	public boolean tryAcquire() {
+		return tryAcquire(true);
+	}
+
+	/**
+	 * Takes a permit for a call, which must be {@link #release() released} once it completed.
+	 * @param wait whether the calling thread may wait for a permit, up to {@code maxWait}
+	 * @return {@code false} if the call is rejected
+	 */
+	public boolean tryAcquire(boolean wait) {
+		if (permits.tryAcquire()) {
+			return true;
+		}
+		if (wait && maxWait > 0) {
+			try {
+				if (permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		rejectedCount.incrementAndGet();
+		return false;
+	}
+
+	public void release() {
+		permits.release();
+	}
+
+	/**
+	 * Returns the number of calls in flight.
+	 */
+	public int getInFlightCount() {
+		return maxConcurrentCalls - permits.availablePermits();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	public BulkheadStats getStats() {
+		return new BulkheadStats(name, maxConcurrentCalls, getInFlightCount(), rejectedCount.get());
+	}
+
+}
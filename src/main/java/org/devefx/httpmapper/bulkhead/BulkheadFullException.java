@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.bulkhead;
+
+import org.devefx.httpmapper.binding.BindingException;
+
+/**
+ * Thrown instead of sending a request when the {@link Bulkhead} of its mapper
+ * interface or method has no permit left.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class BulkheadFullException extends BindingException {
+
+	private static final long serialVersionUID = 4508176398765601295L;
+
+	private final String bulkheadName;
+
+	public BulkheadFullException(String message, String bulkheadName) {
+		super(message);
+		this.bulkheadName = bulkheadName;
+	}
+
+	/**
+	 * Returns the name of the full bulkhead, the mapper interface or method it guards.
+	 */
+	public String getBulkheadName() {
+		return bulkheadName;
+	}
+}
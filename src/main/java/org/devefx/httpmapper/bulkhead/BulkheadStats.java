@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.bulkhead;
+
+/**
+ * A snapshot of the counters of a {@link Bulkhead}.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class BulkheadStats {
+	
+	private final String name;
+	
+	private final int maxConcurrentCalls;
+	
+	private final int inFlightCount;
+	
+	private final long rejectedCount;
+	
+	public BulkheadStats(String name, int maxConcurrentCalls, int inFlightCount, long rejectedCount) {
+		this.name = name;
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.inFlightCount = inFlightCount;
+		this.rejectedCount = rejectedCount;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+	
+	public int getInFlightCount() {
+		return inFlightCount;
+	}
+	
+	/**
+	 * Returns the number of calls rejected since the bulkhead was created.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+	
+	@Override
+	public String toString() {
+		return "BulkheadStats[name=" + name + ", maxConcurrentCalls=" + maxConcurrentCalls
+				+ ", inFlightCount=" + inFlightCount + ", rejectedCount=" + rejectedCount + "]";
+	}
+	
+}
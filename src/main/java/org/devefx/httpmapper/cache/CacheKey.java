@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+import java.util.Arrays;
+
+/**
+ * A cache key made of the arguments of a mapper method call, comparing
+ * array arguments by content.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public final class CacheKey {
+	
+	private static final Object[] NO_ARGS = new Object[0];
+	
+	private final Object[] args;
+	
+	private final int hashCode;
+	
+	public CacheKey(Object[] args) {
+		this.args = (args != null) ? args.clone() : NO_ARGS;
+		this.hashCode = Arrays.deepHashCode(this.args);
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CacheKey)) {
+			return false;
+		}
+		CacheKey otherKey = (CacheKey) other;
+		return hashCode == otherKey.hashCode && Arrays.deepEquals(args, otherKey.args);
+	}
+	
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+	
+	@Override
+	public String toString() {
+		return Arrays.deepToString(args);
+	}
+	
+}
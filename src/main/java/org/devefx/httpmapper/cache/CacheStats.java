@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+/**
+ * A snapshot of the counters of a {@link ResponseCache}.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class CacheStats {
+	
+	private final long hitCount;
+	
+	private final long missCount;
+	
+	private final long evictionCount;
+	
+	private final long rejectionCount;
+	
+	private final long expirationCount;
+	
+	private final long size;
+	
+	public CacheStats(long hitCount, long missCount, long evictionCount, long rejectionCount,
+			long expirationCount, long size) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.rejectionCount = rejectionCount;
+		this.expirationCount = expirationCount;
+		this.size = size;
+	}
+	
+	public long getHitCount() {
+		return hitCount;
+	}
+	
+	public long getMissCount() {
+		return missCount;
+	}
+	
+	/**
+	 * Returns the number of entries removed because the cache was full.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+	
+	/**
+	 * Returns the number of new entries not admitted because the cache was full
+	 * and they were not requested more often than the entry they would replace,
+	 * see {@link EvictionPolicy#TINY_LFU}.
+	 */
+	public long getRejectionCount() {
+		return rejectionCount;
+	}
+	
+	/**
+	 * Returns the number of entries removed because their time to live elapsed.
+	 */
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+	
+	public long getSize() {
+		return size;
+	}
+	
+	/**
+	 * Returns the ratio of lookups that were hits, {@code 1.0} if there were none.
+	 */
+	public double getHitRate() {
+		long requestCount = hitCount + missCount;
+		return (requestCount == 0) ? 1.0 : (double) hitCount / requestCount;
+	}
+	
+	@Override
+	public String toString() {
+		return "CacheStats[hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount="
+				+ evictionCount + ", rejectionCount=" + rejectionCount + ", expirationCount=" + expirationCount + ", size=" + size + "]";
+	}
+	
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+/**
+ * The policy a {@link ResponseCache} uses once it is full.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public enum EvictionPolicy {
+	
+	/**
+	 * Evicts the least recently used entry.
+	 */
+	LRU,
+	
+	/**
+	 * Evicts the least recently used entry, but only admits a new entry if it has
+	 * been requested more often than the entry it would evict (TinyLFU admission).
+	 * Keeps one-off keys from flushing frequently used entries.
+	 */
+	TINY_LFU
+	
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+/**
+ * A count-min sketch estimating how often keys have been seen, with 4-bit
+ * counters that are halved periodically so that old popularity fades.
+ * Not thread-safe, each cache segment owns one and guards it with its lock.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+class FrequencySketch {
+	
+	private static final int[] SEEDS = { 0x97cb3127, 0x8f7a2b1d, 0x5a3c6e9b, 0x3d4e1f27 };
+	
+	private static final int MAX_COUNT = 15;
+	
+	private final byte[] table;
+	
+	private final int mask;
+	
+	private final int sampleSize;
+	
+	private int additions;
+	
+	FrequencySketch(int capacity) {
+		int size = 128;
+		while (size < capacity * 8 && size < (1 << 24)) {
+			size <<= 1;
+		}
+		this.table = new byte[size];
+		this.mask = size - 1;
+		this.sampleSize = Math.max(capacity, 1) * 10;
+	}
+	
+	/**
+	 * Returns the estimated number of occurrences of the key, at most 15.
+	 */
+	int frequency(Object key) {
+		int hash = spread(key.hashCode());
+		int frequency = MAX_COUNT;
+		for (int seed : SEEDS) {
+			frequency = Math.min(frequency, table[indexOf(hash, seed)]);
+		}
+		return frequency;
+	}
+	
+	/**
+	 * Records an occurrence of the key.
+	 */
+	void increment(Object key) {
+		int hash = spread(key.hashCode());
+		boolean added = false;
+		for (int seed : SEEDS) {
+			int index = indexOf(hash, seed);
+			if (table[index] < MAX_COUNT) {
+				table[index]++;
+				added = true;
+			}
+		}
+		if (added && ++additions == sampleSize) {
+			reset();
+		}
+	}
+	
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (byte) (table[i] >>> 1);
+		}
+		additions /= 2;
+	}
+	
+	private int indexOf(int hash, int seed) {
+		int h = hash * seed;
+		h ^= h >>> 17;
+		return h & mask;
+	}
+	
+	private static int spread(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x45d9f3b;
+		return hash ^ (hash >>> 16);
+	}
+	
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A decoded response held by a {@link HttpResponseCache}, together with
+ * the headers it was received with.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class HttpCacheEntry {
+	
+	private final Object value;
+	
+	private final HttpHeaders headers;
+	
+	private final long freshUntil;
+	
+	HttpCacheEntry(Object value, HttpHeaders headers, long freshUntil) {
+		this.value = value;
+		this.headers = headers;
+		this.freshUntil = freshUntil;
+	}
+	
+	public Object getValue() {
+		return value;
+	}
+	
+	/**
+	 * Returns the response headers the entry was stored with, as updated by
+	 * the latest revalidation.
+	 */
+	public HttpHeaders getHeaders() {
+		return headers;
+	}
+	
+	/**
+	 * Returns whether the entry may still be used without asking the server.
+	 */
+	public boolean isFresh() {
+		return System.nanoTime() - freshUntil < 0;
+	}
+	
+	/**
+	 * Adds the validators of the entry as conditions to request headers.
+	 * @return {@code false} if the entry has neither an {@code ETag} nor a
+	 * {@code Last-Modified} date
+	 */
+	public boolean addConditions(HttpHeaders requestHeaders) {
+		boolean conditional = false;
+		String eTag = headers.getETag();
+		if (eTag != null) {
+			requestHeaders.setIfNoneMatch(eTag);
+			conditional = true;
+		}
+		long lastModified = HttpResponseCache.getDate(headers, HttpHeaders.LAST_MODIFIED);
+		if (lastModified != -1) {
+			requestHeaders.setIfModifiedSince(lastModified);
+			conditional = true;
+		}
+		return conditional;
+	}
+	
+}
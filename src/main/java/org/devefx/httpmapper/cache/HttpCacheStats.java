@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+/**
+ * A snapshot of the counters of a {@link HttpResponseCache}.
+ * <p>
+ * Hits are lookups answered without contacting the server, misses are
+ * lookups that sent a request, and expirations count the misses caused
+ * by an entry being stale rather than absent.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class HttpCacheStats extends CacheStats {
+	
+	private final long revalidationCount;
+	
+	public HttpCacheStats(long hitCount, long missCount, long evictionCount, long expirationCount,
+			long revalidationCount, long size) {
+		super(hitCount, missCount, evictionCount, 0, expirationCount, size);
+		this.revalidationCount = revalidationCount;
+	}
+	
+	/**
+	 * Returns the number of stale entries served again after a {@code 304 Not Modified}.
+	 */
+	public long getRevalidationCount() {
+		return revalidationCount;
+	}
+	
+	@Override
+	public String toString() {
+		return "HttpCacheStats[hitCount=" + getHitCount() + ", missCount=" + getMissCount()
+				+ ", evictionCount=" + getEvictionCount() + ", expirationCount=" + getExpirationCount()
+				+ ", revalidationCount=" + revalidationCount + ", size=" + getSize() + "]";
+	}
+	
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * A size-bounded cache of decoded GET responses following the HTTP caching
+ * rules of a private client cache: freshness comes from {@code max-age} or
+ * {@code Expires}, {@code no-store} and {@code Vary: *} responses are never
+ * kept, {@code no-cache} responses are kept but always revalidated, and stale
+ * entries stay around so that they can be revalidated with their validators.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class HttpResponseCache {
+	
+	private static final String AGE = "Age";
+	
+	private final Map<Object, HttpCacheEntry> entries;
+	
+	private long hits;
+	
+	private long misses;
+	
+	private long evictions;
+	
+	private long expirations;
+	
+	private long revalidations;
+	
+	/**
+	 * Create a new {@code HttpResponseCache}.
+	 * @param maximumSize the maximum number of entries, the least recently
+	 * used being evicted first
+	 */
+	public HttpResponseCache(final int maximumSize) {
+		Assert.isTrue(maximumSize > 0, "Maximum size must be positive");
+		this.entries = new LinkedHashMap<Object, HttpCacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, HttpCacheEntry> eldest) {
+				if (size() > maximumSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Creates the key of a request from its URL and headers. The headers are
+	 * copied, so the request may be modified afterwards.
+	 */
+	public static Object createKey(URI url, HttpHeaders headers) {
+		HttpHeaders copy = new HttpHeaders();
+		if (headers != null) {
+			copy.putAll(headers);
+		}
+		return Arrays.asList(url, copy);
+	}
+	
+	/**
+	 * Returns the entry cached for the key, fresh or stale, or {@code null} if absent.
+	 */
+	public synchronized HttpCacheEntry get(Object key) {
+		HttpCacheEntry entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+		} else if (entry.isFresh()) {
+			hits++;
+		} else {
+			misses++;
+			expirations++;
+		}
+		return entry;
+	}
+	
+	/**
+	 * Caches the decoded value of a full response, if its headers allow it.
+	 * A response that may not be stored removes the previous entry of the key.
+	 * @return {@code true} if the value was cached
+	 */
+	public synchronized boolean put(Object key, HttpHeaders responseHeaders, Object value) {
+		Assert.notNull(value, "Value must not be null");
+		HttpHeaders headers = new HttpHeaders();
+		if (responseHeaders != null) {
+			headers.putAll(responseHeaders);
+		}
+		HttpCacheEntry entry = createEntry(value, headers);
+		if (entry == null) {
+			entries.remove(key);
+			return false;
+		}
+		entries.put(key, entry);
+		return true;
+	}
+	
+	/**
+	 * Refreshes a stale entry after the server answered {@code 304 Not Modified},
+	 * merging the headers of that answer into the stored ones.
+	 * @return the cached value
+	 */
+	public synchronized Object revalidate(Object key, HttpCacheEntry entry, HttpHeaders responseHeaders) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.putAll(entry.getHeaders());
+		if (responseHeaders != null) {
+			headers.putAll(responseHeaders);
+		}
+		HttpCacheEntry updated = createEntry(entry.getValue(), headers);
+		if (updated != null) {
+			entries.put(key, updated);
+		} else {
+			entries.remove(key);
+		}
+		revalidations++;
+		return entry.getValue();
+	}
+	
+	public synchronized void invalidate(Object key) {
+		entries.remove(key);
+	}
+	
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+	
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Returns a snapshot of the counters of this cache.
+	 */
+	public synchronized HttpCacheStats getStats() {
+		return new HttpCacheStats(hits, misses, evictions, expirations, revalidations, entries.size());
+	}
+	
+	/**
+	 * Creates an entry for a response, or returns {@code null} if the response
+	 * may not be stored or could never be used again.
+	 */
+	private static HttpCacheEntry createEntry(Object value, HttpHeaders headers) {
+		long maxAge = -1;
+		boolean noCache = false;
+		List<String> cacheControl = headers.get(HttpHeaders.CACHE_CONTROL);
+		if (cacheControl != null) {
+			for (String headerValue : cacheControl) {
+				for (String directive : StringUtils.commaDelimitedListToStringArray(headerValue)) {
+					directive = directive.trim().toLowerCase();
+					if (directive.equals("no-store")) {
+						return null;
+					} else if (directive.equals("no-cache")) {
+						noCache = true;
+					} else if (directive.startsWith("max-age=")) {
+						maxAge = parseSeconds(directive.substring("max-age=".length()));
+					}
+				}
+			}
+		}
+		List<String> vary = headers.get(HttpHeaders.VARY);
+		if (vary != null) {
+			for (String headerValue : vary) {
+				if (headerValue.trim().equals("*")) {
+					return null;
+				}
+			}
+		}
+		long lifetime = 0;
+		if (!noCache) {
+			if (maxAge != -1) {
+				lifetime = TimeUnit.SECONDS.toMillis(maxAge);
+			} else {
+				long expires = getDate(headers, HttpHeaders.EXPIRES);
+				if (expires != -1) {
+					long date = getDate(headers, HttpHeaders.DATE);
+					lifetime = expires - ((date != -1) ? date : System.currentTimeMillis());
+				}
+			}
+			String age = headers.getFirst(AGE);
+			if (age != null && parseSeconds(age) != -1) {
+				lifetime -= TimeUnit.SECONDS.toMillis(parseSeconds(age));
+			}
+		}
+		if (lifetime <= 0 && headers.getETag() == null && getDate(headers, HttpHeaders.LAST_MODIFIED) == -1) {
+			// neither fresh nor revalidatable
+			return null;
+		}
+		long freshUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(lifetime, 0));
+		return new HttpCacheEntry(value, headers, freshUntil);
+	}
+	
+	private static long parseSeconds(String value) {
+		try {
+			return Math.max(Long.parseLong(value.trim()), 0);
+		} catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Returns a date header in milliseconds, or {@code -1} if absent or invalid
+	 * (an invalid {@code Expires} such as {@code 0} meaning already expired).
+	 */
+	static long getDate(HttpHeaders headers, String headerName) {
+		try {
+			return headers.getFirstDate(headerName);
+		} catch (IllegalArgumentException ex) {
+			return HttpHeaders.EXPIRES.equals(headerName) ? 0 : -1;
+		}
+	}
+	
+}
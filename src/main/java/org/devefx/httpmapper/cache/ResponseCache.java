@@ -0,0 +1,357 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.devefx.httpmapper.utils.RingBuffer;
+import org.springframework.util.Assert;
+
+/**
+ * A concurrent, size-bounded cache of decoded mapper results whose entries
+ * expire a fixed time after they were written.
+ * <p>
+ * Keys are spread over segments, each evicting by its own {@link EvictionPolicy}.
+ * Lookups take no lock: they read a concurrent map and record the access in a
+ * bounded buffer of the segment, which is drained under its lock to reorder the
+ * entries and count the key in the frequency sketch, once enough accesses are
+ * pending or before a write. Accesses arriving while the buffer is full are
+ * dropped, which only makes the recency and frequency slightly less precise.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ResponseCache {
+	
+	private static final int READ_BUFFER_SIZE = 64;
+	
+	private static final int DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+	
+	private final Segment[] segments;
+	
+	private final int segmentMask;
+	
+	private final long timeToLiveNanos;
+	
+	/**
+	 * Create a new {@code ResponseCache}.
+	 * @param timeToLiveNanos how long an entry stays valid after it was written
+	 * @param maximumSize the maximum number of entries
+	 * @param evictionPolicy the policy used once the cache is full
+	 */
+	public ResponseCache(long timeToLiveNanos, int maximumSize, EvictionPolicy evictionPolicy) {
+		Assert.isTrue(timeToLiveNanos > 0, "Time to live must be positive");
+		Assert.isTrue(maximumSize > 0, "Maximum size must be positive");
+		int segmentCount = 1;
+		int concurrency = Runtime.getRuntime().availableProcessors() * 2;
+		// keep segments large enough for their eviction to stay meaningful
+		while (segmentCount < concurrency && segmentCount * 64 <= maximumSize && segmentCount < 64) {
+			segmentCount <<= 1;
+		}
+		this.segments = new Segment[segmentCount];
+		this.segmentMask = segmentCount - 1;
+		this.timeToLiveNanos = timeToLiveNanos;
+		int capacity = (maximumSize + segmentCount - 1) / segmentCount;
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(capacity, (evictionPolicy == EvictionPolicy.TINY_LFU) ? new FrequencySketch(capacity) : null);
+		}
+	}
+	
+	/**
+	 * Returns the value cached for the key, or {@code null} if absent or expired.
+	 */
+	public Object get(Object key) {
+		return segmentFor(key).get(key, System.nanoTime());
+	}
+	
+	/**
+	 * Caches a non-null value for the key.
+	 */
+	public void put(Object key, Object value) {
+		Assert.notNull(value, "Value must not be null");
+		segmentFor(key).put(key, value, System.nanoTime() + timeToLiveNanos);
+	}
+	
+	public void invalidate(Object key) {
+		segmentFor(key).remove(key);
+	}
+	
+	public void invalidateAll() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+	
+	public long size() {
+		long size = 0;
+		for (Segment segment : segments) {
+			size += segment.map.size();
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns a snapshot of the counters of this cache.
+	 */
+	public CacheStats getStats() {
+		long hits = 0, misses = 0, evictions = 0, rejections = 0, expirations = 0, size = 0;
+		for (Segment segment : segments) {
+			hits += segment.hits.get();
+			misses += segment.misses.get();
+			segment.lock.lock();
+			try {
+				evictions += segment.evictions;
+				rejections += segment.rejections;
+				expirations += segment.expirations;
+			} finally {
+				segment.lock.unlock();
+			}
+			size += segment.map.size();
+		}
+		return new CacheStats(hits, misses, evictions, rejections, expirations, size);
+	}
+	
+	private Segment segmentFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & segmentMask];
+	}
+	
+	/**
+	 * An entry, linked in the recency order of its segment while it is mapped.
+	 */
+	private static final class Node {
+		
+		final Object key;
+		
+		final Object value;
+		
+		final long expiresAt;
+		
+		// guarded by the lock of the segment
+		Node prev;
+		
+		Node next;
+		
+		boolean linked;
+		
+		Node(Object key, Object value, long expiresAt) {
+			this.key = key;
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+		
+		boolean isExpired(long now) {
+			return now - expiresAt >= 0;
+		}
+	}
+	
+	private static final class Segment {
+		
+		final ConcurrentMap<Object, Node> map = new ConcurrentHashMap<Object, Node>();
+		
+		/**
+		 * The accesses not drained yet: the node of a hit, the key of a miss.
+		 */
+		final RingBuffer<Object> readBuffer = new RingBuffer<Object>(READ_BUFFER_SIZE);
+		
+		final ReentrantLock lock = new ReentrantLock();
+		
+		final int capacity;
+		
+		final FrequencySketch sketch;
+		
+		final AtomicLong hits = new AtomicLong();
+		
+		final AtomicLong misses = new AtomicLong();
+		
+		// guarded by the lock, least recently used first
+		Node head;
+		
+		Node tail;
+		
+		long evictions;
+		
+		long rejections;
+		
+		long expirations;
+		
+		Segment(int capacity, FrequencySketch sketch) {
+			this.capacity = capacity;
+			this.sketch = sketch;
+		}
+		
+		Object get(Object key, long now) {
+			Node node = map.get(key);
+			if (node == null) {
+				misses.incrementAndGet();
+				recordAccess(key);
+				return null;
+			}
+			recordAccess(node);
+			if (node.isExpired(now)) {
+				// removed when the access is drained, or by a later write
+				misses.incrementAndGet();
+				return null;
+			}
+			hits.incrementAndGet();
+			return node.value;
+		}
+		
+		private void recordAccess(Object access) {
+			boolean added = readBuffer.offer(access);
+			if ((!added || readBuffer.size() >= DRAIN_THRESHOLD) && lock.tryLock()) {
+				try {
+					drainReadBuffer(System.nanoTime());
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+		
+		/**
+		 * Replays the buffered accesses; must be called with the lock held.
+		 */
+		private void drainReadBuffer(long now) {
+			Object access;
+			while ((access = readBuffer.poll()) != null) {
+				if (!(access instanceof Node)) {
+					if (sketch != null) {
+						sketch.increment(access);
+					}
+					continue;
+				}
+				Node node = (Node) access;
+				if (sketch != null) {
+					sketch.increment(node.key);
+				}
+				if (!node.linked) {
+					// replaced or removed since
+					continue;
+				}
+				if (node.isExpired(now)) {
+					removeNode(node);
+					expirations++;
+				} else {
+					unlink(node);
+					linkLast(node);
+				}
+			}
+		}
+		
+		void put(Object key, Object value, long expiresAt) {
+			Node node = new Node(key, value, expiresAt);
+			lock.lock();
+			try {
+				long now = System.nanoTime();
+				drainReadBuffer(now);
+				Node existing = map.get(key);
+				if (existing != null) {
+					unlink(existing);
+				} else if (map.size() >= capacity && !expireEldest(now)) {
+					Node victim = head;
+					if (sketch != null && sketch.frequency(key) <= sketch.frequency(victim.key)) {
+						// the candidate is not more popular than the entry it would replace
+						rejections++;
+						return;
+					}
+					removeNode(victim);
+					evictions++;
+				}
+				map.put(key, node);
+				linkLast(node);
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		/**
+		 * Removes the expired entries at the least recently used end.
+		 * @return {@code true} if at least one entry was removed
+		 */
+		private boolean expireEldest(long now) {
+			boolean removed = false;
+			while (head != null && head.isExpired(now)) {
+				removeNode(head);
+				expirations++;
+				removed = true;
+			}
+			return removed;
+		}
+		
+		void remove(Object key) {
+			lock.lock();
+			try {
+				Node node = map.get(key);
+				if (node != null) {
+					removeNode(node);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		void clear() {
+			lock.lock();
+			try {
+				while (head != null) {
+					removeNode(head);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		private void removeNode(Node node) {
+			map.remove(node.key, node);
+			unlink(node);
+		}
+		
+		private void linkLast(Node node) {
+			node.prev = tail;
+			node.next = null;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+			node.linked = true;
+		}
+		
+		private void unlink(Node node) {
+			Node prev = node.prev;
+			Node next = node.next;
+			if (prev == null) {
+				head = next;
+			} else {
+				prev.next = next;
+			}
+			if (next == null) {
+				tail = prev;
+			} else {
+				next.prev = prev;
+			}
+			node.prev = null;
+			node.next = null;
+			node.linked = false;
+		}
+	}
+	
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.circuit;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Stops sending requests to an upstream that fails, so that callers fail fast
+ * instead of waiting for their timeouts, and lets a few probing requests
+ * through once it had time to recover.
+ * <p>
+ * The breaker is closed as long as, over the last {@code window} milliseconds,
+ * fewer than {@code minimumCalls} calls completed or both the rate of failures
+ * and the rate of calls slower than {@code slowCallDuration} stay below their
+ * thresholds. Failures are server errors and I/O errors, client errors are not.
+ * When a rate reaches its threshold the breaker opens and rejects every call
+ * for {@code openDuration} milliseconds, then becomes half-open and lets
+ * {@code halfOpenCalls} calls through: it closes again once as many succeeded
+ * in time, and opens again as soon as one did not.
+ * <p>
+ * While closed, acquiring is a volatile read and recording an outcome a few
+ * atomic increments; the state only changes under the lock of the breaker.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class CircuitBreaker {
+
+	private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	private static final int BUCKETS = 10;
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String name;
+
+	private final double failureRateThreshold;
+
+	private final double slowCallRateThreshold;
+
+	private final long slowCallDuration;
+
+	private final int minimumCalls;
+
+	private final long openDuration;
+
+	private final int halfOpenCalls;
+
+	private final SlidingWindow window;
+
+	private volatile State state = State.CLOSED;
+
+	private volatile long openedAt;
+
+	private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+	private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong openCount = new AtomicLong();
+
+	/**
+	 * Create a new {@code CircuitBreaker}.
+	 * @param name the name of the breaker, such as the base URL it guards
+	 * @param failureRateThreshold the rate of failures opening the breaker, between 0 and 1
+	 * @param slowCallRateThreshold the rate of slow calls opening the breaker, between 0 and 1
+	 * @param slowCallDuration the duration in milliseconds from which a call is slow
+	 * @param minimumCalls the calls to complete in the window before the rates are looked at
+	 * @param window the duration in milliseconds of the sliding window
+	 * @param openDuration the time in milliseconds the breaker stays open
+	 * @param halfOpenCalls the probing calls to let through when half-open
+	 */
+	public CircuitBreaker(String name, double failureRateThreshold, double slowCallRateThreshold,
+			long slowCallDuration, int minimumCalls, long window, long openDuration, int halfOpenCalls) {
+		Assert.isTrue(window > 0, "Window must be positive");
+		Assert.isTrue(halfOpenCalls > 0, "Half-open calls must be positive");
+		this.name = name;
+		this.failureRateThreshold = failureRateThreshold;
+		this.slowCallRateThreshold = slowCallRateThreshold;
+		this.slowCallDuration = TimeUnit.MILLISECONDS.toNanos(slowCallDuration);
+		this.minimumCalls = Math.max(1, minimumCalls);
+		this.openDuration = TimeUnit.MILLISECONDS.toNanos(openDuration);
+		this.halfOpenCalls = halfOpenCalls;
+		this.window = new SlidingWindow(TimeUnit.MILLISECONDS.toNanos(window), BUCKETS);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * Returns {@code true} if the upstream is considered down by a call failing with
+	 * the given exception: it answered with a server error, or could not be reached.
+	 */
+	public static boolean isFailure(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = (cause.getCause() != cause) ? cause.getCause() : null) {
+			if (cause instanceof HttpStatusCodeException) {
+				return ((HttpStatusCodeException) cause).getRawStatusCode() >= 500;
+			}
+			if (cause instanceof IOException && !(cause instanceof JsonProcessingException)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Asks to send a call.
+	 * @return {@code false} if the breaker is open, or half-open and all probing
+	 * calls are in flight, in which case the call must not be sent
+	 */
+	public boolean tryAcquire() {
+		State current = state;
+		if (current == State.CLOSED) {
+			return true;
+		}
+		if (current == State.OPEN) {
+			if (System.nanoTime() - openedAt < openDuration || !halfOpen()) {
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+		}
+		while (true) {
+			int permits = halfOpenPermits.get();
+			if (permits <= 0) {
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+			if (halfOpenPermits.compareAndSet(permits, permits - 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Hands back the permit of a call that was not sent, such as one rejected by a
+	 * concurrency limiter, without recording it: while half-open, another probing
+	 * call may then be let through.
+	 */
+	public void release() {
+		if (state != State.HALF_OPEN) {
+			return;
+		}
+		while (true) {
+			int permits = halfOpenPermits.get();
+			if (permits >= halfOpenCalls || halfOpenPermits.compareAndSet(permits, permits + 1)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Records a call that completed.
+	 * @param durationNanos the duration of the call
+	 * @param failure whether the call failed, see {@link #isFailure(Throwable)}
+	 */
+	public void record(long durationNanos, boolean failure) {
+		boolean slow = durationNanos >= slowCallDuration;
+		State current = state;
+		if (current == State.HALF_OPEN) {
+			if (failure || slow) {
+				open(State.HALF_OPEN);
+			} else if (halfOpenSuccesses.incrementAndGet() >= halfOpenCalls) {
+				close();
+			}
+			return;
+		}
+		if (current == State.OPEN) {
+			// sent before the breaker opened
+			return;
+		}
+		window.record(failure, slow);
+		if (failure || slow) {
+			long[] totals = window.getTotals();
+			long calls = SlidingWindow.calls(totals);
+			if (calls >= minimumCalls
+					&& (SlidingWindow.rate(SlidingWindow.failures(totals), calls) >= failureRateThreshold
+					|| SlidingWindow.rate(SlidingWindow.slowCalls(totals), calls) >= slowCallRateThreshold)) {
+				open(State.CLOSED);
+			}
+		}
+	}
+
+	/**
+	 * Returns the time in milliseconds until an open breaker lets probing calls through.
+	 */
+	public long getRemainingOpenTime() {
+		long remaining = openDuration - (System.nanoTime() - openedAt);
+		return (state == State.OPEN && remaining > 0) ? TimeUnit.NANOSECONDS.toMillis(remaining) : 0;
+	}
+
+	public CircuitBreakerStats getStats() {
+		long[] totals = window.getTotals();
+		long calls = SlidingWindow.calls(totals);
+		return new CircuitBreakerStats(name, state, calls,
+				SlidingWindow.rate(SlidingWindow.failures(totals), calls),
+				SlidingWindow.rate(SlidingWindow.slowCalls(totals), calls),
+				rejectedCount.get(), openCount.get());
+	}
+
+	private synchronized void open(State from) {
+		if (state != from) {
+			return;
+		}
+		halfOpenPermits.set(0);
+		openedAt = System.nanoTime();
+		state = State.OPEN;
+		openCount.incrementAndGet();
+		logger.warn("Circuit breaker " + name + " opened" + ((from == State.HALF_OPEN) ? " again" : "")
+				+ ", rejecting calls for " + TimeUnit.NANOSECONDS.toMillis(openDuration) + " ms");
+	}
+
+	private synchronized boolean halfOpen() {
+		if (state == State.OPEN) {
+			halfOpenSuccesses.set(0);
+			halfOpenPermits.set(halfOpenCalls);
+			state = State.HALF_OPEN;
+		}
+		return state == State.HALF_OPEN;
+	}
+
+	private synchronized void close() {
+		if (state == State.HALF_OPEN) {
+			window.reset();
+			state = State.CLOSED;
+			logger.info("Circuit breaker " + name + " closed");
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.circuit;
+
+/**
+ * A snapshot of the state and counters of a {@link CircuitBreaker}, the
+ * rates being those of its sliding window.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class CircuitBreakerStats {
+	
+	private final String name;
+	
+	private final CircuitBreaker.State state;
+	
+	private final long callCount;
+	
+	private final double failureRate;
+	
+	private final double slowCallRate;
+	
+	private final long rejectedCount;
+	
+	private final long openCount;
+	
+	public CircuitBreakerStats(String name, CircuitBreaker.State state, long callCount, double failureRate,
+			double slowCallRate, long rejectedCount, long openCount) {
+		this.name = name;
+		this.state = state;
+		this.callCount = callCount;
+		this.failureRate = failureRate;
+		this.slowCallRate = slowCallRate;
+		this.rejectedCount = rejectedCount;
+		this.openCount = openCount;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public CircuitBreaker.State getState() {
+		return state;
+	}
+	
+	/**
+	 * Returns the number of calls completed in the sliding window.
+	 */
+	public long getCallCount() {
+		return callCount;
+	}
+	
+	public double getFailureRate() {
+		return failureRate;
+	}
+	
+	public double getSlowCallRate() {
+		return slowCallRate;
+	}
+	
+	/**
+	 * Returns the number of calls rejected since the breaker was created.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+	
+	/**
+	 * Returns the number of times the breaker opened.
+	 */
+	public long getOpenCount() {
+		return openCount;
+	}
+	
+	@Override
+	public String toString() {
+		return "CircuitBreakerStats[name=" + name + ", state=" + state + ", callCount=" + callCount
+				+ ", failureRate=" + failureRate + ", slowCallRate=" + slowCallRate
+				+ ", rejectedCount=" + rejectedCount + ", openCount=" + openCount + "]";
+	}
+	
+}
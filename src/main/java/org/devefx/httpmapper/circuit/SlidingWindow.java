@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.circuit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The calls, failures and slow calls of the last few seconds, counted in a
+ * ring of buckets of equal duration. A bucket is claimed for the current
+ * period with a compare-and-set of its period and then cleared, so counts
+ * recorded concurrently with the clearing may be lost, which is fine for rates.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+final class SlidingWindow {
+
+	private static final int CALLS = 0;
+
+	private static final int FAILURES = 1;
+
+	private static final int SLOW_CALLS = 2;
+
+	private static final int COUNTERS = 3;
+
+	private final long bucketNanos;
+
+	private final int bucketCount;
+
+	private final long origin = System.nanoTime();
+
+	private final AtomicLongArray periods;
+
+	private final AtomicLongArray counters;
+
+	SlidingWindow(long windowNanos, int bucketCount) {
+		this.bucketNanos = Math.max(1, windowNanos / bucketCount);
+		this.bucketCount = bucketCount;
+		this.periods = new AtomicLongArray(bucketCount);
+		this.counters = new AtomicLongArray(bucketCount * COUNTERS);
+		for (int i = 0; i < bucketCount; i++) {
+			periods.set(i, -1);
+		}
+	}
+
+	void record(boolean failure, boolean slow) {
+		long period = currentPeriod();
+		int bucket = (int) (period % bucketCount);
+		long claimed = periods.get(bucket);
+		if (claimed != period && periods.compareAndSet(bucket, claimed, period)) {
+			for (int i = 0; i < COUNTERS; i++) {
+				counters.set(bucket * COUNTERS + i, 0);
+			}
+		}
+		counters.incrementAndGet(bucket * COUNTERS + CALLS);
+		if (failure) {
+			counters.incrementAndGet(bucket * COUNTERS + FAILURES);
+		}
+		if (slow) {
+			counters.incrementAndGet(bucket * COUNTERS + SLOW_CALLS);
+		}
+	}
+
+	/**
+	 * Returns the calls, failures and slow calls of the buckets still in the window.
+	 */
+	long[] getTotals() {
+		long period = currentPeriod();
+		long[] totals = new long[COUNTERS];
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			long claimed = periods.get(bucket);
+			if (claimed >= 0 && period - claimed < bucketCount) {
+				for (int i = 0; i < COUNTERS; i++) {
+					totals[i] += counters.get(bucket * COUNTERS + i);
+				}
+			}
+		}
+		return totals;
+	}
+
+	void reset() {
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			periods.set(bucket, -1);
+		}
+	}
+
+	static double rate(long count, long calls) {
+		return (calls > 0) ? (double) count / calls : 0;
+	}
+
+	static long calls(long[] totals) {
+		return totals[CALLS];
+	}
+
+	static long failures(long[] totals) {
+		return totals[FAILURES];
+	}
+
+	static long slowCalls(long[] totals) {
+		return totals[SLOW_CALLS];
+	}
+
+	private long currentPeriod() {
+		return (System.nanoTime() - origin) / bucketNanos;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.devefx.httpmapper.codec;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+/**
+ * Registry of the {@link ObjectMapper}s used to encode request bodies and
+ * decode response bodies, keyed by content type.
+ * <p>
+ * One registry is owned by the {@link org.devefx.httpmapper.Configuration}
+ * and shared by all mapper methods, so that serializer and deserializer
+ * caches are shared as well. JSON and XML codecs are registered by default,
+ * JSON being the fallback for any content type without a codec.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class CodecRegistry {
+	
+	private volatile Map<MediaType, ObjectMapper> codecs = Collections.emptyMap();
+	
+	private volatile ObjectMapper defaultCodec;
+	
+	public CodecRegistry() {
+		ObjectMapper json = configure(new ObjectMapper());
+		register(MediaType.APPLICATION_JSON, json);
+		register(new MediaType("application", "*+json"), json);
+		
+		ObjectMapper xml = configure(new XmlMapper());
+		register(MediaType.APPLICATION_XML, xml);
+		register(MediaType.TEXT_XML, xml);
+		register(new MediaType("application", "*+xml"), xml);
+		
+		this.defaultCodec = json;
+	}
+	
+	/**
+	 * Applies the settings shared by the built-in codecs.
+	 */
+	protected ObjectMapper configure(ObjectMapper mapper) {
+		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		return mapper;
+	}
+	
+	/**
+	 * Registers a codec for the given content type, replacing any codec
+	 * previously registered for it. Wildcard types such as
+	 * {@code application/*+json} are supported.
+	 * @param mediaType the content type
+	 * @param codec the object mapper to use for that content type
+	 */
+	public synchronized void register(MediaType mediaType, ObjectMapper codec) {
+		Assert.notNull(mediaType, "MediaType must not be null");
+		Assert.notNull(codec, "Codec must not be null");
+		Map<MediaType, ObjectMapper> copy = new LinkedHashMap<MediaType, ObjectMapper>(this.codecs);
+		copy.put(mediaType, codec);
+		// keep the most specific types first so that lookups hit them before wildcards
+		List<MediaType> keys = new ArrayList<MediaType>(copy.keySet());
+		MediaType.sortBySpecificity(keys);
+		Map<MediaType, ObjectMapper> result = new LinkedHashMap<MediaType, ObjectMapper>();
+		for (MediaType key : keys) {
+			result.put(key, copy.get(key));
+		}
+		this.codecs = Collections.unmodifiableMap(result);
+	}
+	
+	/**
+	 * Registers codecs by content type, for instance from a Spring XML configuration.
+	 * @param codecs the object mappers keyed by content type
+	 */
+	public void setCodecs(Map<String, ObjectMapper> codecs) {
+		for (Map.Entry<String, ObjectMapper> entry : codecs.entrySet()) {
+			register(MediaType.valueOf(entry.getKey()), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Sets the codec used for content types without a registered codec.
+	 */
+	public void setDefaultCodec(ObjectMapper defaultCodec) {
+		Assert.notNull(defaultCodec, "Codec must not be null");
+		this.defaultCodec = defaultCodec;
+	}
+	
+	public ObjectMapper getDefaultCodec() {
+		return defaultCodec;
+	}
+	
+	/**
+	 * Returns the codec registered for the given content type, or {@code null}.
+	 * @param mediaType the content type, may be {@code null}
+	 */
+	public ObjectMapper findCodec(MediaType mediaType) {
+		if (mediaType != null) {
+			for (Map.Entry<MediaType, ObjectMapper> entry : codecs.entrySet()) {
+				if (entry.getKey().includes(mediaType)) {
+					return entry.getValue();
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the codec for the given content type, falling back to the default codec.
+	 * @param mediaType the content type, may be {@code null}
+	 */
+	public ObjectMapper getCodec(MediaType mediaType) {
+		ObjectMapper codec = findCodec(mediaType);
+		return (codec != null) ? codec : defaultCodec;
+	}
+	
+	/**
+	 * Returns the content types that have a registered codec.
+	 */
+	public List<MediaType> getMediaTypes() {
+		return new ArrayList<MediaType>(codecs.keySet());
+	}
+	
+	public JavaType constructType(Type type) {
+		return defaultCodec.getTypeFactory().constructType(type);
+	}
+	
+	/**
+	 * Returns a reader for the given content type and value type.
+	 */
+	public ObjectReader getReader(MediaType mediaType, JavaType valueType) {
+		return getCodec(mediaType).readerFor(valueType);
+	}
+	
+	/**
+	 * Returns a writer for the given content type, or {@code null} if no codec is
+	 * registered for it (the body is then left to the RestTemplate converters).
+	 */
+	public ObjectWriter getWriter(MediaType mediaType) {
+		ObjectMapper codec = findCodec(mediaType);
+		return (codec != null) ? codec.writer() : null;
+	}
+	
+}
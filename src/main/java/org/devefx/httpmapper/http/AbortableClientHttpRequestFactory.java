@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.http;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * A request factory over Apache HttpClient whose requests can be aborted by
+ * another thread through the {@link RequestAborter} bound to the thread sending
+ * them. The default template of the configuration uses it; templates set by
+ * the application need it for the losing hedged requests to be aborted.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class AbortableClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+	public AbortableClientHttpRequestFactory() {
+		super();
+	}
+
+	public AbortableClientHttpRequestFactory(HttpClient httpClient) {
+		super(httpClient);
+	}
+
+	@Override
+	protected void postProcessHttpRequest(HttpUriRequest request) {
+		RequestAborter.register(request);
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.devefx.httpmapper.utils.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * A {@link HandlerListener} calling the {@code onResponse} of another listener
+ * on worker threads of its own, so that work which does not affect the result,
+ * such as auditing, does not delay the call.
+ * <p>
+ * {@code onRequest} is still called on the request thread. The responses are
+ * handed over through a bounded, lock-free {@link RingBuffer}; while it is full,
+ * events are dropped and counted or the caller waits, depending on the
+ * {@link OverflowPolicy}. The listener gets copies of the entities, taken when
+ * the event is published, so that the listeners called after it on the request
+ * thread cannot change its headers; bodies are shared and must only be read.
+ * A raw body is parsed on the worker thread. With a single worker, the default,
+ * events are delivered in the order of the responses.
+ * <p>
+ * The workers are started by the first event and stopped by {@link #destroy()},
+ * after delivering the events still queued.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class AsyncHandlerListener implements HandlerListener, DisposableBean {
+	
+	private static final Logger logger = LoggerFactory.getLogger(AsyncHandlerListener.class);
+	
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+	
+	private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	
+	private final HandlerListener delegate;
+	
+	private final RingBuffer<Event> ringBuffer;
+	
+	private final int workerCount;
+	
+	private final OverflowPolicy overflowPolicy;
+	
+	private final AtomicLong droppedCount = new AtomicLong();
+	
+	private final AtomicLong failedCount = new AtomicLong();
+	
+	private final AtomicInteger idleWorkers = new AtomicInteger();
+	
+	private volatile Thread[] workers;
+	
+	private volatile boolean destroyed;
+	
+	/**
+	 * Create a new {@code AsyncHandlerListener} with one worker and room for 8192
+	 * events, dropping the events beyond.
+	 * @param delegate the listener to call
+	 */
+	public AsyncHandlerListener(HandlerListener delegate) {
+		this(delegate, 8192, 1, OverflowPolicy.DROP);
+	}
+	
+	/**
+	 * Create a new {@code AsyncHandlerListener}.
+	 * @param delegate the listener to call
+	 * @param capacity the number of events that may wait, rounded up to a power of two
+	 * @param workerCount the number of threads calling the listener
+	 * @param overflowPolicy what to do with an event while the buffer is full
+	 */
+	public AsyncHandlerListener(HandlerListener delegate, int capacity, int workerCount, OverflowPolicy overflowPolicy) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.isTrue(workerCount > 0, "Worker count must be positive");
+		Assert.notNull(overflowPolicy, "OverflowPolicy must not be null");
+		this.delegate = delegate;
+		this.ringBuffer = new RingBuffer<Event>(capacity);
+		this.workerCount = workerCount;
+		this.overflowPolicy = overflowPolicy;
+	}
+	
+	public HandlerListener getDelegate() {
+		return delegate;
+	}
+	
+	@Override
+	public void onRequest(RequestEntity requestEntity) throws Exception {
+		delegate.onRequest(requestEntity);
+	}
+	
+	@Override
+	public void onResponse(RequestEntity requestEntity, ResponseEntity responseEntity) throws Exception {
+		if (!ensureStarted()) {
+			droppedCount.incrementAndGet();
+			return;
+		}
+		Event event = new Event(copy(requestEntity), responseEntity.copy(copyHeaders(responseEntity.getHeaders())));
+		while (!ringBuffer.offer(event)) {
+			if (overflowPolicy == OverflowPolicy.DROP || destroyed) {
+				droppedCount.incrementAndGet();
+				return;
+			}
+			LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+		}
+		if (idleWorkers.get() > 0) {
+			for (Thread worker : workers) {
+				LockSupport.unpark(worker);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of events dropped because the buffer was full or the
+	 * listener destroyed.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+	
+	/**
+	 * Returns the number of events whose delivery threw an exception.
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	/**
+	 * Returns the number of events waiting to be delivered.
+	 */
+	public int getPendingCount() {
+		return ringBuffer.size();
+	}
+	
+	private boolean ensureStarted() {
+		if (destroyed) {
+			return false;
+		}
+		if (workers != null) {
+			return true;
+		}
+		synchronized (this) {
+			if (destroyed) {
+				return false;
+			}
+			if (workers == null) {
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("httpmapper-listener-");
+				threadFactory.setDaemon(true);
+				Thread[] workers = new Thread[workerCount];
+				for (int i = 0; i < workerCount; i++) {
+					workers[i] = threadFactory.newThread(new Runnable() {
+						@Override
+						public void run() {
+							deliver();
+						}
+					});
+				}
+				this.workers = workers;
+				for (Thread worker : workers) {
+					worker.start();
+				}
+			}
+			return true;
+		}
+	}
+	
+	private void deliver() {
+		while (true) {
+			Event event = ringBuffer.poll();
+			if (event == null) {
+				if (destroyed) {
+					return;
+				}
+				idleWorkers.incrementAndGet();
+				// a producer seeing no idle worker has published before this check
+				if (ringBuffer.isEmpty() && !destroyed) {
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				}
+				idleWorkers.decrementAndGet();
+				continue;
+			}
+			try {
+				delegate.onResponse(event.requestEntity, event.responseEntity);
+			} catch (Throwable ex) {
+				failedCount.incrementAndGet();
+				logger.warn("Listener " + delegate + " failed on the response of " + event.requestEntity.getUrl(), ex);
+			}
+		}
+	}
+	
+	private static RequestEntity copy(RequestEntity requestEntity) {
+		MultiValueMap<String, Object> body = requestEntity.getBody();
+		return new RequestEntity((body != null) ? new LinkedMultiValueMap<String, Object>(body) : null,
+				copyHeaders(requestEntity.getHeaders()), requestEntity.getMethod(), requestEntity.getUrl(),
+				requestEntity.getType());
+	}
+	
+	private static MultiValueMap<String, String> copyHeaders(HttpHeaders headers) {
+		MultiValueMap<String, String> copy = new LinkedMultiValueMap<String, String>(headers.size());
+		for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+			copy.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+		}
+		return copy;
+	}
+	
+	@Override
+	public void destroy() throws InterruptedException {
+		Thread[] workers;
+		synchronized (this) {
+			destroyed = true;
+			workers = this.workers;
+		}
+		if (workers != null) {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			for (Thread worker : workers) {
+				LockSupport.unpark(worker);
+			}
+			for (Thread worker : workers) {
+				worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+			}
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "AsyncHandlerListener for " + delegate;
+	}
+	
+	private static final class Event {
+		
+		final RequestEntity requestEntity;
+		
+		final ResponseEntity responseEntity;
+		
+		Event(RequestEntity requestEntity, ResponseEntity responseEntity) {
+			this.requestEntity = requestEntity;
+			this.responseEntity = responseEntity;
+		}
+	}
+	
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.http;
+
+import java.io.IOException;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * The raw content of a response body, kept together with the codec able to
+ * read it so that it is only parsed when (and as) somebody needs it.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class BufferedBody {
+	
+	private final byte[] content;
+	
+	private final MediaType contentType;
+	
+	private final ObjectMapper codec;
+	
+	/**
+	 * Create a new {@code BufferedBody}.
+	 * @param content the raw response body
+	 * @param contentType the content type of the response, may be {@code null}
+	 * @param codec the codec registered for that content type
+	 */
+	public BufferedBody(byte[] content, MediaType contentType, ObjectMapper codec) {
+		this.content = content;
+		this.contentType = contentType;
+		this.codec = codec;
+	}
+	
+	/**
+	 * Returns the raw response body.
+	 */
+	public byte[] getContent() {
+		return this.content;
+	}
+	
+	/**
+	 * Returns the content type of the response, or {@code null} if not known.
+	 */
+	public MediaType getContentType() {
+		return this.contentType;
+	}
+	
+	/**
+	 * Returns the codec registered for the content type of the response.
+	 */
+	public ObjectMapper getCodec() {
+		return this.codec;
+	}
+	
+	/**
+	 * Parses the content into a tree.
+	 */
+	public JsonNode readTree() throws IOException {
+		return this.codec.readTree(this.content);
+	}
+	
+	/**
+	 * Parses the content with the given reader, which should have been
+	 * created by {@link #getCodec() the codec} of this body.
+	 */
+	public <T> T read(ObjectReader reader) throws IOException {
+		return reader.readValue(this.content);
+	}
+	
+}
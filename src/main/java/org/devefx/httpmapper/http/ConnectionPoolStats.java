@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.http;
+
+import java.util.Map;
+
+import org.apache.http.pool.PoolStats;
+
+/**
+ * A snapshot of the connection pool of the transport, in total and per
+ * route (the scheme, host and port connections are opened to).
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ConnectionPoolStats {
+	
+	private final PoolStats totalStats;
+	
+	private final Map<String, PoolStats> routeStats;
+	
+	public ConnectionPoolStats(PoolStats totalStats, Map<String, PoolStats> routeStats) {
+		this.totalStats = totalStats;
+		this.routeStats = routeStats;
+	}
+	
+	/**
+	 * Returns the leased, pending (waiting for a lease) and available
+	 * connections of the whole pool, and its maximum size.
+	 */
+	public PoolStats getTotalStats() {
+		return totalStats;
+	}
+	
+	/**
+	 * Returns the statistics of each route with pooled connections, keyed by route.
+	 */
+	public Map<String, PoolStats> getRouteStats() {
+		return routeStats;
+	}
+	
+	@Override
+	public String toString() {
+		return "ConnectionPoolStats[total=" + totalStats + ", routes=" + routeStats + "]";
+	}
+	
+}
@@ -106,12 +106,12 @@ public class HttpEntity<T> {
 		}
 		HttpEntity<?> otherEntity = (HttpEntity<?>) other;
 		return (ObjectUtils.nullSafeEquals(this.headers, otherEntity.headers) &&
-				ObjectUtils.nullSafeEquals(this.body, otherEntity.body));
+				ObjectUtils.nullSafeEquals(getBody(), otherEntity.getBody()));
 	}
 
 	@Override
 	public int hashCode() {
-		return (ObjectUtils.nullSafeHashCode(this.headers) * 29 + ObjectUtils.nullSafeHashCode(this.body));
+		return (ObjectUtils.nullSafeHashCode(this.headers) * 29 + ObjectUtils.nullSafeHashCode(getBody()));
 	}
 	
 	@Override
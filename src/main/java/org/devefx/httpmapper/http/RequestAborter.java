@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.http;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Lets another thread abort the request the current thread is sending, for
+ * instance the losing one of two hedged requests. Aborting closes the
+ * connection of the request, whether it is still being leased, written or
+ * read, which makes the sending thread fail with an {@code IOException} and
+ * gives the connection back to the pool.
+ * <p>
+ * Requests are only known to the aborter if they are created by an
+ * {@link AbortableClientHttpRequestFactory}, aborting does nothing otherwise.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public final class RequestAborter {
+
+	private static final ThreadLocal<RequestAborter> current = new ThreadLocal<RequestAborter>();
+
+	private final RequestAborter previous;
+
+	private volatile HttpUriRequest request;
+
+	private volatile boolean aborted;
+
+	private RequestAborter(RequestAborter previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Binds a new aborter to the current thread, which the requests it creates
+	 * until {@link #unbind()} register with.
+	 */
+	public static RequestAborter bind() {
+		RequestAborter aborter = new RequestAborter(current.get());
+		current.set(aborter);
+		return aborter;
+	}
+
+	/**
+	 * Returns the aborter bound to the current thread, or {@code null}.
+	 */
+	public static RequestAborter current() {
+		return current.get();
+	}
+
+	/**
+	 * Registers a request created by the current thread with the aborter bound
+	 * to it, if any. The request is aborted right away if the aborter already was.
+	 */
+	public static void register(HttpUriRequest request) {
+		RequestAborter aborter = current.get();
+		if (aborter != null) {
+			aborter.request = request;
+			if (aborter.aborted) {
+				request.abort();
+			}
+		}
+	}
+
+	/**
+	 * Unbinds this aborter from the current thread, restoring the one bound before.
+	 */
+	public void unbind() {
+		if (previous != null) {
+			current.set(previous);
+		} else {
+			current.remove();
+		}
+	}
+
+	/**
+	 * Aborts the request registered last, and any request registered afterwards.
+	 */
+	public void abort() {
+		aborted = true;
+		HttpUriRequest request = this.request;
+		if (request != null) {
+			request.abort();
+		}
+	}
+
+	public boolean isAborted() {
+		return aborted;
+	}
+
+}
@@ -16,8 +16,11 @@
 
 package org.devefx.httpmapper.http;
 
+import java.io.IOException;
+
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.util.Assert;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.ObjectUtils;
@@ -30,6 +33,8 @@ import org.springframework.util.ObjectUtils;
 public class ResponseEntity extends HttpEntity<Object> {
 	
 	private final Object statusCode;
+	
+	private BufferedBody bufferedBody;
 
 
 	/**
@@ -70,6 +75,18 @@ public class ResponseEntity extends HttpEntity<Object> {
 		this.statusCode = status;
 	}
 
+	/**
+	 * Create a new {@code ResponseEntity} with the given raw body, headers, and status code.
+	 * The body is only parsed into a tree when {@link #getBody()} is first called.
+	 * @param bufferedBody the raw entity body
+	 * @param headers the entity headers
+	 * @param status the status code
+	 */
+	public ResponseEntity(BufferedBody bufferedBody, MultiValueMap<String, String> headers, HttpStatus status) {
+		this((Object) null, headers, status);
+		this.bufferedBody = bufferedBody;
+	}
+
 	/**
 	 * Create a new {@code HttpEntity} with the given body, headers, and status code.
 	 * Just used behind the nested builder API.
@@ -110,6 +127,54 @@ public class ResponseEntity extends HttpEntity<Object> {
 	}
 
 
+	/**
+	 * Returns the body of this entity, parsing the raw body into a
+	 * {@link com.fasterxml.jackson.databind.JsonNode} on first access.
+	 */
+	@Override
+	public Object getBody() {
+		if (this.bufferedBody != null) {
+			BufferedBody raw = this.bufferedBody;
+			this.bufferedBody = null;
+			try {
+				super.setBody(raw.readTree());
+			} catch (IOException ex) {
+				throw new HttpMessageNotReadableException("Could not read document: " + ex.getMessage(), ex);
+			}
+		}
+		return super.getBody();
+	}
+
+	@Override
+	public void setBody(Object body) {
+		this.bufferedBody = null;
+		super.setBody(body);
+	}
+
+	@Override
+	public boolean hasBody() {
+		return (this.bufferedBody != null || super.hasBody());
+	}
+
+	/**
+	 * Returns a copy of this entity with the given headers, sharing its body,
+	 * still raw if it has not been parsed yet.
+	 */
+	ResponseEntity copy(MultiValueMap<String, String> headers) {
+		ResponseEntity copy = new ResponseEntity(super.getBody(), headers, this.statusCode);
+		copy.bufferedBody = this.bufferedBody;
+		return copy;
+	}
+
+	/**
+	 * Returns the raw body if it has not been parsed or replaced yet.
+	 * @return the raw body, or {@code null} once {@link #getBody()} or
+	 * {@link #setBody(Object)} has been called
+	 */
+	public BufferedBody getBufferedBody() {
+		return this.bufferedBody;
+	}
+
 	@Override
 	public boolean equals(Object other) {
 		if (this == other) {
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.limit;
+
+import org.devefx.httpmapper.binding.BindingException;
+
+/**
+ * Thrown instead of sending a request when the calls in flight to its host
+ * reached the limit of its {@link ConcurrencyLimiter}.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ConcurrencyLimitExceededException extends BindingException {
+
+	private static final long serialVersionUID = 7712953450618873042L;
+
+	private final String limiterName;
+
+	public ConcurrencyLimitExceededException(String message, String limiterName) {
+		super(message);
+		this.limiterName = limiterName;
+	}
+
+	/**
+	 * Returns the name of the limiter, the host it guards.
+	 */
+	public String getLimiterName() {
+		return limiterName;
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.limit;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.util.Assert;
+import org.springframework.web.client.HttpStatusCodeException;
+
+/**
+ * Limits the calls in flight to an upstream host, learning the limit from the
+ * round-trip times of the calls with a gradient algorithm.
+ * <p>
+ * The limiter compares the average round-trip time of the calls completed in
+ * the latest round trip with a baseline standing for the host when it is not
+ * loaded: the lowest average seen, rising towards the current one within
+ * minutes so that it follows a host becoming slower for good. While the average
+ * stays within {@code rttTolerance} times the baseline, the limit grows by about
+ * its square root, otherwise it shrinks in proportion, by at most half. It also
+ * shrinks when the host times out or answers that it is overloaded. The limit
+ * only grows while calls use at least half of it, so that an idle host does not
+ * get a limit it never proved to sustain.
+ * <p>
+ * Calls over the limit are rejected without waiting, before they take a connection.
+ * Releasing a permit adds the round trip to the current window with atomic
+ * counters; only the call closing the window takes the lock, and a call finding
+ * it taken leaves the update to the holder.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ConcurrencyLimiter {
+
+	private static final long BASELINE_DRIFT = TimeUnit.SECONDS.toNanos(60);
+
+	private static final double SMOOTHING = 0.2;
+
+	private static final double BACKOFF_RATIO = 0.9;
+
+	private final String name;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double rttTolerance;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong windowStart = new AtomicLong();
+
+	private final AtomicLong windowRttSum = new AtomicLong();
+
+	private final AtomicInteger windowCount = new AtomicInteger();
+
+	private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+
+	private final AtomicBoolean windowDropped = new AtomicBoolean();
+
+	private final ReentrantLock updateLock = new ReentrantLock();
+
+	private volatile int limit;
+
+	private volatile double shortRtt;
+
+	private volatile double baselineRtt;
+
+	private double estimatedLimit;
+
+	/**
+	 * Create a new {@code ConcurrencyLimiter}.
+	 * @param name the name of the limiter, such as the host it guards
+	 * @param initialLimit the limit until the first round trips are seen
+	 * @param minLimit the lowest limit
+	 * @param maxLimit the highest limit
+	 * @param rttTolerance how many times the round-trip time of the unloaded
+	 * host calls may take before the limit shrinks
+	 */
+	public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double rttTolerance) {
+		Assert.isTrue(minLimit > 0 && minLimit <= maxLimit, "Limits must be positive, the minimum at most the maximum");
+		Assert.isTrue(rttTolerance >= 1, "RTT tolerance must be at least 1");
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.rttTolerance = rttTolerance;
+		this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.limit = (int) estimatedLimit;
+	}
+
+	/**
+	 * Returns {@code true} if the given exception shows the host overloaded:
+	 * a timeout, or a response with status 429 or 503.
+	 */
+	public static boolean isDropped(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = (cause.getCause() != cause) ? cause.getCause() : null) {
+			if (cause instanceof HttpStatusCodeException) {
+				int statusCode = ((HttpStatusCodeException) cause).getRawStatusCode();
+				return statusCode == 429 || statusCode == 503;
+			}
+			if (cause instanceof SocketTimeoutException || cause instanceof ConnectTimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Asks to send a call, which must then release its permit.
+	 * @return {@code false} if the limit is reached, in which case the call must not be sent
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Releases the permit of a call that completed, learning from its round trip.
+	 * @param rttNanos the round-trip time of the call
+	 * @param dropped whether the host was overloaded, see {@link #isDropped(Throwable)}
+	 */
+	public void release(long rttNanos, boolean dropped) {
+		int current = inFlight.getAndDecrement();
+		update(rttNanos, current, dropped);
+	}
+
+	/**
+	 * Releases the permit of a call whose round trip tells nothing, such as a cancelled one.
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Adds a round trip to the current window, and updates the limit once the
+	 * window lasted as long as a round trip, so that it sees the effect of the
+	 * previous update before the next one.
+	 */
+	private void update(long rttNanos, int inFlight, boolean dropped) {
+		long now = System.nanoTime();
+		windowStart.compareAndSet(0, now);
+		if (dropped) {
+			droppedCount.incrementAndGet();
+			windowDropped.set(true);
+		} else {
+			windowRttSum.addAndGet(rttNanos);
+			windowCount.incrementAndGet();
+		}
+		int max = windowMaxInFlight.get();
+		while (inFlight > max && !windowMaxInFlight.compareAndSet(max, inFlight)) {
+			max = windowMaxInFlight.get();
+		}
+		if (now - windowStart.get() < shortRtt || !updateLock.tryLock()) {
+			return;
+		}
+		try {
+			// another call may have closed the window meanwhile
+			long elapsed = now - windowStart.get();
+			if (elapsed < shortRtt || (windowCount.get() == 0 && !windowDropped.get())) {
+				return;
+			}
+			// round trips added while draining count towards the next window
+			long rttSum = windowRttSum.getAndSet(0);
+			int count = windowCount.getAndSet(0);
+			int maxInFlight = windowMaxInFlight.getAndSet(0);
+			boolean droppedInWindow = windowDropped.getAndSet(false);
+			windowStart.set(now);
+			double newLimit = estimatedLimit;
+			if (droppedInWindow) {
+				newLimit = estimatedLimit * BACKOFF_RATIO;
+			} else {
+				double rtt = (double) rttSum / count;
+				shortRtt = rtt;
+				if (baselineRtt == 0 || rtt < baselineRtt) {
+					baselineRtt = rtt;
+				} else {
+					// rises by about 63% of the difference in a minute, whatever the rate of calls
+					baselineRtt += (rtt - baselineRtt) * Math.min(1.0, (double) elapsed / BASELINE_DRIFT);
+				}
+				if (maxInFlight >= estimatedLimit / 2) {
+					double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * baselineRtt / rtt));
+					newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+					newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+				}
+			}
+			estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+			limit = (int) estimatedLimit;
+		} finally {
+			updateLock.unlock();
+		}
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getInFlightCount() {
+		return inFlight.get();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	public ConcurrencyLimiterStats getStats() {
+		return new ConcurrencyLimiterStats(name, limit, inFlight.get(), shortRtt / 1000000, baselineRtt / 1000000,
+				rejectedCount.get(), droppedCount.get());
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.limit;
+
+/**
+ * A snapshot of the limit, the round-trip time estimates and the counters of a
+ * {@link ConcurrencyLimiter}.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ConcurrencyLimiterStats {
+	
+	private final String name;
+	
+	private final int limit;
+	
+	private final int inFlightCount;
+	
+	private final double shortRtt;
+	
+	private final double baselineRtt;
+	
+	private final long rejectedCount;
+	
+	private final long droppedCount;
+	
+	public ConcurrencyLimiterStats(String name, int limit, int inFlightCount, double shortRtt, double baselineRtt,
+			long rejectedCount, long droppedCount) {
+		this.name = name;
+		this.limit = limit;
+		this.inFlightCount = inFlightCount;
+		this.shortRtt = shortRtt;
+		this.baselineRtt = baselineRtt;
+		this.rejectedCount = rejectedCount;
+		this.droppedCount = droppedCount;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int getLimit() {
+		return limit;
+	}
+	
+	public int getInFlightCount() {
+		return inFlightCount;
+	}
+	
+	/**
+	 * Returns the average round-trip time of the latest calls, in milliseconds.
+	 */
+	public double getShortRtt() {
+		return shortRtt;
+	}
+	
+	/**
+	 * Returns the baseline round-trip time, standing for the host when it is
+	 * not loaded, in milliseconds.
+	 */
+	public double getBaselineRtt() {
+		return baselineRtt;
+	}
+	
+	/**
+	 * Returns the number of calls rejected since the limiter was created.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+	
+	/**
+	 * Returns the number of calls that timed out or found the host overloaded.
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("ConcurrencyLimiterStats[name=%s, limit=%d, inFlightCount=%d, shortRtt=%.2fms, "
+				+ "baselineRtt=%.2fms, rejectedCount=%d, droppedCount=%d]", name, limit, inFlightCount, shortRtt,
+				baselineRtt, rejectedCount, droppedCount);
+	}
+	
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link WireLogSink} handing records to a single daemon thread, which
+ * formats and writes them, so that neither formatting nor log I/O happens
+ * on the request thread.
+ * <p>
+ * The queue is bounded: records submitted while it is full are dropped and
+ * counted rather than blocking the caller. The thread is started by the
+ * first record and stopped by {@link #destroy()}, after writing the records
+ * still queued.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class AsyncWireLogSink implements WireLogSink, DisposableBean {
+	
+	private static final Entry SHUTDOWN = new Entry(null, null);
+	
+	private final BlockingQueue<Entry> queue;
+	
+	private final AtomicLong droppedCount = new AtomicLong();
+	
+	private volatile Thread thread;
+	
+	private volatile boolean destroyed;
+	
+	public AsyncWireLogSink() {
+		this(8192);
+	}
+	
+	/**
+	 * Create a new {@code AsyncWireLogSink}.
+	 * @param capacity the number of records that may wait to be written
+	 */
+	public AsyncWireLogSink(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be positive");
+		this.queue = new ArrayBlockingQueue<Entry>(capacity);
+	}
+	
+	@Override
+	public void write(Logger logger, WireLogRecord record) {
+		if (!ensureStarted() || !queue.offer(new Entry(logger, record))) {
+			droppedCount.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Returns the number of records dropped because the queue was full or the
+	 * sink destroyed.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+	
+	private boolean ensureStarted() {
+		if (destroyed) {
+			return false;
+		}
+		if (thread != null) {
+			return true;
+		}
+		synchronized (this) {
+			if (destroyed) {
+				return false;
+			}
+			if (thread == null) {
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("httpmapper-wirelog-");
+				threadFactory.setDaemon(true);
+				Thread thread = threadFactory.newThread(new Runnable() {
+					@Override
+					public void run() {
+						drain();
+					}
+				});
+				thread.start();
+				this.thread = thread;
+			}
+			return true;
+		}
+	}
+	
+	private void drain() {
+		try {
+			Entry entry;
+			while ((entry = queue.take()) != SHUTDOWN) {
+				try {
+					entry.logger.info("{}", entry.record);
+				} catch (RuntimeException ex) {
+					// a broken appender must not stop the sink
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Override
+	public void destroy() throws InterruptedException {
+		Thread thread;
+		synchronized (this) {
+			destroyed = true;
+			thread = this.thread;
+		}
+		if (thread != null) {
+			if (!queue.offer(SHUTDOWN, 1, TimeUnit.SECONDS)) {
+				thread.interrupt();
+			}
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		}
+	}
+	
+	private static final class Entry {
+		
+		final Logger logger;
+		
+		final WireLogRecord record;
+		
+		Entry(Logger logger, WireLogRecord record) {
+			this.logger = logger;
+			this.record = record;
+		}
+	}
+	
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.logging;
+
+/**
+ * How much of an exchange the wire log writes.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public enum WireLogLevel {
+	
+	/**
+	 * Nothing is logged.
+	 */
+	NONE,
+	
+	/**
+	 * The request method and URL and the response status.
+	 */
+	BASIC,
+	
+	/**
+	 * {@link #BASIC} plus the request and response headers.
+	 */
+	HEADERS,
+	
+	/**
+	 * {@link #HEADERS} plus the request parameters and the response body,
+	 * both truncated to the configured maximum. Responses of methods
+	 * returning a stream are read into memory to be logged.
+	 */
+	BODY;
+	
+	public boolean includes(WireLogLevel level) {
+		return compareTo(level) >= 0;
+	}
+	
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.logging;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * One exchange of the wire log, completed or failed. The parts to log are captured when the
+ * exchange completes, but only turned into text by {@link #toString()},
+ * which the {@link WireLogSink} may call on another thread.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public final class WireLogRecord {
+	
+	private static final String TRUNCATED = "...";
+	
+	private final String name;
+	
+	private final HttpMethod method;
+	
+	private final URI url;
+	
+	private final int status;
+	
+	private final Throwable failure;
+	
+	private final Map<String, List<String>> requestHeaders;
+	
+	private final Object parameters;
+	
+	private final Map<String, List<String>> responseHeaders;
+	
+	private final byte[] content;
+	
+	private final Charset charset;
+	
+	private final int maxBodyBytes;
+	
+	WireLogRecord(String name, HttpMethod method, URI url, int status, Throwable failure,
+			Map<String, List<String>> requestHeaders, Object parameters,
+			Map<String, List<String>> responseHeaders, byte[] content, Charset charset, int maxBodyBytes) {
+		this.name = name;
+		this.method = method;
+		this.url = url;
+		this.status = status;
+		this.failure = failure;
+		this.requestHeaders = requestHeaders;
+		this.parameters = parameters;
+		this.responseHeaders = responseHeaders;
+		this.content = content;
+		this.charset = charset;
+		this.maxBodyBytes = maxBodyBytes;
+	}
+	
+	/**
+	 * Returns the name of the mapper method that made the exchange.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	public HttpMethod getMethod() {
+		return method;
+	}
+	
+	public URI getUrl() {
+		return url;
+	}
+	
+	/**
+	 * Returns the status code of the response, or {@code -1} if there was none.
+	 */
+	public int getStatus() {
+		return status;
+	}
+	
+	/**
+	 * Returns the exception the exchange failed with, or {@code null} if it completed.
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder(128);
+		buf.append(name).append(" ====> ").append(method).append(' ').append(url);
+		if (status != -1) {
+			buf.append(" [status=").append(status).append(']');
+		}
+		if (failure != null) {
+			buf.append(" [failure=").append(failure).append(']');
+		}
+		if (requestHeaders != null) {
+			buf.append("\n  Headers: ").append(requestHeaders);
+		}
+		if (parameters != null) {
+			buf.append("\n  Parameters: ");
+			appendTruncated(buf, String.valueOf(parameters));
+		}
+		if (responseHeaders != null) {
+			buf.append("\n  Response headers: ").append(responseHeaders);
+		}
+		if (content != null) {
+			buf.append("\n  Response: ");
+			int length = Math.min(content.length, maxBodyBytes);
+			buf.append(new String(content, 0, length, charset));
+			if (length < content.length) {
+				buf.append(TRUNCATED).append(" (").append(content.length).append(" bytes)");
+			}
+		}
+		return buf.toString();
+	}
+	
+	private void appendTruncated(StringBuilder buf, String value) {
+		if (value.length() <= maxBodyBytes) {
+			buf.append(value);
+		} else {
+			buf.append(value, 0, maxBodyBytes).append(TRUNCATED)
+				.append(" (").append(value.length()).append(" chars)");
+		}
+	}
+	
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.logging;
+
+import org.slf4j.Logger;
+
+/**
+ * Writes wire log records, possibly on another thread.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public interface WireLogSink {
+	
+	/**
+	 * Writes the record to the logger at INFO level. Records are formatted
+	 * by their {@code toString()}, which the sink may defer.
+	 */
+	void write(Logger logger, WireLogRecord record);
+	
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.logging;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.devefx.httpmapper.http.BufferedBody;
+import org.devefx.httpmapper.http.RequestEntity;
+import org.devefx.httpmapper.http.ResponseEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+
+/**
+ * The wire log of one mapper method. Exchanges are written at INFO level to
+ * the logger {@code org.devefx.httpmapper.wire.<mapper>.<method>}, so the
+ * logging backend can enable them per mapper or per method, and only for the
+ * sampled fraction of the calls.
+ * <p>
+ * Nothing is captured unless the exchange is logged. Captured headers have
+ * the values of the redacted headers replaced, and bodies are cut to the
+ * maximum size when the record is formatted.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class WireLogger {
+	
+	public static final String LOGGER_PREFIX = "org.devefx.httpmapper.wire.";
+	
+	private static final List<String> REDACTED = Collections.singletonList("<redacted>");
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private final String name;
+	
+	private final Logger logger;
+	
+	private final WireLogLevel level;
+	
+	private final double sampleRate;
+	
+	private final int maxBodyBytes;
+	
+	private final Set<String> redactedHeaders;
+	
+	private final WireLogSink sink;
+	
+	/**
+	 * Create a new {@code WireLogger}.
+	 * @param name the id of the mapper method
+	 * @param level what to log of each exchange
+	 * @param sampleRate the fraction of the exchanges to log, between 0 and 1
+	 * @param maxBodyBytes the maximum length of a logged body
+	 * @param redactedHeaders the names of the headers whose values are not logged
+	 * @param sink the sink writing the records, or {@code null} to write them on the calling thread
+	 */
+	public WireLogger(String name, WireLogLevel level, double sampleRate, int maxBodyBytes,
+			Collection<String> redactedHeaders, WireLogSink sink) {
+		Assert.notNull(level, "Level must not be null");
+		Assert.isTrue(sampleRate >= 0 && sampleRate <= 1, "Sample rate must be between 0 and 1");
+		Assert.isTrue(maxBodyBytes >= 0, "Maximum body bytes must not be negative");
+		this.name = name;
+		this.logger = LoggerFactory.getLogger(LOGGER_PREFIX + name);
+		this.level = level;
+		this.sampleRate = sampleRate;
+		this.maxBodyBytes = maxBodyBytes;
+		this.redactedHeaders = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+		if (redactedHeaders != null) {
+			this.redactedHeaders.addAll(redactedHeaders);
+		}
+		this.sink = sink;
+	}
+	
+	public WireLogLevel getLevel() {
+		return level;
+	}
+	
+	public boolean isEnabled() {
+		return level != WireLogLevel.NONE && sampleRate > 0 && logger.isInfoEnabled();
+	}
+	
+	/**
+	 * Returns whether response bodies may be logged, in which case they have to be buffered.
+	 */
+	public boolean isBodyEnabled() {
+		return level.includes(WireLogLevel.BODY) && isEnabled();
+	}
+	
+	/**
+	 * Logs the exchange if enabled and sampled.
+	 * @param requestEntity the request sent
+	 * @param responseEntity the response received, may be {@code null}
+	 */
+	public void log(RequestEntity requestEntity, ResponseEntity responseEntity) {
+		log(requestEntity, responseEntity, null);
+	}
+	
+	/**
+	 * Logs the failed exchange if enabled and sampled.
+	 * @param requestEntity the request sent
+	 * @param failure the exception the exchange failed with
+	 */
+	public void log(RequestEntity requestEntity, Throwable failure) {
+		log(requestEntity, null, failure);
+	}
+	
+	private void log(RequestEntity requestEntity, ResponseEntity responseEntity, Throwable failure) {
+		if (!isEnabled() || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+			return;
+		}
+		Map<String, List<String>> requestHeaders = null;
+		Map<String, List<String>> responseHeaders = null;
+		Object parameters = null;
+		byte[] content = null;
+		Charset charset = UTF_8;
+		if (level.includes(WireLogLevel.HEADERS)) {
+			requestHeaders = redact(requestEntity.getHeaders());
+			if (responseEntity != null) {
+				responseHeaders = redact(responseEntity.getHeaders());
+			}
+		}
+		if (level.includes(WireLogLevel.BODY)) {
+			parameters = requestEntity.getBody();
+			BufferedBody bufferedBody = (responseEntity != null) ? responseEntity.getBufferedBody() : null;
+			if (bufferedBody != null) {
+				content = bufferedBody.getContent();
+				MediaType contentType = bufferedBody.getContentType();
+				if (contentType != null && contentType.getCharset() != null) {
+					charset = contentType.getCharset();
+				}
+			}
+		}
+		WireLogRecord record = new WireLogRecord(name, requestEntity.getMethod(), requestEntity.getUrl(),
+				(responseEntity != null) ? responseEntity.getStatusCodeValue() : -1, failure,
+				requestHeaders, parameters, responseHeaders, content, charset, maxBodyBytes);
+		if (sink != null) {
+			sink.write(logger, record);
+		} else {
+			logger.info("{}", record);
+		}
+	}
+	
+	private Map<String, List<String>> redact(Map<String, List<String>> headers) {
+		if (headers == null) {
+			return null;
+		}
+		Map<String, List<String>> copy = new LinkedHashMap<String, List<String>>(headers.size() * 2);
+		for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+			copy.put(entry.getKey(), redactedHeaders.contains(entry.getKey()) ?
+					REDACTED : new ArrayList<String>(entry.getValue()));
+		}
+		return copy;
+	}
+	
+}
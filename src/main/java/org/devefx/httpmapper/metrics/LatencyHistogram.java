@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, recorded in microseconds into
+ * log-linear buckets: each power of two is split into 32 linear sub-buckets,
+ * so a percentile is off by at most about 3% of its value.
+ * <p>
+ * Recording is a few atomic increments and never blocks, reading a
+ * percentile walks all buckets and is meant for monitoring, not the hot path.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 5;
+	
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	/** Latencies of more than 2^36 microseconds (about 19 hours) share the last bucket. */
+	private static final int MAX_MAGNITUDE = 36;
+	
+	private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+	
+	private final AtomicLongArray counts =
+			new AtomicLongArray(SUB_BUCKET_COUNT * (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1));
+	
+	private final AtomicLong totalCount = new AtomicLong();
+	
+	private final AtomicLong totalMicros = new AtomicLong();
+	
+	private final AtomicLong maxMicros = new AtomicLong();
+	
+	/**
+	 * Records a latency.
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_VALUE);
+		counts.incrementAndGet(indexOf(micros));
+		totalCount.incrementAndGet();
+		totalMicros.addAndGet(micros);
+		long max = maxMicros.get();
+		while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+			max = maxMicros.get();
+		}
+	}
+	
+	public long getCount() {
+		return totalCount.get();
+	}
+	
+	/**
+	 * Returns the mean latency in microseconds, {@code 0} if none was recorded.
+	 */
+	public double getMean() {
+		long count = totalCount.get();
+		return (count == 0) ? 0 : (double) totalMicros.get() / count;
+	}
+	
+	/**
+	 * Returns the highest latency recorded in microseconds.
+	 */
+	public long getMax() {
+		return maxMicros.get();
+	}
+	
+	/**
+	 * Returns the latencies in microseconds below which the given fractions
+	 * of the recorded latencies fall, {@code 0} if none was recorded.
+	 * @param quantiles the fractions in ascending order, such as {@code 0.5} or {@code 0.99}
+	 */
+	public long[] getPercentiles(double... quantiles) {
+		long[] snapshot = new long[counts.length()];
+		long count = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		long[] values = new long[quantiles.length];
+		if (count == 0) {
+			return values;
+		}
+		int index = 0;
+		long seen = 0;
+		for (int q = 0; q < quantiles.length; q++) {
+			long rank = Math.max((long) Math.ceil(quantiles[q] * count), 1);
+			while (index < snapshot.length && seen + snapshot[index] < rank) {
+				seen += snapshot[index++];
+			}
+			values[q] = Math.min(highestValueOf(Math.min(index, snapshot.length - 1)), maxMicros.get());
+		}
+		return values;
+	}
+	
+	/**
+	 * Clears the recorded latencies. Latencies recorded concurrently may be
+	 * partly kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		totalMicros.set(0);
+		maxMicros.set(0);
+	}
+	
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		return SUB_BUCKET_COUNT * (shift + 1) + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+	}
+	
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return ((subBucket + 1) << shift) - 1;
+	}
+	
+}
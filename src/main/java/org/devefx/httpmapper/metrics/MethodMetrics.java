@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The call count, errors, calls in flight, body sizes, retries, hedges and latencies of a
+ * mapper method. Recording only uses atomic counters and never blocks.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+	
+	private static final Logger logger = LoggerFactory.getLogger(MethodMetrics.class);
+	
+	private static final double MICROS_PER_MILLI = 1000.0;
+	
+	private final String id;
+	
+	private final ObjectName objectName;
+	
+	private final AtomicLong errorCount = new AtomicLong();
+	
+	private final AtomicLong inFlightCount = new AtomicLong();
+	
+	private final AtomicLong requestBytes = new AtomicLong();
+	
+	private final AtomicLong responseBytes = new AtomicLong();
+	
+	private final AtomicLong retryCount = new AtomicLong();
+	
+	private final AtomicLong retryDeniedCount = new AtomicLong();
+	
+	private final AtomicLong hedgeCount = new AtomicLong();
+	
+	private final AtomicLong hedgeWinCount = new AtomicLong();
+	
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	
+	private volatile boolean registered;
+	
+	/**
+	 * Create a new {@code MethodMetrics}.
+	 * @param mapperName the name of the mapper interface
+	 * @param methodName the name of the method
+	 */
+	public MethodMetrics(String mapperName, String methodName) {
+		this.id = mapperName + "." + methodName;
+		try {
+			this.objectName = new ObjectName("org.devefx.httpmapper:type=MapperMethod,mapper="
+					+ mapperName + ",method=" + methodName);
+		} catch (MalformedObjectNameException e) {
+			throw new IllegalArgumentException("Invalid mapper method name: " + id, e);
+		}
+	}
+	
+	/**
+	 * Records the start of a call.
+	 * @return the start time to pass to {@link #stop(long, boolean)}
+	 */
+	public long start() {
+		inFlightCount.incrementAndGet();
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Records the end of a call.
+	 * @param startNanos the value returned by {@link #start()}
+	 * @param failed whether the call failed
+	 */
+	public void stop(long startNanos, boolean failed) {
+		latencies.record(System.nanoTime() - startNanos);
+		inFlightCount.decrementAndGet();
+		if (failed) {
+			errorCount.incrementAndGet();
+		}
+	}
+	
+	public void recordRequestBytes(long bytes) {
+		requestBytes.addAndGet(bytes);
+	}
+	
+	public void recordResponseBytes(long bytes) {
+		responseBytes.addAndGet(bytes);
+	}
+	
+	public void recordRetry() {
+		retryCount.incrementAndGet();
+	}
+	
+	public void recordRetryDenied() {
+		retryDeniedCount.incrementAndGet();
+	}
+	
+	public void recordHedge() {
+		hedgeCount.incrementAndGet();
+	}
+	
+	public void recordHedgeWin() {
+		hedgeWinCount.incrementAndGet();
+	}
+	
+	public MetricsSnapshot snapshot() {
+		long[] percentiles = latencies.getPercentiles(0.5, 0.9, 0.99, 0.999);
+		return new MetricsSnapshot(id, latencies.getCount(), errorCount.get(), inFlightCount.get(),
+				requestBytes.get(), responseBytes.get(), retryCount.get(), retryDeniedCount.get(), hedgeCount.get(),
+				hedgeWinCount.get(), latencies.getMean(), latencies.getMax(),
+				percentiles[0], percentiles[1], percentiles[2], percentiles[3]);
+	}
+	
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+	
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+	
+	/**
+	 * Registers these metrics with the platform MBean server.
+	 * @return {@code false} if they could not be registered, for instance
+	 * because another configuration registered the same method
+	 */
+	public boolean registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(this, objectName);
+			registered = true;
+		} catch (JMException e) {
+			logger.warn("Could not register MBean " + objectName + ": " + e);
+		}
+		return registered;
+	}
+	
+	public void unregisterMBean() {
+		if (registered) {
+			registered = false;
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				logger.debug("Could not unregister MBean " + objectName + ": " + e);
+			}
+		}
+	}
+	
+	@Override
+	public String getId() {
+		return id;
+	}
+	
+	@Override
+	public long getCallCount() {
+		return latencies.getCount();
+	}
+	
+	@Override
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+	
+	@Override
+	public long getInFlightCount() {
+		return inFlightCount.get();
+	}
+	
+	@Override
+	public long getRequestBytes() {
+		return requestBytes.get();
+	}
+	
+	@Override
+	public long getResponseBytes() {
+		return responseBytes.get();
+	}
+	
+	@Override
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+	
+	@Override
+	public long getRetryDeniedCount() {
+		return retryDeniedCount.get();
+	}
+	
+	@Override
+	public long getHedgeCount() {
+		return hedgeCount.get();
+	}
+	
+	@Override
+	public long getHedgeWinCount() {
+		return hedgeWinCount.get();
+	}
+	
+	@Override
+	public double getMeanLatency() {
+		return latencies.getMean() / MICROS_PER_MILLI;
+	}
+	
+	@Override
+	public double getMaxLatency() {
+		return latencies.getMax() / MICROS_PER_MILLI;
+	}
+	
+	@Override
+	public double getP50Latency() {
+		return latencies.getPercentiles(0.5)[0] / MICROS_PER_MILLI;
+	}
+	
+	@Override
+	public double getP90Latency() {
+		return latencies.getPercentiles(0.9)[0] / MICROS_PER_MILLI;
+	}
+	
+	@Override
+	public double getP99Latency() {
+		return latencies.getPercentiles(0.99)[0] / MICROS_PER_MILLI;
+	}
+	
+	@Override
+	public double getP999Latency() {
+		return latencies.getPercentiles(0.999)[0] / MICROS_PER_MILLI;
+	}
+	
+	@Override
+	public void reset() {
+		latencies.reset();
+		errorCount.set(0);
+		requestBytes.set(0);
+		responseBytes.set(0);
+		retryCount.set(0);
+		retryDeniedCount.set(0);
+		hedgeCount.set(0);
+		hedgeWinCount.set(0);
+	}
+	
+}
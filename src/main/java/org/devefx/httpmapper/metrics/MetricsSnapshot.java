@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.metrics;
+
+/**
+ * A snapshot of the {@link MethodMetrics} of a mapper method, latencies
+ * being in microseconds.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class MetricsSnapshot {
+	
+	private final String id;
+	private final long callCount;
+	private final long errorCount;
+	private final long inFlightCount;
+	private final long requestBytes;
+	private final long responseBytes;
+	private final long retryCount;
+	private final long retryDeniedCount;
+	private final long hedgeCount;
+	private final long hedgeWinCount;
+	private final double meanLatency;
+	private final long maxLatency;
+	private final long p50Latency;
+	private final long p90Latency;
+	private final long p99Latency;
+	private final long p999Latency;
+	
+	public MetricsSnapshot(String id, long callCount, long errorCount, long inFlightCount,
+			long requestBytes, long responseBytes, long retryCount, long retryDeniedCount,
+			long hedgeCount, long hedgeWinCount, double meanLatency, long maxLatency,
+			long p50Latency, long p90Latency, long p99Latency, long p999Latency) {
+		this.id = id;
+		this.callCount = callCount;
+		this.errorCount = errorCount;
+		this.inFlightCount = inFlightCount;
+		this.requestBytes = requestBytes;
+		this.responseBytes = responseBytes;
+		this.retryCount = retryCount;
+		this.retryDeniedCount = retryDeniedCount;
+		this.hedgeCount = hedgeCount;
+		this.hedgeWinCount = hedgeWinCount;
+		this.meanLatency = meanLatency;
+		this.maxLatency = maxLatency;
+		this.p50Latency = p50Latency;
+		this.p90Latency = p90Latency;
+		this.p99Latency = p99Latency;
+		this.p999Latency = p999Latency;
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	/**
+	 * Returns the number of completed calls, failed ones included.
+	 */
+	public long getCallCount() {
+		return callCount;
+	}
+	
+	public long getErrorCount() {
+		return errorCount;
+	}
+	
+	public long getInFlightCount() {
+		return inFlightCount;
+	}
+	
+	/**
+	 * Returns the total size of the request bodies sent.
+	 */
+	public long getRequestBytes() {
+		return requestBytes;
+	}
+	
+	/**
+	 * Returns the total size of the response bodies received.
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+	
+	/**
+	 * Returns the number of requests sent again after a retryable failure.
+	 */
+	public long getRetryCount() {
+		return retryCount;
+	}
+	
+	/**
+	 * Returns the number of retryable failures not retried because the retry budget was spent.
+	 */
+	public long getRetryDeniedCount() {
+		return retryDeniedCount;
+	}
+	
+	/**
+	 * Returns the number of hedged requests sent because a request was not answered in time.
+	 */
+	public long getHedgeCount() {
+		return hedgeCount;
+	}
+	
+	/**
+	 * Returns the number of hedged requests answered before the request they hedged.
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWinCount;
+	}
+	
+	public double getMeanLatency() {
+		return meanLatency;
+	}
+	
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+	
+	public long getP50Latency() {
+		return p50Latency;
+	}
+	
+	public long getP90Latency() {
+		return p90Latency;
+	}
+	
+	public long getP99Latency() {
+		return p99Latency;
+	}
+	
+	public long getP999Latency() {
+		return p999Latency;
+	}
+	
+	@Override
+	public String toString() {
+		return "MetricsSnapshot[id=" + id + ", callCount=" + callCount + ", errorCount=" + errorCount
+				+ ", inFlightCount=" + inFlightCount + ", requestBytes=" + requestBytes + ", responseBytes="
+				+ responseBytes + ", retryCount=" + retryCount + ", retryDeniedCount=" + retryDeniedCount
+				+ ", hedgeCount=" + hedgeCount + ", hedgeWinCount=" + hedgeWinCount + ", meanLatency=" + Math.round(meanLatency) + "us, p50=" + p50Latency
+				+ "us, p90=" + p90Latency + "us, p99=" + p99Latency + "us, p999=" + p999Latency
+				+ "us, max=" + maxLatency + "us]";
+	}
+	
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.processor;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.devefx.httpmapper.annotate.Batch;
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Method;
+import org.devefx.httpmapper.annotate.Param;
+import org.devefx.httpmapper.binding.GeneratedMapper;
+import org.devefx.httpmapper.binding.MapperIndex;
+import org.devefx.httpmapper.spring.mapper.MapperCandidateIndex;
+
+/**
+ * An annotation processor checking the {@link Bean} interfaces at compile time
+ * and generating an implementation of each, listed in {@value MapperIndex#INDEX_LOCATION}.
+ * The interfaces themselves are listed in {@value MapperCandidateIndex#COMPONENTS_LOCATION},
+ * for the {@code ClassPathMapperScanner} to find them without scanning the class path.
+ * <p>
+ * Every abstract method must be annotated with {@link Method}, declare distinct
+ * {@link Param} names and have a parameter for each variable of its URL template,
+ * and a {@link Batch} must name a method of the interface taking one parameter;
+ * otherwise the build fails. The generated class, named after the interface with
+ * an {@value #IMPLEMENTATION_SUFFIX} suffix, extends {@link GeneratedMapper} and
+ * also provides the methods to implement and the names their parameters are
+ * declared with, so that neither needs to be looked up at runtime.
+ * <p>
+ * Registered as a service, the processor runs whenever the library is on the
+ * compile classpath; the {@code MapperRegistry} uses the generated classes it finds.
+ * Compiling with {@code -A}{@value #IMPLEMENTATIONS_OPTION}{@code =false} still checks
+ * the interfaces and lists them, but leaves them to be implemented by a proxy.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+@SupportedAnnotationTypes("org.devefx.httpmapper.annotate.Bean")
+@SupportedOptions(MapperProcessor.IMPLEMENTATIONS_OPTION)
+public class MapperProcessor extends AbstractProcessor {
+	
+	public static final String IMPLEMENTATION_SUFFIX = "_HttpMapper";
+	
+	public static final String IMPLEMENTATIONS_OPTION = "httpmapper.implementations";
+	
+	private final Map<String, String> index = new TreeMap<String, String>();
+	
+	private final Map<String, String> components = new TreeMap<String, String>();
+	
+	private Elements elements;
+	
+	private Types types;
+	
+	private Filer filer;
+	
+	private Messager messager;
+	
+	private boolean implementations;
+	
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.filer = processingEnv.getFiler();
+		this.messager = processingEnv.getMessager();
+		this.implementations = !"false".equalsIgnoreCase(processingEnv.getOptions().get(IMPLEMENTATIONS_OPTION));
+	}
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			if (!index.isEmpty()) {
+				writeIndex(MapperIndex.INDEX_LOCATION, index);
+			}
+			if (!components.isEmpty()) {
+				writeIndex(MapperCandidateIndex.COMPONENTS_LOCATION, components);
+			}
+			return false;
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(Bean.class)) {
+			if (element.getKind() != ElementKind.INTERFACE) {
+				error(element, "@Bean must be declared on an interface.");
+				continue;
+			}
+			TypeElement mapperType = (TypeElement) element;
+			components.put(elements.getBinaryName(mapperType).toString(), Bean.class.getName());
+			List<ExecutableElement> methods = getMapperMethods(mapperType);
+			if (validate(mapperType, methods) && implementations) {
+				if (isImplementable(mapperType)) {
+					writeImplementation(mapperType, methods);
+				} else {
+					messager.printMessage(Diagnostic.Kind.WARNING, "Mapper " + mapperType.getQualifiedName()
+							+ " is private, it will be implemented by a proxy.", mapperType);
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the methods a proxy would dispatch to a {@code MapperMethod}.
+	 */
+	private List<ExecutableElement> getMapperMethods(TypeElement mapperType) {
+		List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+		Set<String> signatures = new HashSet<String>();
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(mapperType))) {
+			if (method.getModifiers().contains(Modifier.ABSTRACT) && !isObjectMethod(method)
+					&& signatures.add(method.getSimpleName() + "" + types.erasure(method.asType()))) {
+				methods.add(method);
+			}
+		}
+		return methods;
+	}
+	
+	private boolean isObjectMethod(ExecutableElement method) {
+		String name = method.getSimpleName().toString();
+		List<? extends VariableElement> parameters = method.getParameters();
+		if (parameters.isEmpty()) {
+			return name.equals("hashCode") || name.equals("toString");
+		}
+		return name.equals("equals") && parameters.size() == 1
+				&& types.isSameType(parameters.get(0).asType(), elements.getTypeElement("java.lang.Object").asType());
+	}
+	
+	private boolean validate(TypeElement mapperType, List<ExecutableElement> methods) {
+		boolean valid = true;
+		String baseUrl = mapperType.getAnnotation(Bean.class).baseUrl();
+		Map<String, Integer> methodCounts = new HashMap<String, Integer>();
+		for (ExecutableElement method : methods) {
+			String name = method.getSimpleName().toString();
+			methodCounts.put(name, methodCounts.containsKey(name) ? methodCounts.get(name) + 1 : 1);
+		}
+		for (ExecutableElement method : methods) {
+			Element location = location(mapperType, method);
+			String id = mapperType.getQualifiedName() + "." + method.getSimpleName();
+			Method methodInfo = method.getAnnotation(Method.class);
+			if (methodInfo == null) {
+				error(location, "Mapper method " + id + " must be annotated with @Method.");
+				valid = false;
+				continue;
+			}
+			Set<String> paramNames = new HashSet<String>();
+			for (VariableElement parameter : method.getParameters()) {
+				Param paramInfo = parameter.getAnnotation(Param.class);
+				if (paramInfo != null && !paramNames.add(paramInfo.value())) {
+					error(location, "Mapper method " + id + " declares @Param(\"" + paramInfo.value() + "\") twice.");
+					valid = false;
+				}
+			}
+			int variableCount = countUriVariables(baseUrl + methodInfo.value());
+			if (variableCount > method.getParameters().size()) {
+				error(location, "The URL of mapper method " + id + " has " + variableCount
+						+ " variables but the method only has " + method.getParameters().size() + " parameters.");
+				valid = false;
+			}
+			Batch batchInfo = method.getAnnotation(Batch.class);
+			if (batchInfo != null) {
+				Integer count = methodCounts.get(batchInfo.value());
+				if (method.getParameters().size() != 1) {
+					error(location, "Batched method " + id + " must take the key as its only parameter.");
+					valid = false;
+				} else if (count == null || count != 1) {
+					error(location, ((count == null) ? "Unknown" : "Ambiguous") + " batch method "
+							+ batchInfo.value() + " for " + id + ".");
+					valid = false;
+				}
+			}
+		}
+		return valid;
+	}
+	
+	/**
+	 * Counts the variables of a URI template, which are expanded from the arguments in order.
+	 */
+	private static int countUriVariables(String uriTemplate) {
+		int count = 0;
+		int depth = 0;
+		for (int i = 0; i < uriTemplate.length(); i++) {
+			char c = uriTemplate.charAt(i);
+			if (c == '{') {
+				if (depth++ == 0) {
+					count++;
+				}
+			} else if (c == '}' && depth > 0) {
+				depth--;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns whether a class in the package of the interface can implement it.
+	 */
+	private boolean isImplementable(TypeElement mapperType) {
+		for (Element element = mapperType; element.getKind() != ElementKind.PACKAGE;
+				element = element.getEnclosingElement()) {
+			if (element.getModifiers().contains(Modifier.PRIVATE)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void writeImplementation(TypeElement mapperType, List<ExecutableElement> methods) {
+		PackageElement packageElement = elements.getPackageOf(mapperType);
+		String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(mapperType).toString();
+		String simpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+				.replace('$', '_') + IMPLEMENTATION_SUFFIX;
+		String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		DeclaredType mapperDeclaredType = (DeclaredType) mapperType.asType();
+		String typeParameters = typeParameters(mapperType.getTypeParameters());
+		String mapperTypeName = types.erasure(mapperDeclaredType).toString();
+		
+		StringBuilder buf = new StringBuilder(4096);
+		if (!packageName.isEmpty()) {
+			buf.append("package ").append(packageName).append(";\n\n");
+		}
+		buf.append("/**\n * Implementation of {@link ").append(mapperTypeName)
+			.append("} generated by the httpmapper annotation processor.\n */\n");
+		buf.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		buf.append("public final class ").append(simpleName).append(typeParameters)
+			.append(" extends ").append(GeneratedMapper.class.getName())
+			.append(" implements ").append(mapperDeclaredType).append(" {\n\n");
+		
+		buf.append("\tpublic static final String[][] PARAMETER_NAMES = {\n");
+		for (ExecutableElement method : methods) {
+			buf.append("\t\t{");
+			List<? extends VariableElement> parameters = method.getParameters();
+			for (int i = 0; i < parameters.size(); i++) {
+				buf.append(i == 0 ? " " : ", ").append('"').append(parameters.get(i).getSimpleName()).append('"');
+			}
+			buf.append(parameters.isEmpty() ? "},\n" : " },\n");
+		}
+		buf.append("\t};\n\n");
+		
+		buf.append("\tpublic ").append(simpleName).append("(org.devefx.httpmapper.binding.MapperProxy<?> mapperProxy,\n")
+			.append("\t\t\tjava.lang.reflect.Method[] methods, org.devefx.httpmapper.binding.MapperMethod[] mapperMethods) {\n")
+			.append("\t\tsuper(mapperProxy, methods, mapperMethods);\n\t}\n\n");
+		
+		buf.append("\tpublic static java.lang.reflect.Method[] getMapperMethods() throws NoSuchMethodException {\n")
+			.append("\t\treturn new java.lang.reflect.Method[] {\n");
+		for (ExecutableElement method : methods) {
+			buf.append("\t\t\t").append(mapperTypeName).append(".class.getMethod(\"").append(method.getSimpleName()).append('"');
+			for (VariableElement parameter : method.getParameters()) {
+				buf.append(", ").append(types.erasure(parameter.asType())).append(".class");
+			}
+			buf.append("),\n");
+		}
+		buf.append("\t\t};\n\t}\n");
+		
+		for (int i = 0; i < methods.size(); i++) {
+			writeMethod(buf, mapperDeclaredType, methods.get(i), i);
+		}
+		buf.append("\n}\n");
+		
+		try {
+			JavaFileObject sourceFile = filer.createSourceFile(qualifiedName, mapperType);
+			Writer writer = sourceFile.openWriter();
+			try {
+				writer.write(buf.toString());
+			} finally {
+				writer.close();
+			}
+			index.put(binaryName, qualifiedName);
+		} catch (IOException ex) {
+			error(mapperType, "Could not write the implementation of " + mapperType.getQualifiedName() + ": " + ex);
+		}
+	}
+	
+	private void writeMethod(StringBuilder buf, DeclaredType mapperDeclaredType, ExecutableElement method, int index) {
+		ExecutableType methodType = (ExecutableType) types.asMemberOf(mapperDeclaredType, method);
+		List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+		TypeMirror returnType = methodType.getReturnType();
+		buf.append("\n\t@Override\n\tpublic ");
+		String typeParameters = typeParameters(method.getTypeParameters());
+		if (!typeParameters.isEmpty()) {
+			buf.append(typeParameters).append(' ');
+		}
+		buf.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			TypeMirror parameterType = parameterTypes.get(i);
+			if (i > 0) {
+				buf.append(", ");
+			}
+			if (method.isVarArgs() && i == parameterTypes.size() - 1) {
+				buf.append(((ArrayType) parameterType).getComponentType()).append("...");
+			} else {
+				buf.append(parameterType);
+			}
+			buf.append(" p").append(i);
+		}
+		buf.append(')');
+		List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+		for (int i = 0; i < thrownTypes.size(); i++) {
+			buf.append(i == 0 ? " throws " : ", ").append(thrownTypes.get(i));
+		}
+		buf.append(" {\n\t\t");
+		if (returnType.getKind() != TypeKind.VOID) {
+			buf.append("return (");
+			if (returnType.getKind().isPrimitive()) {
+				buf.append(types.boxedClass((PrimitiveType) returnType).getQualifiedName());
+			} else {
+				buf.append(returnType);
+			}
+			buf.append(") ");
+		}
+		buf.append("invoke(").append(index).append(", ");
+		if (parameterTypes.isEmpty()) {
+			buf.append("null");
+		} else {
+			buf.append("new Object[] {");
+			for (int i = 0; i < parameterTypes.size(); i++) {
+				buf.append(i == 0 ? " p" : ", p").append(i);
+			}
+			buf.append(" }");
+		}
+		buf.append(");\n\t}\n");
+	}
+	
+	private String typeParameters(List<? extends TypeParameterElement> typeParameters) {
+		if (typeParameters.isEmpty()) {
+			return "";
+		}
+		StringBuilder buf = new StringBuilder("<");
+		for (int i = 0; i < typeParameters.size(); i++) {
+			TypeParameterElement typeParameter = typeParameters.get(i);
+			if (i > 0) {
+				buf.append(", ");
+			}
+			buf.append(typeParameter.getSimpleName());
+			String separator = " extends ";
+			for (TypeMirror bound : typeParameter.getBounds()) {
+				if (!bound.toString().equals("java.lang.Object")) {
+					buf.append(separator).append(bound);
+					separator = " & ";
+				}
+			}
+		}
+		return buf.append('>').toString();
+	}
+	
+	/**
+	 * Merges the entries of this compilation into the index of the output at the
+	 * given location, so that an incremental build keeps the other entries.
+	 */
+	private void writeIndex(String location, Map<String, String> entries) {
+		Properties merged = new Properties();
+		try {
+			FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", location);
+			InputStream in = existing.openInputStream();
+			try {
+				merged.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (FileNotFoundException ex) {
+			// first build
+		} catch (IOException ex) {
+			// first build, some compilers report a missing resource differently
+		}
+		merged.putAll(entries);
+		try {
+			FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", location);
+			OutputStream out = resource.openOutputStream();
+			try {
+				PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, "ISO-8859-1"));
+				for (String key : new TreeSet<String>(merged.stringPropertyNames())) {
+					writer.println(key + "=" + merged.getProperty(key));
+				}
+				writer.flush();
+			} finally {
+				out.close();
+			}
+		} catch (IOException ex) {
+			messager.printMessage(Diagnostic.Kind.ERROR, "Could not write " + location + ": " + ex);
+		}
+	}
+	
+	/**
+	 * Reports problems of inherited methods on the interface being processed.
+	 */
+	private Element location(TypeElement mapperType, ExecutableElement method) {
+		return method.getEnclosingElement().equals(mapperType) ? method : mapperType;
+	}
+	
+	private void error(Element element, String message) {
+		messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+	
+}
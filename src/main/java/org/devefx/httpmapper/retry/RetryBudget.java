@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * A token bucket bounding the retries of a mapper method to a share of its
+ * calls, so that an upstream that is down does not get several times its
+ * usual traffic from retries.
+ * <p>
+ * Every call deposits {@code ratio} tokens, a retry withdraws one, and
+ * {@code minRetriesPerSecond} tokens are added every second so that methods
+ * called rarely can still retry. The bucket holds at most as many tokens as
+ * may be spent in {@value #BURST_SECONDS} seconds at the minimum rate, but
+ * never fewer than {@value #MIN_CAPACITY}. Tokens are counted in thousandths
+ * in a single atomic counter.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RetryBudget {
+
+	private static final long SCALE = 1000;
+
+	private static final int BURST_SECONDS = 10;
+
+	private static final int MIN_CAPACITY = 10;
+
+	private final long deposit;
+
+	private final long refillPerSecond;
+
+	private final long capacity;
+
+	private final AtomicLong balance;
+
+	private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+
+	/**
+	 * Create a new {@code RetryBudget}, initially full.
+	 * @param ratio the retries allowed per call, e.g. {@code 0.1} for one retry in ten calls
+	 * @param minRetriesPerSecond the retries allowed every second regardless of the calls
+	 */
+	public RetryBudget(double ratio, int minRetriesPerSecond) {
+		Assert.isTrue(ratio >= 0, "Ratio must not be negative");
+		Assert.isTrue(minRetriesPerSecond >= 0, "Min retries per second must not be negative");
+		this.deposit = Math.round(ratio * SCALE);
+		this.refillPerSecond = minRetriesPerSecond * SCALE;
+		this.capacity = Math.max(MIN_CAPACITY, (long) minRetriesPerSecond * BURST_SECONDS) * SCALE;
+		this.balance = new AtomicLong(capacity);
+	}
+
+	/**
+	 * Records a call, sent for the first time.
+	 */
+	public void deposit() {
+		add(deposit);
+	}
+
+	/**
+	 * Withdraws the token of a retry.
+	 * @return {@code false} if the budget is spent and the call must not be retried
+	 */
+	public boolean tryAcquire() {
+		refill();
+		while (true) {
+			long current = balance.get();
+			if (current < SCALE) {
+				return false;
+			}
+			if (balance.compareAndSet(current, current - SCALE)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of retries currently allowed.
+	 */
+	public long getAvailable() {
+		refill();
+		return balance.get() / SCALE;
+	}
+
+	private void refill() {
+		if (refillPerSecond == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		long last = lastRefill.get();
+		long elapsed = Math.min(now - last, TimeUnit.SECONDS.toNanos(BURST_SECONDS));
+		long amount = elapsed * refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+		// only the thread moving the refill time forward adds the tokens
+		if (amount > 0 && lastRefill.compareAndSet(last, now)) {
+			add(amount);
+		}
+	}
+
+	private void add(long amount) {
+		while (true) {
+			long current = balance.get();
+			long next = Math.min(capacity, current + amount);
+			if (next == current || balance.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.retry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.util.Assert;
+import org.springframework.web.client.HttpStatusCodeException;
+
+/**
+ * When and how soon a failed call of a mapper method is sent again.
+ * <p>
+ * A failure is retryable if the server answered with one of the retryable
+ * status codes, or if one of the retryable exceptions caused it, such as a
+ * connection refused or reset by the peer. The delay before retry {@code n}
+ * is drawn uniformly between zero and {@code initialBackoff * 2^(n-1)},
+ * capped at {@code maxBackoff}, so that the clients a failure hit at the same
+ * time do not all retry at the same time.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RetryPolicy {
+
+	private final int maxAttempts;
+
+	private final long initialBackoff;
+
+	private final long maxBackoff;
+
+	private final Set<Integer> retryableStatusCodes;
+
+	private final Class<?>[] retryableExceptions;
+
+	/**
+	 * Create a new {@code RetryPolicy}.
+	 * @param maxAttempts the maximum number of times a request is sent, including the first one
+	 * @param initialBackoff the upper bound in milliseconds of the delay before the first retry
+	 * @param maxBackoff the upper bound in milliseconds of the delay before any retry
+	 * @param retryableStatusCodes the response status codes to retry on
+	 * @param retryableExceptions the exceptions to retry on, when causing the failure
+	 */
+	public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff,
+			Collection<Integer> retryableStatusCodes, Collection<Class<? extends Throwable>> retryableExceptions) {
+		Assert.isTrue(maxAttempts > 0, "Max attempts must be positive");
+		Assert.isTrue(initialBackoff >= 0 && maxBackoff >= 0, "Backoff must not be negative");
+		this.maxAttempts = maxAttempts;
+		this.initialBackoff = initialBackoff;
+		this.maxBackoff = maxBackoff;
+		this.retryableStatusCodes = (retryableStatusCodes != null) ?
+				Collections.unmodifiableSet(new LinkedHashSet<Integer>(retryableStatusCodes)) :
+				Collections.<Integer>emptySet();
+		this.retryableExceptions = (retryableExceptions != null) ?
+				retryableExceptions.toArray(new Class<?>[retryableExceptions.size()]) : new Class<?>[0];
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	public Set<Integer> getRetryableStatusCodes() {
+		return retryableStatusCodes;
+	}
+
+	/**
+	 * Returns {@code true} if a call failing with the given exception may succeed
+	 * when sent again. The first error status or retryable exception found in the
+	 * chain of causes decides.
+	 */
+	public boolean isRetryable(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = (cause.getCause() != cause) ? cause.getCause() : null) {
+			if (cause instanceof HttpStatusCodeException) {
+				return retryableStatusCodes.contains(((HttpStatusCodeException) cause).getRawStatusCode());
+			}
+			for (Class<?> retryableException : retryableExceptions) {
+				if (retryableException.isInstance(cause)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the delay in milliseconds before sending the request again after
+	 * the given attempt failed, the first attempt being 1.
+	 */
+	public long getBackoff(int attempt) {
+		long bound = initialBackoff;
+		for (int i = 1; i < attempt && bound < maxBackoff; i++) {
+			bound <<= 1;
+		}
+		bound = Math.min(bound, maxBackoff);
+		return (bound > 0) ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+	}
+
+}
@@ -27,7 +27,7 @@ import org.springframework.util.ObjectUtils;
 
 public class HandlerExecutionChain {
 	
-	private HandlerListener[] listeners;
+	private volatile HandlerListener[] listeners;
 	
 	private List<HandlerListener> listenerList;
 	
@@ -53,6 +53,15 @@ public class HandlerExecutionChain {
 		return this.listenerList;
 	}
 	
+	/**
+	 * Replaces the listeners at once, so that a call sees either all the
+	 * previous listeners or all the given ones.
+	 */
+	public void setListeners(HandlerListener... listeners) {
+		this.listenerList = null;
+		this.listeners = listeners;
+	}
+	
 	/**
 	 * Return the array of listeners to apply (in the given order).
 	 * @return the array of HandlerListeners instances (may be {@code null})
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.devefx.httpmapper.spring.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.devefx.httpmapper.http.HandlerListener;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
+
+/**
+ * The {@link MappedListener}s of a configuration, and the {@link HandlerExecutionChain}
+ * of every path the mapper methods call.
+ * <p>
+ * The include patterns are compiled into a trie of their literal leading segments,
+ * so that a path is only matched against the patterns sharing its leading segments,
+ * and against those starting with a wildcard. Listeners may be added and removed at
+ * any time: the registry then swaps in a new trie and new listener arrays for the
+ * affected chains, which calls read without locking. A call already running when a
+ * chain changes may still see the previous listeners.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ListenerRegistry {
+
+	private static final String PATH_SEPARATOR = "/";
+
+	private final PathMatcher pathMatcher;
+
+	private final boolean indexed;
+
+	private final ConcurrentMap<String, HandlerExecutionChain> chains = new ConcurrentHashMap<String, HandlerExecutionChain>();
+
+	private volatile Index index = new Index(new MappedListener[0], false);
+
+	private Object registeredBeanFactory;
+
+	/**
+	 * Create a new {@code ListenerRegistry} matching Ant-style patterns.
+	 */
+	public ListenerRegistry() {
+		this.pathMatcher = new AntPathMatcher();
+		this.indexed = true;
+	}
+
+	/**
+	 * Create a new {@code ListenerRegistry} using the given matcher, by which the
+	 * patterns cannot be indexed: every path is matched against all of them.
+	 */
+	public ListenerRegistry(PathMatcher pathMatcher) {
+		Assert.notNull(pathMatcher, "PathMatcher must not be null");
+		this.pathMatcher = pathMatcher;
+		this.indexed = false;
+	}
+
+	/**
+	 * Returns the registered listeners, in the order they are called for requests.
+	 */
+	public List<MappedListener> getMappedListeners() {
+		return Collections.unmodifiableList(Arrays.asList(index.listeners));
+	}
+
+	/**
+	 * Replaces all the registered listeners.
+	 */
+	public synchronized void setMappedListeners(Collection<MappedListener> mappedListeners) {
+		update((mappedListeners != null) ? mappedListeners.toArray(new MappedListener[mappedListeners.size()])
+				: new MappedListener[0], null);
+	}
+
+	/**
+	 * Registers a listener after the others, adding it to the chains of the paths it matches.
+	 */
+	public synchronized void addMappedListener(MappedListener mappedListener) {
+		Assert.notNull(mappedListener, "MappedListener must not be null");
+		MappedListener[] listeners = Arrays.copyOf(index.listeners, index.listeners.length + 1);
+		listeners[listeners.length - 1] = mappedListener;
+		update(listeners, mappedListener);
+	}
+
+	/**
+	 * Removes a listener, from the chains of the paths it matched.
+	 * @return {@code false} if the listener was not registered
+	 */
+	public synchronized boolean removeMappedListener(MappedListener mappedListener) {
+		MappedListener[] listeners = index.listeners;
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == mappedListener) {
+				MappedListener[] remaining = new MappedListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, remaining, 0, i);
+				System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+				update(remaining, mappedListener);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Registers the {@code MappedListener} beans of the given factory and its
+	 * ancestors, replacing the registered listeners. Does nothing when called
+	 * again with the same factory, so that every mapper bean may call it.
+	 */
+	public synchronized void registerBeans(ListableBeanFactory beanFactory) {
+		if (registeredBeanFactory == beanFactory) {
+			return;
+		}
+		setMappedListeners(BeanFactoryUtils.beansOfTypeIncludingAncestors(
+				beanFactory, MappedListener.class, true, false).values());
+		registeredBeanFactory = beanFactory;
+	}
+
+	/**
+	 * Returns the chain of the listeners matching the given path, which follows
+	 * later changes of the registered listeners.
+	 */
+	public HandlerExecutionChain getHandlerExecutionChain(String lookupPath) {
+		HandlerExecutionChain chain = chains.get(lookupPath);
+		if (chain == null) {
+			synchronized (this) {
+				chain = chains.get(lookupPath);
+				if (chain == null) {
+					chain = new HandlerExecutionChain();
+					chain.setListeners(index.match(lookupPath));
+					chains.put(lookupPath, chain);
+				}
+			}
+		}
+		return chain;
+	}
+
+	/**
+	 * Swaps in the given listeners, then rebuilds the chains of the paths the changed
+	 * listener matches, or all chains if {@code null}.
+	 */
+	private void update(MappedListener[] listeners, MappedListener changed) {
+		Index current = new Index(listeners, indexed);
+		this.index = current;
+		for (Map.Entry<String, HandlerExecutionChain> entry : chains.entrySet()) {
+			if (changed == null || changed.matches(entry.getKey(), pathMatcher)) {
+				HandlerListener[] chainListeners = current.match(entry.getKey());
+				if (!Arrays.equals(chainListeners, entry.getValue().getListeners())) {
+					entry.getValue().setListeners(chainListeners);
+				}
+			}
+		}
+	}
+
+	private static boolean isLiteral(String segment) {
+		return segment.indexOf('*') == -1 && segment.indexOf('?') == -1 && segment.indexOf('{') == -1;
+	}
+
+	private static String[] tokenize(String path) {
+		return StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR, false, true);
+	}
+
+	private static final class Node {
+
+		final Map<String, Node> children = new HashMap<String, Node>();
+
+		final BitSet candidates = new BitSet();
+	}
+
+	/**
+	 * An immutable snapshot of the listeners and of the trie of their patterns.
+	 */
+	private final class Index {
+
+		final MappedListener[] listeners;
+
+		final Node root = new Node();
+
+		Index(MappedListener[] listeners, boolean indexed) {
+			this.listeners = listeners;
+			for (int i = 0; i < listeners.length; i++) {
+				MappedListener mappedListener = listeners[i];
+				String[] patterns = mappedListener.getPathPatterns();
+				if (!indexed || patterns == null || mappedListener.getPathMatcher() != null) {
+					// matches any path, or by rules the trie does not know
+					root.candidates.set(i);
+					continue;
+				}
+				for (String pattern : patterns) {
+					Node node = root;
+					for (String segment : tokenize(pattern)) {
+						if (!isLiteral(segment)) {
+							break;
+						}
+						Node child = node.children.get(segment);
+						if (child == null) {
+							child = new Node();
+							node.children.put(segment, child);
+						}
+						node = child;
+					}
+					node.candidates.set(i);
+				}
+			}
+		}
+
+		/**
+		 * Returns the listeners matching the given path, in registration order.
+		 */
+		HandlerListener[] match(String lookupPath) {
+			BitSet candidates = (BitSet) root.candidates.clone();
+			Node node = root;
+			for (String segment : tokenize(lookupPath)) {
+				node = node.children.get(segment);
+				if (node == null) {
+					break;
+				}
+				candidates.or(node.candidates);
+			}
+			List<HandlerListener> matches = new ArrayList<HandlerListener>(candidates.cardinality());
+			for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+				if (listeners[i].matches(lookupPath, pathMatcher)) {
+					matches.add(listeners[i].getListener());
+				}
+			}
+			return matches.toArray(new HandlerListener[matches.size()]);
+		}
+	}
+
+}
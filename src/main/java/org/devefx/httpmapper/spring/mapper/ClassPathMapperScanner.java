@@ -16,11 +16,22 @@
 
 package org.devefx.httpmapper.spring.mapper;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.devefx.httpmapper.annotate.Bean;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
@@ -29,15 +40,25 @@ import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
 import org.springframework.context.annotation.ScannedGenericBeanDefinition;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.AssignableTypeFilter;
 import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.StringUtils;
 
 public class ClassPathMapperScanner extends ClassPathBeanDefinitionScanner {
 
+	private static final String RESOURCE_PATTERN = "**/*.class";
+	
+	// below this many classes, starting threads costs more than it saves
+	private static final int PARALLEL_SCAN_THRESHOLD = 256;
+
 	private String configBeanName;
 	
 	private Class<? extends Annotation> annotationClass;
@@ -46,6 +67,10 @@ public class ClassPathMapperScanner extends ClassPathBeanDefinitionScanner {
 	
 	private Class<?> factoryBeanClass = MapperFactoryBean.class;
 	
+	private boolean useIndex = true;
+	
+	private int scanThreads = Runtime.getRuntime().availableProcessors();
+	
 	public ClassPathMapperScanner(BeanDefinitionRegistry registry) {
 		super(registry, false);
 	}
@@ -68,6 +93,25 @@ public class ClassPathMapperScanner extends ClassPathBeanDefinitionScanner {
 		}
 	}
 	
+	/**
+	 * Sets whether to look mappers up in the {@link MapperCandidateIndex} when one is
+	 * present, instead of scanning the class path; {@code true} by default. The index
+	 * only lists interfaces annotated with {@link Bean} itself, so it is not used
+	 * with another annotation class or with a marker interface, and a package it
+	 * lists no mapper of is still scanned.
+	 */
+	public void setUseIndex(boolean useIndex) {
+		this.useIndex = useIndex;
+	}
+	
+	/**
+	 * Sets the number of threads reading the classes when the class path is
+	 * scanned, one per processor by default.
+	 */
+	public void setScanThreads(int scanThreads) {
+		this.scanThreads = scanThreads;
+	}
+	
 	/**
 	 * Configures parent scanner to search for the right interfaces. It can search
 	 * for all interfaces or just for those that extends a markerInterface or/and
@@ -126,6 +170,143 @@ public class ClassPathMapperScanner extends ClassPathBeanDefinitionScanner {
 		return beanDefinitions;
 	}
 	
+	@Override
+	public Set<BeanDefinition> findCandidateComponents(String basePackage) {
+		if (useIndex && this.annotationClass == Bean.class && this.markerInterface == null) {
+			MapperCandidateIndex index = MapperCandidateIndex.load(getResourceLoader().getClassLoader());
+			if (index != null) {
+				String resolvedPackage = getEnvironment().resolveRequiredPlaceholders(basePackage);
+				Set<String> types = index.getCandidateTypes(resolvedPackage, this.annotationClass.getName());
+				if (!types.isEmpty()) {
+					return findCandidateComponents(types, resolvedPackage);
+				}
+				// the mappers of this package may come from jars compiled without the processor
+				if (logger.isDebugEnabled()) {
+					logger.debug("No mapper of package '" + resolvedPackage + "' in " + MapperCandidateIndex.COMPONENTS_LOCATION
+							+ ", scanning the class path");
+				}
+			}
+		}
+		return scanCandidateComponents(basePackage);
+	}
+	
+	private Set<BeanDefinition> findCandidateComponents(Set<String> types, String resolvedPackage) {
+		Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
+		try {
+			for (String type : types) {
+				MetadataReader metadataReader;
+				try {
+					metadataReader = getMetadataReaderFactory().getMetadataReader(type);
+				} catch (FileNotFoundException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Ignored " + type + " listed in " + MapperCandidateIndex.COMPONENTS_LOCATION
+								+ ": class not found");
+					}
+					continue;
+				}
+				BeanDefinition candidate = toCandidateComponent(metadataReader);
+				if (candidate != null) {
+					candidates.add(candidate);
+				}
+			}
+		} catch (IOException ex) {
+			throw new BeanDefinitionStoreException("I/O failure while reading the mapper index", ex);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Found " + candidates.size() + " mappers of package '" + resolvedPackage + "' in the index");
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Scans the class path like the parent scanner does, reading the classes on
+	 * several threads when there are many of them.
+	 */
+	private Set<BeanDefinition> scanCandidateComponents(String basePackage) {
+		final Resource[] resources;
+		try {
+			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
+					resolveBasePackage(basePackage) + '/' + RESOURCE_PATTERN;
+			resources = ResourcePatternUtils.getResourcePatternResolver(getResourceLoader()).getResources(packageSearchPath);
+		} catch (IOException ex) {
+			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		}
+		int threads = Math.min(this.scanThreads, resources.length / PARALLEL_SCAN_THRESHOLD + 1);
+		// the caching factory of the parent reads while holding its lock
+		final MetadataReaderFactory metadataReaderFactory = (threads > 1) ?
+				new SimpleMetadataReaderFactory(getResourceLoader()) : getMetadataReaderFactory();
+		final BeanDefinition[] candidates = new BeanDefinition[resources.length];
+		if (threads > 1) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("httpmapper-scan-");
+			threadFactory.setDaemon(true);
+			ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+			try {
+				List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+				for (int i = 0; i < threads; i++) {
+					final int offset = i;
+					final int stride = threads;
+					futures.add(executor.submit(new Callable<Object>() {
+						@Override
+						public Object call() throws Exception {
+							for (int j = offset; j < resources.length; j += stride) {
+								candidates[j] = toCandidateComponent(metadataReaderFactory, resources[j]);
+							}
+							return null;
+						}
+					}));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new BeanDefinitionStoreException("Interrupted during classpath scanning", ex);
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof BeanDefinitionStoreException) {
+					throw (BeanDefinitionStoreException) ex.getCause();
+				}
+				throw new BeanDefinitionStoreException("Failure during classpath scanning", ex.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		} else {
+			for (int i = 0; i < resources.length; i++) {
+				candidates[i] = toCandidateComponent(metadataReaderFactory, resources[i]);
+			}
+		}
+		// keep the order of the parent scanner, whatever thread read the class
+		Set<BeanDefinition> result = new LinkedHashSet<BeanDefinition>();
+		for (BeanDefinition candidate : candidates) {
+			if (candidate != null) {
+				result.add(candidate);
+			}
+		}
+		return result;
+	}
+	
+	private BeanDefinition toCandidateComponent(MetadataReaderFactory metadataReaderFactory, Resource resource) {
+		if (!resource.isReadable()) {
+			return null;
+		}
+		try {
+			return toCandidateComponent(metadataReaderFactory.getMetadataReader(resource));
+		} catch (Throwable ex) {
+			throw new BeanDefinitionStoreException("Failed to read candidate component class: " + resource, ex);
+		}
+	}
+	
+	private BeanDefinition toCandidateComponent(MetadataReader metadataReader) throws IOException {
+		if (isCandidateComponent(metadataReader)) {
+			ScannedGenericBeanDefinition definition = new ScannedGenericBeanDefinition(metadataReader);
+			definition.setResource(metadataReader.getResource());
+			definition.setSource(metadataReader.getResource());
+			if (isCandidateComponent(definition)) {
+				return definition;
+			}
+		}
+		return null;
+	}
+	
 	private void processBeanDefinitions(Set<BeanDefinitionHolder> beanDefinitions) {
 		ScannedGenericBeanDefinition definition;
 		for (BeanDefinitionHolder holder : beanDefinitions) {
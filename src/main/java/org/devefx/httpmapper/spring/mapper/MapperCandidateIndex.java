@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.devefx.httpmapper.spring.mapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
+
+/**
+ * The mapper interfaces listed at compile time by the
+ * {@link org.devefx.httpmapper.processor.MapperProcessor} in {@value #COMPONENTS_LOCATION}
+ * of every jar or output folder, as {@code interface=annotation}, so that they
+ * can be found without scanning the class path.
+ *
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class MapperCandidateIndex {
+
+	public static final String COMPONENTS_LOCATION = "META-INF/httpmapper/components";
+
+	private static final Log logger = LogFactory.getLog(MapperCandidateIndex.class);
+
+	private static final Map<ClassLoader, MapperCandidateIndex> cache = new WeakHashMap<ClassLoader, MapperCandidateIndex>();
+
+	private static final MapperCandidateIndex NONE = new MapperCandidateIndex(new Properties());
+
+	private final PathMatcher pathMatcher = new AntPathMatcher(".");
+
+	private final Properties entries;
+
+	MapperCandidateIndex(Properties entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * Loads the index of all the resources visible to the given class loader.
+	 * @return the index, or {@code null} if no resource lists any mapper
+	 */
+	public static MapperCandidateIndex load(ClassLoader classLoader) {
+		if (classLoader == null) {
+			classLoader = MapperCandidateIndex.class.getClassLoader();
+		}
+		synchronized (cache) {
+			MapperCandidateIndex index = cache.get(classLoader);
+			if (index == null) {
+				Properties entries = loadEntries(classLoader);
+				index = entries.isEmpty() ? NONE : new MapperCandidateIndex(entries);
+				cache.put(classLoader, index);
+			}
+			return (index != NONE) ? index : null;
+		}
+	}
+
+	private static Properties loadEntries(ClassLoader classLoader) {
+		Properties entries = new Properties();
+		try {
+			Enumeration<URL> urls = classLoader.getResources(COMPONENTS_LOCATION);
+			while (urls.hasMoreElements()) {
+				InputStream in = urls.nextElement().openStream();
+				try {
+					entries.load(in);
+				} finally {
+					in.close();
+				}
+			}
+		} catch (IOException ex) {
+			logger.warn("Could not read the mapper index " + COMPONENTS_LOCATION + ", scanning the class path.", ex);
+			return new Properties();
+		}
+		return entries;
+	}
+
+	/**
+	 * Returns the names of the interfaces annotated with the given annotation in
+	 * the given package or below, sorted by name.
+	 * @param basePackage the package, possibly an Ant-style pattern such as {@code com.*.api}
+	 * @param annotationName the fully qualified name of the annotation
+	 */
+	public Set<String> getCandidateTypes(String basePackage, String annotationName) {
+		Set<String> candidates = new TreeSet<String>();
+		for (String type : entries.stringPropertyNames()) {
+			if (matchesPackage(basePackage, type) && hasAnnotation(type, annotationName)) {
+				candidates.add(type);
+			}
+		}
+		return new LinkedHashSet<String>(candidates);
+	}
+
+	private boolean hasAnnotation(String type, String annotationName) {
+		for (String annotation : StringUtils.commaDelimitedListToStringArray(entries.getProperty(type))) {
+			if (annotation.trim().equals(annotationName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matchesPackage(String basePackage, String type) {
+		if (pathMatcher.isPattern(basePackage)) {
+			return pathMatcher.match(basePackage + ".**", type);
+		}
+		return type.startsWith(basePackage + ".");
+	}
+
+}
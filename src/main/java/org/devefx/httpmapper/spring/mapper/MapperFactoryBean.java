@@ -16,15 +16,10 @@
 
 package org.devefx.httpmapper.spring.mapper;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.devefx.httpmapper.Configuration;
-import org.devefx.httpmapper.spring.handler.MappedListener;
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
@@ -62,11 +57,8 @@ public class MapperFactoryBean<T> implements FactoryBean<T>, InitializingBean, A
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext)
 			throws BeansException {
-		final List<MappedListener> mappedListeners = new ArrayList<MappedListener>();
-		mappedListeners.addAll(
-				BeanFactoryUtils.beansOfTypeIncludingAncestors(
-						applicationContext, MappedListener.class, true, false).values());
-		config.setMappedListeners(mappedListeners);
+		// the listeners are looked up once per context, not once per mapper
+		config.getListenerRegistry().registerBeans(applicationContext);
 	}
 	
 	@Override
@@ -58,6 +58,10 @@ public class MapperScannerConfigurer implements BeanDefinitionRegistryPostProces
 
 	private BeanNameGenerator nameGenerator;
 	
+	private boolean useIndex = true;
+	
+	private int scanThreads = Runtime.getRuntime().availableProcessors();
+	
 	/**
 	 * This property lets you set the base package for your mapper interface files.
 	 * <p>
@@ -126,6 +130,27 @@ public class MapperScannerConfigurer implements BeanDefinitionRegistryPostProces
 		this.nameGenerator = nameGenerator;
 	}
 	
+	/**
+	 * This property lets you ignore the mapper index generated at compile time and
+	 * always scan the class path, for instance when some jars were built without it.
+	 *
+	 * @param useIndex whether to use the index when present, {@code true} by default
+	 * @see ClassPathMapperScanner#setUseIndex(boolean)
+	 */
+	public void setUseIndex(boolean useIndex) {
+		this.useIndex = useIndex;
+	}
+	
+	/**
+	 * This property sets the number of threads reading classes when the class
+	 * path is scanned, one per processor by default.
+	 *
+	 * @param scanThreads the number of threads
+	 */
+	public void setScanThreads(int scanThreads) {
+		this.scanThreads = scanThreads;
+	}
+	
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		Assert.notNull(this.basePackage, "Property 'basePackage' is required");
@@ -149,6 +174,8 @@ public class MapperScannerConfigurer implements BeanDefinitionRegistryPostProces
 		scanner.setConfigBeanName(this.configBeanName);
 		scanner.setResourceLoader(this.applicationContext);
 		scanner.setBeanNameGenerator(this.nameGenerator);
+		scanner.setUseIndex(this.useIndex);
+		scanner.setScanThreads(this.scanThreads);
 		scanner.registerFilters();
 		scanner.scan(StringUtils.tokenizeToStringArray(this.basePackage, ConfigurableApplicationContext.CONFIG_LOCATION_DELIMITERS));
 	}
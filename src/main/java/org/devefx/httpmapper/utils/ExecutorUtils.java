@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Support for running mapper calls on virtual threads.
+ * <p>
+ * Virtual threads are only available on Java 21 and later, so they are
+ * accessed reflectively and this library still runs on older runtimes.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public abstract class ExecutorUtils {
+
+	private static Method NEW_VIRTUAL_THREAD_EXECUTOR = null;
+
+	static {
+		try {
+			NEW_VIRTUAL_THREAD_EXECUTOR = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (Exception e) {
+			// ignore
+		}
+	}
+	
+	/**
+	 * Returns {@code true} if the runtime supports virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+	}
+	
+	/**
+	 * Creates an executor starting a new virtual thread for each task.
+	 * @return the executor, or {@code null} if the runtime does not support virtual threads
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+		} catch (Exception e) {
+			throw new IllegalStateException("Error occurred when invoking Executors#newVirtualThreadPerTaskExecutor().", e);
+		}
+	}
+	
+}
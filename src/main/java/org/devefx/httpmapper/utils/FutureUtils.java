@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.utils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.Future;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
+/**
+ * Support for the future types a mapper method may return.
+ * <p>
+ * {@code CompletableFuture} is only available on Java 8 and later, so it is
+ * accessed reflectively like {@code java.lang.reflect.Parameter} is in
+ * {@link ParamNameResolver}.
+ * 
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public abstract class FutureUtils {
+
+	private static final String COMPLETABLE_FUTURE_CLASS = "java.util.concurrent.CompletableFuture";
+	private static final String COMPLETION_STAGE_CLASS = "java.util.concurrent.CompletionStage";
+	private static Class<?> COMPLETABLE_FUTURE = null;
+	private static Class<?> COMPLETION_STAGE = null;
+	private static Constructor<?> NEW_COMPLETABLE_FUTURE = null;
+	private static Method COMPLETE = null;
+	private static Method COMPLETE_EXCEPTIONALLY = null;
+
+	static {
+		try {
+			Class<?> completableFuture = Resources.classForName(COMPLETABLE_FUTURE_CLASS);
+			COMPLETION_STAGE = Resources.classForName(COMPLETION_STAGE_CLASS);
+			COMPLETE = completableFuture.getMethod("complete", Object.class);
+			COMPLETE_EXCEPTIONALLY = completableFuture.getMethod("completeExceptionally", Throwable.class);
+			NEW_COMPLETABLE_FUTURE = completableFuture.getConstructor();
+			COMPLETABLE_FUTURE = completableFuture;
+		} catch (Exception e) {
+			// ignore
+		}
+	}
+	
+	/**
+	 * Returns {@code true} if a mapper method returning the given type is executed asynchronously.
+	 */
+	public static boolean isFutureType(Class<?> type) {
+		return Future.class.equals(type) || ListenableFuture.class.equals(type) || isCompletableType(type);
+	}
+	
+	/**
+	 * Returns {@code true} for {@code CompletableFuture} and {@code CompletionStage}.
+	 */
+	public static boolean isCompletableType(Class<?> type) {
+		return COMPLETABLE_FUTURE != null && (COMPLETABLE_FUTURE.equals(type) || COMPLETION_STAGE.equals(type));
+	}
+	
+	/**
+	 * Adapts the given future to the requested future type.
+	 * @param future the future of the call
+	 * @param type the return type of the mapper method
+	 */
+	public static Object adapt(ListenableFuture<?> future, Class<?> type) {
+		if (isCompletableType(type)) {
+			return toCompletableFuture(future);
+		}
+		return future;
+	}
+	
+	/**
+	 * Returns a {@code CompletableFuture} completed with the outcome of the given future.
+	 * Cancelling the returned future does not cancel the given one.
+	 */
+	public static Object toCompletableFuture(ListenableFuture<?> future) {
+		final Object completableFuture;
+		try {
+			completableFuture = NEW_COMPLETABLE_FUTURE.newInstance();
+		} catch (Exception e) {
+			throw new IllegalStateException("Error occurred when creating a CompletableFuture.", e);
+		}
+		future.addCallback(new ListenableFutureCallback<Object>() {
+			@Override
+			public void onSuccess(Object result) {
+				invoke(COMPLETE, completableFuture, result);
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				invoke(COMPLETE_EXCEPTIONALLY, completableFuture, ex);
+			}
+		});
+		return completableFuture;
+	}
+	
+	private static void invoke(Method method, Object target, Object arg) {
+		try {
+			method.invoke(target, arg);
+		} catch (Exception e) {
+			throw new IllegalStateException("Error occurred when invoking CompletableFuture#" + method.getName() + "().", e);
+		}
+	}
+	
+}
@@ -18,6 +18,7 @@ package org.devefx.httpmapper.utils;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.SortedMap;
@@ -48,6 +49,17 @@ public class ParamNameResolver {
 	private boolean hasParamAnnotation;
 	
 	public ParamNameResolver(Configuration config, Method method) {
+		this(config, method, null);
+	}
+	
+	/**
+	 * Create a new {@code ParamNameResolver}.
+	 * @param config the configuration
+	 * @param method the mapper method
+	 * @param actualNames the names the parameters are declared with, known at compile
+	 * time, or {@code null} to look them up with {@code Method#getParameters()}
+	 */
+	public ParamNameResolver(Configuration config, Method method, String[] actualNames) {
 		final Annotation[][] paramAnnotations = method.getParameterAnnotations();
 		final SortedMap<Integer, String> map = new TreeMap<>();
 		int paramCount = paramAnnotations.length;
@@ -63,7 +75,7 @@ public class ParamNameResolver {
 			}
 			if (name == null) {
 				if (config.isUseActualParamName()) {
-					name = getActualParamName(method, paramIndex);
+					name = (actualNames != null) ? actualNames[paramIndex] : getActualParamName(method, paramIndex);
 				}
 				if (name == null) {
 					// use the parameter index as the name ("0", "1", ...)
@@ -90,6 +102,13 @@ public class ParamNameResolver {
 		}
 	}
 
+	/**
+	 * Returns the resolved parameter names in declaration order.
+	 */
+	public Collection<String> getNames() {
+		return names.values();
+	}
+
 	/**
 	 * <p>
 	 * A single non-special parameter is returned without a name.<br />
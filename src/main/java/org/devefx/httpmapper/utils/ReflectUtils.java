@@ -1,5 +1,8 @@
 package org.devefx.httpmapper.utils;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
 public abstract class ReflectUtils {
 
 	public static boolean isUserType(Object object) {
@@ -13,4 +16,15 @@ public abstract class ReflectUtils {
 		return false;
 	}
 	
+	/**
+	 * Returns the annotation declared on the method, or else on the mapper interface.
+	 */
+	public static <A extends Annotation> A findAnnotation(Class<?> mapperInterface, Method method, Class<A> annotationType) {
+		A annotation = method.getAnnotation(annotationType);
+		if (annotation == null) {
+			annotation = mapperInterface.getAnnotation(annotationType);
+		}
+		return annotation;
+	}
+	
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server answering every request with the same JSON body, after
+ * a delay, and counting the requests it received.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class StubServer {
+	
+	private final HttpServer server;
+	
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	
+	private final AtomicInteger requestCount = new AtomicInteger();
+	
+	private volatile int status = 200;
+	
+	private volatile String body = "{\"value\":1}";
+	
+	private volatile long delay;
+	
+	private volatile long firstDelay = -1;
+	
+	private volatile long maxAge = -1;
+	
+	private volatile URI lastRequestUri;
+	
+	public StubServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int count = requestCount.incrementAndGet();
+				lastRequestUri = exchange.getRequestURI();
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() != -1) {
+					}
+					long wait = (count == 1 && firstDelay >= 0) ? firstDelay : delay;
+					if (wait > 0) {
+						Thread.sleep(wait);
+					}
+					byte[] bytes = body.getBytes("UTF-8");
+					exchange.getResponseHeaders().set("Content-Type", "application/json");
+					if (maxAge >= 0) {
+						exchange.getResponseHeaders().set("Cache-Control", "max-age=" + maxAge);
+					}
+					exchange.sendResponseHeaders(status, bytes.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(bytes);
+					out.close();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+	}
+	
+	public String getBaseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+	
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+	
+	public URI getLastRequestUri() {
+		return lastRequestUri;
+	}
+	
+	public void setStatus(int status) {
+		this.status = status;
+	}
+	
+	public void setBody(String body) {
+		this.body = body;
+	}
+	
+	/**
+	 * Sets the time in milliseconds to wait before answering.
+	 */
+	public void setDelay(long delay) {
+		this.delay = delay;
+	}
+	
+	/**
+	 * Sets the time in milliseconds to wait before answering the first request,
+	 * the same as the others by default.
+	 */
+	public void setFirstDelay(long firstDelay) {
+		this.firstDelay = firstDelay;
+	}
+	
+	/**
+	 * Sets the freshness lifetime in seconds the responses declare, none by default.
+	 */
+	public void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+	
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+	
+}
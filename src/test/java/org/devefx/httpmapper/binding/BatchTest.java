@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.StubServer;
+import org.devefx.httpmapper.annotate.Batch;
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Method;
+import org.devefx.httpmapper.annotate.Param;
+import org.devefx.httpmapper.annotate.Retry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Checks against a local stub server that the calls of a single-item method
+ * are merged into calls of its batch method.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class BatchTest {
+	
+	@Bean
+	@Retry(enabled = false)
+	public interface UserMapper {
+		
+		@Method("users/{id}")
+		@Batch(value = "findByIds", window = 100, resultKey = "id")
+		ListenableFuture<Map<String, Object>> findById(@Param("id") long id);
+		
+		@Method("users/{id}")
+		@Batch(value = "findByIds", window = 10, timeUnit = TimeUnit.SECONDS, maxSize = 2, resultKey = "id")
+		ListenableFuture<Map<String, Object>> findByIdInPairs(@Param("id") long id);
+		
+		@Method("users/{id}")
+		@Batch(value = "findByIds", window = 1, resultKey = "id")
+		Map<String, Object> getById(@Param("id") long id);
+		
+		@Method("users")
+		List<Map<String, Object>> findByIds(@Param("ids") String ids);
+		
+	}
+	
+	private StubServer server;
+	
+	private Configuration configuration;
+	
+	private UserMapper mapper;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		server.setBody("[{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"b\"}]");
+		configuration = new Configuration();
+		configuration.setGlobalBaseUrl(server.getBaseUrl());
+		configuration.addMapper(UserMapper.class);
+		mapper = configuration.getMapper(UserMapper.class);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		configuration.destroy();
+		server.stop();
+	}
+	
+	@Test
+	public void mergesCallsWithinTheWindow() throws Exception {
+		ListenableFuture<Map<String, Object>> first = mapper.findById(1);
+		ListenableFuture<Map<String, Object>> second = mapper.findById(2);
+		ListenableFuture<Map<String, Object>> again = mapper.findById(1);
+		ListenableFuture<Map<String, Object>> missing = mapper.findById(3);
+		assertEquals("a", first.get(5, TimeUnit.SECONDS).get("name"));
+		assertEquals("b", second.get(5, TimeUnit.SECONDS).get("name"));
+		assertEquals("a", again.get(5, TimeUnit.SECONDS).get("name"));
+		assertNull(missing.get(5, TimeUnit.SECONDS));
+		assertEquals(1, server.getRequestCount());
+		assertTrue(server.getLastRequestUri().getPath().endsWith("/users"));
+		assertEquals("ids=1,2,3", server.getLastRequestUri().getQuery());
+	}
+	
+	@Test
+	public void sendsFullBatchesAtOnce() throws Exception {
+		ListenableFuture<Map<String, Object>> first = mapper.findByIdInPairs(1);
+		ListenableFuture<Map<String, Object>> second = mapper.findByIdInPairs(2);
+		assertEquals("a", first.get(2, TimeUnit.SECONDS).get("name"));
+		assertEquals("b", second.get(2, TimeUnit.SECONDS).get("name"));
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void failsEveryCallerOfAFailedBatch() throws Exception {
+		server.setStatus(500);
+		ListenableFuture<Map<String, Object>> first = mapper.findById(1);
+		ListenableFuture<Map<String, Object>> second = mapper.findById(2);
+		for (ListenableFuture<Map<String, Object>> future : Arrays.asList(first, second)) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("expected the server error");
+			} catch (ExecutionException ex) {
+				assertTrue(ex.getCause() instanceof HttpServerErrorException);
+			}
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void blockingCallsWaitNoLongerThanTheBatchTimeout() {
+		configuration.setBatchTimeout(100);
+		server.setDelay(2000);
+		long start = System.nanoTime();
+		try {
+			mapper.getById(1);
+			fail("expected the batch to time out");
+		} catch (BindingException ex) {
+			// expected
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+	}
+	
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.StubServer;
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Bulkhead;
+import org.devefx.httpmapper.annotate.Method;
+import org.devefx.httpmapper.bulkhead.BulkheadFullException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Checks that the asynchronous calls of a mapper are rejected right away by a
+ * full bulkhead, however long blocking calls may wait.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class BulkheadMapperTest {
+	
+	@Bean
+	@Bulkhead(value = 1, maxWait = 5000)
+	public interface CappedMapper {
+		
+		@Method("value")
+		ListenableFuture<Map<String, Object>> getAsync();
+		
+	}
+	
+	private StubServer server;
+	
+	private Configuration configuration;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		server.setDelay(300);
+		configuration = new Configuration();
+		configuration.setGlobalBaseUrl(server.getBaseUrl());
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		configuration.destroy();
+		server.stop();
+	}
+	
+	@Test
+	public void asynchronousCallsDoNotWaitForAPermit() throws Exception {
+		configuration.addMapper(CappedMapper.class);
+		CappedMapper mapper = configuration.getMapper(CappedMapper.class);
+		ListenableFuture<Map<String, Object>> first = mapper.getAsync();
+		long start = System.nanoTime();
+		try {
+			mapper.getAsync().get(5, TimeUnit.SECONDS);
+			fail("expected the bulkhead to be full");
+		} catch (BulkheadFullException ex) {
+			// rejected when called
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof BulkheadFullException);
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+		assertEquals(1, first.get(5, TimeUnit.SECONDS).get("value"));
+		assertEquals(1, server.getRequestCount());
+		assertEquals(1, mapper.getAsync().get(5, TimeUnit.SECONDS).get("value"));
+	}
+	
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.StubServer;
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.HttpCache;
+import org.devefx.httpmapper.annotate.Method;
+import org.devefx.httpmapper.annotate.Retry;
+import org.devefx.httpmapper.circuit.CircuitBreakerOpenException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Checks that the calls of a mapper stop reaching a failing upstream once the
+ * circuit breaker of its base URL opened, while fresh cached responses are
+ * still answered.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class CircuitBreakerMapperTest {
+	
+	@Bean
+	@Retry(enabled = false)
+	public interface GuardedMapper {
+		
+		@Method("value")
+		Map<String, Object> get();
+		
+		@HttpCache
+		@Method("cached")
+		Map<String, Object> getCached();
+		
+	}
+	
+	private StubServer server;
+	
+	private Configuration configuration;
+	
+	private GuardedMapper mapper;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		configuration = new Configuration();
+		configuration.setGlobalBaseUrl(server.getBaseUrl());
+		configuration.setCircuitBreakerEnabled(true);
+		configuration.setCircuitBreakerFailureRateThreshold(0.5);
+		configuration.setCircuitBreakerMinimumCalls(2);
+		configuration.setCircuitBreakerOpenDuration(60000);
+		configuration.addMapper(GuardedMapper.class);
+		mapper = configuration.getMapper(GuardedMapper.class);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		configuration.destroy();
+		server.stop();
+	}
+	
+	@Test
+	public void rejectsCallsOnceOpen() {
+		server.setStatus(503);
+		for (int i = 0; i < 2; i++) {
+			try {
+				mapper.get();
+				fail("expected the server error");
+			} catch (HttpServerErrorException ex) {
+				// expected
+			}
+		}
+		try {
+			mapper.get();
+			fail("expected the breaker to be open");
+		} catch (CircuitBreakerOpenException ex) {
+			// expected
+		}
+		assertEquals(2, server.getRequestCount());
+	}
+	
+	@Test
+	public void answersFreshCachedResponsesWhileOpen() {
+		server.setBody("{\"value\":1}");
+		server.setMaxAge(60);
+		assertEquals(1, mapper.getCached().get("value"));
+		server.setStatus(503);
+		try {
+			mapper.get();
+			fail("expected the server error");
+		} catch (HttpServerErrorException ex) {
+			// expected
+		}
+		try {
+			mapper.get();
+			fail("expected the breaker to be open");
+		} catch (CircuitBreakerOpenException ex) {
+			// expected
+		}
+		assertEquals(1, mapper.getCached().get("value"));
+		assertEquals(2, server.getRequestCount());
+	}
+	
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.StubServer;
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Bulkhead;
+import org.devefx.httpmapper.annotate.Coalesce;
+import org.devefx.httpmapper.annotate.Method;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Checks that coalesced calls of a mapper send one request, which alone takes
+ * the permits of the bulkheads.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class CoalesceTest {
+	
+	@Bean
+	public interface CoalescingMapper {
+		
+		@Coalesce
+		@Bulkhead(value = 1, maxWait = 0)
+		@Method("value")
+		Map<String, Object> get();
+		
+		@Coalesce
+		@Bulkhead(1)
+		@Method("value")
+		ListenableFuture<Map<String, Object>> getAsync();
+		
+	}
+	
+	@Bean
+	@Coalesce
+	public interface CoalescingPublisherMapper {
+		
+		@Method("value")
+		Publisher<Map<String, Object>> stream();
+		
+	}
+	
+	private StubServer server;
+	
+	private Configuration configuration;
+	
+	private ExecutorService executor;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		server.setDelay(200);
+		configuration = new Configuration();
+		configuration.setGlobalBaseUrl(server.getBaseUrl());
+		executor = Executors.newCachedThreadPool();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		configuration.destroy();
+		server.stop();
+	}
+	
+	@Test
+	public void blockingCallsShareOneRequest() throws Exception {
+		configuration.addMapper(CoalescingMapper.class);
+		final CoalescingMapper mapper = configuration.getMapper(CoalescingMapper.class);
+		List<Future<Map<String, Object>>> futures = new ArrayList<Future<Map<String, Object>>>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(executor.submit(new Callable<Map<String, Object>>() {
+				@Override
+				public Map<String, Object> call() {
+					return mapper.get();
+				}
+			}));
+		}
+		for (Future<Map<String, Object>> future : futures) {
+			assertEquals(1, future.get(5, TimeUnit.SECONDS).get("value"));
+		}
+		assertEquals(1, server.getRequestCount());
+		assertEquals(0, configuration.getBulkheadStats().get(CoalescingMapper.class.getName() + ".get").getRejectedCount());
+	}
+	
+	@Test
+	public void asynchronousCallsShareOneRequest() throws Exception {
+		configuration.addMapper(CoalescingMapper.class);
+		CoalescingMapper mapper = configuration.getMapper(CoalescingMapper.class);
+		List<ListenableFuture<Map<String, Object>>> futures = new ArrayList<ListenableFuture<Map<String, Object>>>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(mapper.getAsync());
+		}
+		for (ListenableFuture<Map<String, Object>> future : futures) {
+			assertEquals(1, future.get(5, TimeUnit.SECONDS).get("value"));
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void publishersCannotBeCoalesced() {
+		configuration.setEagerInitialization(true);
+		configuration.addMapper(CoalescingPublisherMapper.class);
+		try {
+			configuration.awaitInitialization();
+			fail("expected coalescing to be rejected on a publisher");
+		} catch (BindingException ex) {
+			// expected
+		}
+	}
+	
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.StubServer;
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Method;
+import org.devefx.httpmapper.annotate.Param;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Checks against a local stub server that mappers implemented by a class
+ * generated at runtime call their methods like proxies do.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class GeneratedMapperTest {
+	
+	@Bean
+	public interface UserMapper {
+		
+		@Method("users/{id}")
+		Map<String, Object> findById(@Param("id") long id);
+		
+		@Method("users/{id}")
+		ListenableFuture<Map<String, Object>> findByIdAsync(@Param("id") long id);
+		
+	}
+	
+	@Bean
+	interface HiddenMapper {
+		
+		@Method("users/{id}")
+		Map<String, Object> findById(@Param("id") long id);
+		
+	}
+	
+	private StubServer server;
+	
+	private Configuration configuration;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		server.setBody("{\"id\":7}");
+		configuration = new Configuration();
+		configuration.setGlobalBaseUrl(server.getBaseUrl());
+		configuration.setUseGeneratedMappers(true);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		configuration.destroy();
+		server.stop();
+	}
+	
+	@Test
+	public void callsThroughTheGeneratedClass() throws Exception {
+		configuration.addMapper(UserMapper.class);
+		UserMapper mapper = configuration.getMapper(UserMapper.class);
+		assertTrue(mapper instanceof GeneratedMapper);
+		assertFalse(Proxy.isProxyClass(mapper.getClass()));
+		
+		assertEquals(7, mapper.findById(7).get("id"));
+		assertEquals("/users/7", server.getLastRequestUri().getPath());
+		assertEquals(7, mapper.findByIdAsync(8).get(5, TimeUnit.SECONDS).get("id"));
+		assertEquals("/users/8", server.getLastRequestUri().getPath());
+		
+		assertEquals(mapper, mapper);
+		assertEquals(System.identityHashCode(mapper), mapper.hashCode());
+		assertTrue(mapper.toString().contains(UserMapper.class.getName()));
+	}
+	
+	@Test
+	public void sharesTheMethodsBetweenInstances() {
+		configuration.addMapper(UserMapper.class);
+		UserMapper first = configuration.getMapper(UserMapper.class);
+		UserMapper second = configuration.getMapper(UserMapper.class);
+		assertEquals(first.getClass(), second.getClass());
+		first.findById(1);
+		second.findById(2);
+		assertEquals(2, server.getRequestCount());
+	}
+	
+	@Test
+	public void fallsBackToAProxyForNonPublicMappers() {
+		configuration.addMapper(HiddenMapper.class);
+		HiddenMapper mapper = configuration.getMapper(HiddenMapper.class);
+		assertTrue(Proxy.isProxyClass(mapper.getClass()));
+		assertEquals(7, mapper.findById(7).get("id"));
+	}
+	
+}
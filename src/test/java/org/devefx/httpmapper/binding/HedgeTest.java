@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.Configuration;
+import org.devefx.httpmapper.StubServer;
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Bulkhead;
+import org.devefx.httpmapper.annotate.Hedge;
+import org.devefx.httpmapper.annotate.Method;
+import org.devefx.httpmapper.metrics.MetricsSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Checks against a local stub server, slow to answer the first request only,
+ * that a hedged request answers a slow call, unless a bulkhead has no permit
+ * left for it.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class HedgeTest {
+	
+	@Bean
+	public interface HedgedMapper {
+		
+		@Hedge(delay = 100)
+		@Method("value")
+		Map<String, Object> get();
+		
+		@Hedge(delay = 100)
+		@Method("value")
+		ListenableFuture<Map<String, Object>> getAsync();
+		
+		@Hedge(delay = 100)
+		@Bulkhead(1)
+		@Method("value")
+		Map<String, Object> getCapped();
+		
+		@Hedge(delay = 100)
+		@Bulkhead(1)
+		@Method("value")
+		ListenableFuture<Map<String, Object>> getCappedAsync();
+		
+	}
+	
+	private StubServer server;
+	
+	private Configuration configuration;
+	
+	private HedgedMapper mapper;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		server.setFirstDelay(1000);
+		configuration = new Configuration();
+		configuration.setGlobalBaseUrl(server.getBaseUrl());
+		configuration.addMapper(HedgedMapper.class);
+		mapper = configuration.getMapper(HedgedMapper.class);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		configuration.destroy();
+		server.stop();
+	}
+	
+	@Test
+	public void hedgedRequestAnswersASlowCall() throws InterruptedException {
+		long start = System.nanoTime();
+		assertEquals(1, mapper.get().get("value"));
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(800));
+		assertEquals(2, server.getRequestCount());
+		assertEquals(1, getMetrics("get").getHedgeCount());
+		assertEquals(1, awaitHedgeWins("get", 1));
+	}
+	
+	@Test
+	public void hedgedRequestAnswersASlowAsynchronousCall() throws Exception {
+		long start = System.nanoTime();
+		assertEquals(1, mapper.getAsync().get(5, TimeUnit.SECONDS).get("value"));
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(800));
+		assertEquals(2, server.getRequestCount());
+		assertEquals(1, awaitHedgeWins("getAsync", 1));
+	}
+	
+	@Test
+	public void fullBulkheadSkipsTheHedgedRequest() {
+		assertEquals(1, mapper.getCapped().get("value"));
+		assertEquals(1, server.getRequestCount());
+		assertEquals(0, getMetrics("getCapped").getHedgeCount());
+	}
+	
+	@Test
+	public void fullBulkheadSkipsTheHedgedAsynchronousRequest() throws Exception {
+		assertEquals(1, mapper.getCappedAsync().get(5, TimeUnit.SECONDS).get("value"));
+		assertEquals(1, server.getRequestCount());
+		assertEquals(0, getMetrics("getCappedAsync").getHedgeCount());
+	}
+	
+	/**
+	 * Waits for the winning hedged request to be counted, which may happen just
+	 * after its caller got the response.
+	 */
+	private long awaitHedgeWins(String methodName, long count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (getMetrics(methodName).getHedgeWinCount() < count && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		return getMetrics(methodName).getHedgeWinCount();
+	}
+	
+	private MetricsSnapshot getMetrics(String methodName) {
+		return configuration.getMetrics().get(HedgedMapper.class.getName() + "." + methodName);
+	}
+	
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RequestCoalescerTest {
+	
+	private final RequestCoalescer coalescer = new RequestCoalescer();
+	
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void callersOfTheSameKeyShareOneCall() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final Object result = new Object();
+		final Callable<Object> call = new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				calls.incrementAndGet();
+				release.await();
+				return result;
+			}
+		};
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					return coalescer.execute("key", call);
+				}
+			}));
+		}
+		awaitInFlight(1);
+		Thread.sleep(50);
+		release.countDown();
+		for (Future<Object> future : futures) {
+			assertSame(result, future.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, calls.get());
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+	
+	@Test
+	public void callsOfDifferentKeysRunApart() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		Callable<Object> call = new Callable<Object>() {
+			@Override
+			public Object call() {
+				return calls.incrementAndGet();
+			}
+		};
+		assertEquals(1, coalescer.execute("a", call));
+		assertEquals(2, coalescer.execute("b", call));
+		assertEquals(3, coalescer.execute("a", call));
+	}
+	
+	@Test
+	public void waitingCallersGetTheException() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final Callable<Object> call = new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				release.await();
+				throw new IOException("down");
+			}
+		};
+		Future<Object> leader = executor.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return coalescer.execute("key", call);
+			}
+		});
+		awaitInFlight(1);
+		Future<Object> waiter = executor.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return coalescer.execute("key", call);
+			}
+		});
+		Thread.sleep(50);
+		release.countDown();
+		for (Future<?> future : new Future<?>[] { leader, waiter }) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("expected the exception of the call");
+			} catch (ExecutionException ex) {
+				assertTrue(ex.getCause() instanceof IOException);
+			}
+		}
+	}
+	
+	@Test
+	public void asynchronousCallersShareOneCall() throws Exception {
+		final SettableListenableFuture<Object> exchange = new SettableListenableFuture<Object>();
+		final AtomicInteger calls = new AtomicInteger();
+		Callable<ListenableFuture<Object>> call = new Callable<ListenableFuture<Object>>() {
+			@Override
+			public ListenableFuture<Object> call() {
+				calls.incrementAndGet();
+				return exchange;
+			}
+		};
+		ListenableFuture<Object> first = coalescer.executeAsync("key", call);
+		ListenableFuture<Object> second = coalescer.executeAsync("key", call);
+		ListenableFuture<Object> third = coalescer.executeAsync("key", call);
+		assertEquals(1, calls.get());
+		assertEquals(1, coalescer.getInFlightCount());
+		
+		// cancelling a caller detaches it only
+		second.cancel(true);
+		assertFalse(exchange.isCancelled());
+		
+		exchange.set("result");
+		assertEquals("result", first.get());
+		assertEquals("result", third.get());
+		assertEquals(0, coalescer.getInFlightCount());
+		
+		coalescer.executeAsync("key", call);
+		assertEquals(2, calls.get());
+	}
+	
+	private void awaitInFlight(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalescer.getInFlightCount() != count && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(count, coalescer.getInFlightCount());
+	}
+	
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.bulkhead;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class BulkheadTest {
+	
+	@Test
+	public void rejectsCallsOverTheCap() {
+		Bulkhead bulkhead = new Bulkhead("test", 2, 0);
+		assertTrue(bulkhead.tryAcquire());
+		assertTrue(bulkhead.tryAcquire());
+		assertEquals(2, bulkhead.getInFlightCount());
+		assertFalse(bulkhead.tryAcquire());
+		assertEquals(1, bulkhead.getRejectedCount());
+		bulkhead.release();
+		assertEquals(1, bulkhead.getInFlightCount());
+		assertTrue(bulkhead.tryAcquire());
+	}
+	
+	@Test
+	public void blockingCallsWaitForAPermit() throws InterruptedException {
+		final Bulkhead bulkhead = new Bulkhead("test", 1, 5000);
+		assertTrue(bulkhead.tryAcquire());
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		try {
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					bulkhead.release();
+				}
+			}, 50, TimeUnit.MILLISECONDS);
+			long start = System.nanoTime();
+			assertTrue(bulkhead.tryAcquire(true));
+			assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+		} finally {
+			scheduler.shutdownNow();
+		}
+		assertEquals(0, bulkhead.getRejectedCount());
+	}
+	
+	@Test
+	public void blockingCallsWaitNoLongerThanTheMaxWait() {
+		Bulkhead bulkhead = new Bulkhead("test", 1, 50);
+		assertTrue(bulkhead.tryAcquire());
+		long start = System.nanoTime();
+		assertFalse(bulkhead.tryAcquire(true));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+		assertEquals(1, bulkhead.getRejectedCount());
+	}
+	
+	@Test
+	public void asynchronousCallsNeverWait() {
+		Bulkhead bulkhead = new Bulkhead("test", 1, 5000);
+		assertTrue(bulkhead.tryAcquire(false));
+		long start = System.nanoTime();
+		assertFalse(bulkhead.tryAcquire(false));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		assertEquals(1, bulkhead.getRejectedCount());
+	}
+	
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ResponseCacheTest {
+	
+	private static final long TTL = TimeUnit.MINUTES.toNanos(1);
+	
+	@Test
+	public void returnsCachedValues() {
+		ResponseCache cache = new ResponseCache(TTL, 10, EvictionPolicy.LRU);
+		assertNull(cache.get("a"));
+		cache.put("a", 1);
+		assertEquals(1, cache.get("a"));
+		cache.put("a", 2);
+		assertEquals(2, cache.get("a"));
+		assertEquals(1, cache.size());
+		cache.invalidate("a");
+		assertNull(cache.get("a"));
+		
+		CacheStats stats = cache.getStats();
+		assertEquals(2, stats.getHitCount());
+		assertEquals(2, stats.getMissCount());
+		assertEquals(0, stats.getSize());
+	}
+	
+	@Test
+	public void expiresEntries() throws InterruptedException {
+		ResponseCache cache = new ResponseCache(TimeUnit.MILLISECONDS.toNanos(20), 10, EvictionPolicy.LRU);
+		cache.put("a", 1);
+		Thread.sleep(30);
+		assertNull(cache.get("a"));
+		cache.put("b", 2);
+		assertEquals(1, cache.getStats().getExpirationCount());
+		assertEquals(1, cache.size());
+	}
+	
+	@Test
+	public void evictsTheLeastRecentlyUsedEntry() {
+		ResponseCache cache = new ResponseCache(TTL, 3, EvictionPolicy.LRU);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		assertNotNull(cache.get("a"));
+		cache.put("d", 4);
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertNotNull(cache.get("d"));
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getEvictionCount());
+		assertEquals(0, stats.getRejectionCount());
+		assertEquals(3, stats.getSize());
+	}
+	
+	@Test
+	public void rejectsEntriesLessPopularThanTheVictim() {
+		ResponseCache cache = new ResponseCache(TTL, 3, EvictionPolicy.TINY_LFU);
+		for (String key : new String[] { "a", "b", "c" }) {
+			cache.get(key);
+			cache.put(key, key);
+			for (int i = 0; i < 5; i++) {
+				cache.get(key);
+			}
+		}
+		// requested once, less often than any cached entry
+		cache.get("once");
+		cache.put("once", "once");
+		assertNull(cache.get("once"));
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getRejectionCount());
+		assertEquals(0, stats.getEvictionCount());
+		assertEquals(3, stats.getSize());
+		
+		// requested often enough, it replaces the least recently used entry
+		for (int i = 0; i < 10; i++) {
+			cache.get("often");
+		}
+		cache.put("often", "often");
+		assertEquals("often", cache.get("often"));
+		assertEquals(1, cache.getStats().getEvictionCount());
+		assertEquals(3, cache.size());
+	}
+	
+	@Test
+	public void staysBoundedUnderConcurrentUse() throws Exception {
+		final ResponseCache cache = new ResponseCache(TTL, 100, EvictionPolicy.TINY_LFU);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for (int t = 0; t < 4; t++) {
+				final int seed = t;
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() {
+						for (int i = 0; i < 20000; i++) {
+							Integer key = (i * 31 + seed) % 500;
+							if (cache.get(key) == null) {
+								cache.put(key, key);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Object> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		CacheStats stats = cache.getStats();
+		assertTrue("size " + stats.getSize(), stats.getSize() <= 100);
+		assertEquals(80000, stats.getHitCount() + stats.getMissCount());
+		for (int key = 0; key < 500; key++) {
+			Object value = cache.get(key);
+			assertTrue(value == null || value.equals(key));
+		}
+	}
+	
+}
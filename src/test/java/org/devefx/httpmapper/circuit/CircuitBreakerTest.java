@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.TimeUnit;
+
+import org.devefx.httpmapper.circuit.CircuitBreaker.State;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+/**
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class CircuitBreakerTest {
+	
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+	
+	/**
+	 * Opens at half of the calls failing or slow, from 4 calls, for 100 ms, then lets 2 probing calls through.
+	 */
+	private static CircuitBreaker createBreaker() {
+		return new CircuitBreaker("test", 0.5, 0.5, 200, 4, 10000, 100, 2);
+	}
+	
+	@Test
+	public void staysClosedUnderTheMinimumCalls() {
+		CircuitBreaker breaker = createBreaker();
+		for (int i = 0; i < 3; i++) {
+			assertTrue(breaker.tryAcquire());
+			breaker.record(FAST, true);
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+	
+	@Test
+	public void opensOnFailuresAndRejectsCalls() {
+		CircuitBreaker breaker = createBreaker();
+		breaker.record(FAST, false);
+		breaker.record(FAST, false);
+		breaker.record(FAST, true);
+		assertEquals(State.CLOSED, breaker.getState());
+		breaker.record(FAST, true);
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire());
+		assertTrue(breaker.getRemainingOpenTime() > 0);
+		assertEquals(1, breaker.getStats().getRejectedCount());
+	}
+	
+	@Test
+	public void opensOnSlowCalls() {
+		CircuitBreaker breaker = createBreaker();
+		breaker.record(FAST, false);
+		breaker.record(FAST, false);
+		breaker.record(SLOW, false);
+		breaker.record(SLOW, false);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+	
+	@Test
+	public void closesOnceTheProbingCallsSucceed() throws InterruptedException {
+		CircuitBreaker breaker = open(createBreaker());
+		Thread.sleep(150);
+		assertTrue(breaker.tryAcquire());
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertFalse("only 2 probing calls may be in flight", breaker.tryAcquire());
+		breaker.record(FAST, false);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		breaker.record(FAST, false);
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+	}
+	
+	@Test
+	public void opensAgainWhenAProbingCallFails() throws InterruptedException {
+		CircuitBreaker breaker = open(createBreaker());
+		Thread.sleep(150);
+		assertTrue(breaker.tryAcquire());
+		breaker.record(FAST, true);
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(2, breaker.getStats().getOpenCount());
+	}
+	
+	@Test
+	public void releasedProbingPermitsLetAnotherCallThrough() throws InterruptedException {
+		CircuitBreaker breaker = open(createBreaker());
+		Thread.sleep(150);
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.release();
+		assertTrue(breaker.tryAcquire());
+		assertEquals(State.HALF_OPEN, breaker.getState());
+	}
+	
+	@Test
+	public void countsServerAndConnectionErrorsAsFailures() {
+		assertTrue(CircuitBreaker.isFailure(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+		assertTrue(CircuitBreaker.isFailure(new ResourceAccessException("refused", new ConnectException())));
+		assertTrue(CircuitBreaker.isFailure(new IOException()));
+		assertFalse(CircuitBreaker.isFailure(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+		assertFalse(CircuitBreaker.isFailure(new JsonParseException("bad", null)));
+		assertFalse(CircuitBreaker.isFailure(new IllegalStateException()));
+	}
+	
+	private static CircuitBreaker open(CircuitBreaker breaker) {
+		for (int i = 0; i < 4; i++) {
+			breaker.record(FAST, true);
+		}
+		assertEquals(State.OPEN, breaker.getState());
+		return breaker;
+	}
+	
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.limit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Drives a {@link ConcurrencyLimiter} with round-trip times of a simulated host,
+ * each round filling the limit and releasing every permit once the previous
+ * window closed.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ConcurrencyLimiterTest {
+	
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+	
+	@Test
+	public void rejectsCallsOverTheLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 1, 10, 2);
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(1, limiter.getRejectedCount());
+		limiter.release();
+		assertTrue(limiter.tryAcquire());
+		assertEquals(2, limiter.getInFlightCount());
+	}
+	
+	@Test
+	public void shrinksUnderLatencyAndRecovers() throws InterruptedException {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 20, 1, 200, 2);
+		for (int i = 0; i < 30; i++) {
+			round(limiter, FAST, false);
+		}
+		int unloaded = limiter.getLimit();
+		assertTrue("limit should grow while the host is fast, was " + unloaded, unloaded > 20);
+		
+		for (int i = 0; i < 30; i++) {
+			round(limiter, SLOW, false);
+		}
+		int loaded = limiter.getLimit();
+		assertTrue("limit should shrink under latency, from " + unloaded + " to " + loaded, loaded < unloaded / 2);
+		
+		int rounds = 0;
+		while (limiter.getLimit() < unloaded && rounds++ < 1000) {
+			round(limiter, FAST, false);
+		}
+		assertTrue("limit should recover once the host is fast again, reached " + limiter.getLimit(),
+				limiter.getLimit() >= unloaded);
+	}
+	
+	@Test
+	public void shrinksWhenTheHostDropsCalls() throws InterruptedException {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 50, 1, 200, 2);
+		round(limiter, FAST, false);
+		int before = limiter.getLimit();
+		for (int i = 0; i < 5; i++) {
+			round(limiter, FAST, true);
+		}
+		assertTrue(limiter.getLimit() < before);
+		assertEquals(0, limiter.getInFlightCount());
+	}
+	
+	@Test
+	public void doesNotGrowWhileMostlyIdle() throws InterruptedException {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 20, 1, 200, 2);
+		for (int i = 0; i < 20; i++) {
+			assertTrue(limiter.tryAcquire());
+			Thread.sleep(2);
+			limiter.release(FAST, false);
+		}
+		assertEquals(20, limiter.getLimit());
+	}
+	
+	/**
+	 * Takes every permit, then releases them with the given round trip once it
+	 * elapsed, so that the window closes.
+	 */
+	private static void round(ConcurrencyLimiter limiter, long rttNanos, boolean dropped) throws InterruptedException {
+		int acquired = 0;
+		while (limiter.tryAcquire()) {
+			acquired++;
+		}
+		TimeUnit.NANOSECONDS.sleep(rttNanos + FAST);
+		for (int i = 0; i < acquired; i++) {
+			limiter.release(rttNanos, dropped);
+		}
+	}
+	
+}
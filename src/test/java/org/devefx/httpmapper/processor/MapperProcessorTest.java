@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.devefx.httpmapper.binding.GeneratedMapper;
+import org.devefx.httpmapper.binding.MapperIndex;
+import org.devefx.httpmapper.spring.mapper.MapperCandidateIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Compiles mapper sources with the {@link MapperProcessor} and checks the
+ * generated classes, the index and the errors it reports.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class MapperProcessorTest {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private File sourceDir;
+	
+	private File outputDir;
+	
+	private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+	
+	@Before
+	public void setUp() throws IOException {
+		sourceDir = Files.createTempDirectory("httpmapper-src").toFile();
+		outputDir = Files.createTempDirectory("httpmapper-out").toFile();
+	}
+	
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(sourceDir);
+		FileSystemUtils.deleteRecursively(outputDir);
+	}
+	
+	@Test
+	public void generatesAnImplementationAndTheIndex() throws Exception {
+		boolean compiled = compile("sample/UserMapper.java",
+				"package sample;\n"
+				+ "import java.util.Map;\n"
+				+ "import org.devefx.httpmapper.annotate.*;\n"
+				+ "@Bean public interface UserMapper {\n"
+				+ "  @Method(\"users/{id}\") Map<String, Object> findById(@Param(\"id\") long id);\n"
+				+ "  @Method(\"users\") Map<String, Object> findByName(String name);\n"
+				+ "}\n");
+		assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+		
+		ClassLoader classLoader = new URLClassLoader(new URL[] { outputDir.toURI().toURL() },
+				getClass().getClassLoader());
+		Class<?> mapperInterface = classLoader.loadClass("sample.UserMapper");
+		Class<?> implementation = classLoader.loadClass("sample.UserMapper" + MapperProcessor.IMPLEMENTATION_SUFFIX);
+		assertTrue(mapperInterface.isAssignableFrom(implementation));
+		assertTrue(GeneratedMapper.class.isAssignableFrom(implementation));
+		
+		java.lang.reflect.Method[] methods = (java.lang.reflect.Method[]) implementation.getMethod("getMapperMethods").invoke(null);
+		String[][] parameterNames = (String[][]) implementation.getField("PARAMETER_NAMES").get(null);
+		assertEquals(2, methods.length);
+		for (int i = 0; i < methods.length; i++) {
+			if (methods[i].getName().equals("findById")) {
+				assertEquals(Arrays.asList("id"), Arrays.asList(parameterNames[i]));
+			} else {
+				assertEquals(Arrays.asList("name"), Arrays.asList(parameterNames[i]));
+			}
+		}
+		
+		assertTrue(read(MapperIndex.INDEX_LOCATION).contains("sample.UserMapper"));
+		assertTrue(read(MapperCandidateIndex.COMPONENTS_LOCATION).contains("sample.UserMapper=org.devefx.httpmapper.annotate.Bean"));
+	}
+	
+	@Test
+	public void onlyListsTheMappersWithoutImplementations() throws IOException {
+		boolean compiled = compile("sample/UserMapper.java",
+				"package sample;\n"
+				+ "import java.util.Map;\n"
+				+ "import org.devefx.httpmapper.annotate.*;\n"
+				+ "@Bean public interface UserMapper {\n"
+				+ "  @Method(\"users/{id}\") Map<String, Object> findById(@Param(\"id\") long id);\n"
+				+ "}\n", "-A" + MapperProcessor.IMPLEMENTATIONS_OPTION + "=false");
+		assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+		assertFalse(new File(outputDir, "sample/UserMapper" + MapperProcessor.IMPLEMENTATION_SUFFIX + ".class").exists());
+		assertFalse(new File(outputDir, MapperIndex.INDEX_LOCATION).exists());
+		assertTrue(read(MapperCandidateIndex.COMPONENTS_LOCATION).contains("sample.UserMapper"));
+	}
+	
+	@Test
+	public void rejectsMethodsWithoutMapping() throws IOException {
+		boolean compiled = compile("sample/BrokenMapper.java",
+				"package sample;\n"
+				+ "import org.devefx.httpmapper.annotate.*;\n"
+				+ "@Bean public interface BrokenMapper {\n"
+				+ "  String find();\n"
+				+ "}\n");
+		assertFalse(compiled);
+		assertTrue(hasError("must be annotated with @Method"));
+	}
+	
+	@Test
+	public void rejectsDuplicateParameterNames() throws IOException {
+		boolean compiled = compile("sample/BrokenMapper.java",
+				"package sample;\n"
+				+ "import org.devefx.httpmapper.annotate.*;\n"
+				+ "@Bean public interface BrokenMapper {\n"
+				+ "  @Method(\"users\") String find(@Param(\"id\") long a, @Param(\"id\") long b);\n"
+				+ "}\n");
+		assertFalse(compiled);
+		assertTrue(hasError("twice"));
+	}
+	
+	@Test
+	public void rejectsBeansOnClasses() throws IOException {
+		boolean compiled = compile("sample/BrokenMapper.java",
+				"package sample;\n"
+				+ "import org.devefx.httpmapper.annotate.*;\n"
+				+ "@Bean public class BrokenMapper {\n"
+				+ "}\n");
+		assertFalse(compiled);
+		assertTrue(hasError("must be declared on an interface"));
+	}
+	
+	private boolean compile(String path, String source, String... extraOptions) throws IOException {
+		File file = new File(sourceDir, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), source.getBytes(UTF_8));
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, UTF_8);
+		try {
+			List<String> options = new ArrayList<String>();
+			options.add("-classpath");
+			options.add(getClassPath());
+			options.add("-d");
+			options.add(outputDir.getPath());
+			options.addAll(Arrays.asList(extraOptions));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+					fileManager.getJavaFileObjectsFromFiles(Collections.singletonList(file)));
+			task.setProcessors(Collections.singletonList(new MapperProcessor()));
+			return task.call();
+		} finally {
+			fileManager.close();
+		}
+	}
+	
+	/**
+	 * Returns the class path of the tests, the one of surefire if it runs them
+	 * through a manifest-only jar.
+	 */
+	private static String getClassPath() {
+		String classPath = System.getProperty("surefire.test.class.path");
+		return (classPath != null) ? classPath : System.getProperty("java.class.path");
+	}
+	
+	private boolean hasError(String message) {
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getMessage(Locale.ROOT).contains(message)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private String read(String location) throws IOException {
+		return new String(Files.readAllBytes(new File(outputDir, location).toPath()), UTF_8);
+	}
+	
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class RetryBudgetTest {
+	
+	@Test
+	public void startsFull() {
+		RetryBudget budget = new RetryBudget(0.1, 0);
+		assertEquals(10, budget.getAvailable());
+		for (int i = 0; i < 10; i++) {
+			assertTrue(budget.tryAcquire());
+		}
+		assertFalse(budget.tryAcquire());
+	}
+	
+	@Test
+	public void callsEarnRetriesInProportion() {
+		RetryBudget budget = new RetryBudget(0.1, 0);
+		spend(budget);
+		for (int i = 0; i < 9; i++) {
+			budget.deposit();
+		}
+		assertFalse(budget.tryAcquire());
+		budget.deposit();
+		assertTrue(budget.tryAcquire());
+		assertFalse(budget.tryAcquire());
+	}
+	
+	@Test
+	public void holdsNoMoreThanItsCapacity() {
+		RetryBudget budget = new RetryBudget(1, 0);
+		for (int i = 0; i < 100; i++) {
+			budget.deposit();
+		}
+		assertEquals(10, budget.getAvailable());
+	}
+	
+	@Test
+	public void refillsAtTheMinimumRate() throws InterruptedException {
+		RetryBudget budget = new RetryBudget(0, 100);
+		spend(budget);
+		Thread.sleep(100);
+		long available = budget.getAvailable();
+		assertTrue("expected about 10 retries, got " + available, available >= 5 && available <= 100);
+	}
+	
+	private static void spend(RetryBudget budget) {
+		while (budget.tryAcquire()) {
+		}
+		assertEquals(0, budget.getAvailable());
+	}
+	
+}
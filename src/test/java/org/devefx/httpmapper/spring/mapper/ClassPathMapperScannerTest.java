@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016-2017, Youqian Yue (devefx@163.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.devefx.httpmapper.spring.mapper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.devefx.httpmapper.annotate.Bean;
+import org.devefx.httpmapper.annotate.Method;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Checks the {@link ClassPathMapperScanner} against a {@link MapperCandidateIndex}
+ * that lists the mappers of some packages only.
+ * @author Youqian Yue
+ * @since 1.0
+ */
+public class ClassPathMapperScannerTest {
+	
+	private static final String BASE_PACKAGE = ClassPathMapperScannerTest.class.getPackage().getName();
+	
+	@Bean
+	public interface IndexedMapper {
+		@Method("users") String find();
+	}
+	
+	@Bean
+	public interface UnindexedMapper {
+		@Method("orders") String find();
+	}
+	
+	private File indexDir;
+	
+	@Before
+	public void setUp() throws IOException {
+		indexDir = Files.createTempDirectory("httpmapper-index").toFile();
+	}
+	
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(indexDir);
+	}
+	
+	@Test
+	public void usesTheIndexOfAnIndexedPackage() throws IOException {
+		List<String> mappers = findMappers(IndexedMapper.class.getName() + "=" + Bean.class.getName());
+		assertEquals(Arrays.asList(IndexedMapper.class.getName()), mappers);
+	}
+	
+	@Test
+	public void scansAPackageTheIndexListsNoMapperOf() throws IOException {
+		List<String> mappers = findMappers("other.OtherMapper=" + Bean.class.getName());
+		assertEquals(Arrays.asList(IndexedMapper.class.getName(), UnindexedMapper.class.getName()), mappers);
+	}
+	
+	private List<String> findMappers(String index) throws IOException {
+		File file = new File(indexDir, MapperCandidateIndex.COMPONENTS_LOCATION);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), index.getBytes(Charset.forName("ISO-8859-1")));
+		ClassLoader classLoader = new URLClassLoader(new URL[] { indexDir.toURI().toURL() }, getClass().getClassLoader());
+		
+		ClassPathMapperScanner scanner = new ClassPathMapperScanner(new DefaultListableBeanFactory());
+		scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
+		scanner.setAnnotationClass(Bean.class);
+		scanner.registerFilters();
+		List<String> mappers = new ArrayList<String>();
+		for (BeanDefinition candidate : scanner.findCandidateComponents(BASE_PACKAGE)) {
+			mappers.add(candidate.getBeanClassName());
+		}
+		return mappers;
+	}
+	
+}